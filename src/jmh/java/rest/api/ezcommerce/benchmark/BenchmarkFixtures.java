@@ -0,0 +1,213 @@
+package rest.api.ezcommerce.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import rest.api.ezcommerce.entity.AddressEntity;
+import rest.api.ezcommerce.entity.CartEntity;
+import rest.api.ezcommerce.entity.CartItemEntity;
+import rest.api.ezcommerce.entity.CategoryEntity;
+import rest.api.ezcommerce.entity.OrderEntity;
+import rest.api.ezcommerce.entity.OrderItemEntity;
+import rest.api.ezcommerce.entity.ProductEntity;
+import rest.api.ezcommerce.entity.ProfileEntity;
+import rest.api.ezcommerce.entity.RoleEntity;
+import rest.api.ezcommerce.entity.StockReservationEntity;
+import rest.api.ezcommerce.entity.UserEntity;
+
+/*
+ * Detached entity graphs shaped like the ones the services load, built once per trial
+ * so the benchmarks measure mapping and serialization rather than fixture set-up.
+ */
+final class BenchmarkFixtures {
+
+    private static final int CATEGORIES = 16;
+
+    private BenchmarkFixtures() {
+    }
+
+    static UserEntity user(int id) {
+        return UserEntity.builder()
+                .id(id)
+                .email("user" + id + "@ezcommerce.test")
+                .password("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z4fGgBuFQvGbOmrCMVY4m1Fe")
+                .roles(List.of(role(1L, "ROLE_USER"), role(2L, "ROLE_ADMIN")))
+                .build();
+    }
+
+    static RoleEntity role(Long id, String name) {
+        return RoleEntity.builder()
+                .id(id)
+                .name(name)
+                .build();
+    }
+
+    static List<UserEntity> users(int size) {
+        List<UserEntity> users = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            users.add(user(i + 1));
+        }
+
+        return users;
+    }
+
+    static List<ProfileEntity> profiles(int size) {
+        List<ProfileEntity> profiles = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            profiles.add(ProfileEntity.builder()
+                    .id(i + 1)
+                    .firstname("First" + i)
+                    .lastname("Last" + i)
+                    .phoneNumber("0812" + String.format("%08d", i))
+                    .build());
+        }
+
+        return profiles;
+    }
+
+    static List<AddressEntity> addresses(int size) {
+        List<AddressEntity> addresses = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            addresses.add(AddressEntity.builder()
+                    .id(i + 1)
+                    .title("Address " + i)
+                    .address("Jalan Sudirman No. " + i)
+                    .country("Indonesia")
+                    .city("Jakarta")
+                    .postalCode("10" + String.format("%03d", i % 1000))
+                    .version(0L)
+                    .build());
+        }
+
+        return addresses;
+    }
+
+    static List<CategoryEntity> categories(int size) {
+        List<CategoryEntity> categories = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            categories.add(CategoryEntity.builder()
+                    .id(i + 1)
+                    .name("Category " + i)
+                    .build());
+        }
+
+        return categories;
+    }
+
+    static List<ProductEntity> products(int size) {
+        List<CategoryEntity> categories = categories(CATEGORIES);
+        List<ProductEntity> products = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            products.add(ProductEntity.builder()
+                    .id(i + 1)
+                    .categoryEntity(categories.get(i % CATEGORIES))
+                    .name("Product " + i)
+                    .description("Description of product " + i)
+                    .price(10_000.0 + i)
+                    .stock(100 + i % 50)
+                    .version(0L)
+                    .build());
+        }
+
+        return products;
+    }
+
+    static List<OrderEntity> orders(int size) {
+        Date createdAt = new Date();
+        List<OrderEntity> orders = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            orders.add(OrderEntity.builder()
+                    .id(i + 1)
+                    .orderId(UUID.randomUUID())
+                    .totalAmount(25_000.0 + i)
+                    .status("PENDING")
+                    .remark("Order " + i)
+                    .version(0L)
+                    .createdAt(createdAt)
+                    .build());
+        }
+
+        return orders;
+    }
+
+    static List<OrderItemEntity> orderItems(int size) {
+        List<OrderEntity> orders = orders(Math.max(1, size / 4));
+        List<ProductEntity> products = products(Math.min(size, 1_000));
+        List<OrderItemEntity> items = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            ProductEntity product = products.get(i % products.size());
+
+            items.add(OrderItemEntity.builder()
+                    .id(i + 1)
+                    .orderEntity(orders.get(i % orders.size()))
+                    .productEntity(product)
+                    .quantity(1 + i % 5)
+                    .amount(product.getPrice() * (1 + i % 5))
+                    .build());
+        }
+
+        return items;
+    }
+
+    static List<CartEntity> carts(int size) {
+        List<CartEntity> carts = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            carts.add(CartEntity.builder()
+                    .id(i + 1)
+                    .totalItems(i % 20)
+                    .subtotal(0.0)
+                    .version(0L)
+                    .build());
+        }
+
+        return carts;
+    }
+
+    static List<CartItemEntity> cartItems(int size) {
+        List<CartEntity> carts = carts(Math.max(1, size / 4));
+        List<ProductEntity> products = products(Math.min(size, 1_000));
+        List<CartItemEntity> items = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            ProductEntity product = products.get(i % products.size());
+
+            items.add(CartItemEntity.builder()
+                    .id(i + 1)
+                    .cartEntity(carts.get(i % carts.size()))
+                    .productEntity(product)
+                    .quantity(1 + i % 5)
+                    .unitPrice(product.getPrice())
+                    .build());
+        }
+
+        return items;
+    }
+
+    static List<StockReservationEntity> stockReservations(int size) {
+        List<ProductEntity> products = products(Math.min(size, 1_000));
+        long expiresAt = System.currentTimeMillis() + 900_000L;
+        List<StockReservationEntity> reservations = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            reservations.add(StockReservationEntity.builder()
+                    .id(i + 1)
+                    .productEntity(products.get(i % products.size()))
+                    .quantity(1 + i % 5)
+                    .expiresAt(expiresAt)
+                    .build());
+        }
+
+        return reservations;
+    }
+
+}
@@ -0,0 +1,84 @@
+package rest.api.ezcommerce.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.jsonwebtoken.JwtParser;
+import rest.api.ezcommerce.entity.UserEntity;
+import rest.api.ezcommerce.security.JwtClaims;
+import rest.api.ezcommerce.security.JwtConfig;
+import rest.api.ezcommerce.security.JwtKeys;
+import rest.api.ezcommerce.security.JwtUtil;
+import rest.api.ezcommerce.security.SecurityConstants;
+import rest.api.ezcommerce.security.UserPrincipal;
+
+/*
+ * Signs and parses HS512 tokens through JwtUtil, wired with the keys and parser
+ * JwtConfig would register for an HMAC secret.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret-benchmark-secret";
+
+    private JwtUtil jwtUtil;
+
+    private Authentication authentication;
+
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SecurityConstants securityConstants = new SecurityConstants();
+        ReflectionTestUtils.setField(securityConstants, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(securityConstants, "jwtExpiration", 3_600_000);
+
+        JwtConfig jwtConfig = new JwtConfig();
+        JwtKeys jwtKeys = jwtConfig.jwtKeys(securityConstants);
+        JwtParser jwtParser = jwtConfig.jwtParser(jwtKeys);
+
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "securityConstants", securityConstants);
+        ReflectionTestUtils.setField(jwtUtil, "jwtKeys", jwtKeys);
+        ReflectionTestUtils.setField(jwtUtil, "jwtParser", jwtParser);
+
+        UserEntity user = BenchmarkFixtures.user(1);
+        List<SimpleGrantedAuthority> authorities = user.getRoles().stream().map(role -> new SimpleGrantedAuthority(role.getName())).toList();
+        UserPrincipal principal = new UserPrincipal(user.getId(), user.getEmail(), user.getPassword(), authorities);
+
+        authentication = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+        token = jwtUtil.generateToken(authentication);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(authentication);
+    }
+
+    @Benchmark
+    public JwtClaims parseToken() {
+        return jwtUtil.parseToken(token);
+    }
+
+}
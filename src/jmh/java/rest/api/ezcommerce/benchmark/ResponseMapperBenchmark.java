@@ -0,0 +1,192 @@
+package rest.api.ezcommerce.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rest.api.ezcommerce.entity.AddressEntity;
+import rest.api.ezcommerce.entity.CartEntity;
+import rest.api.ezcommerce.entity.CartItemEntity;
+import rest.api.ezcommerce.entity.CategoryEntity;
+import rest.api.ezcommerce.entity.OrderEntity;
+import rest.api.ezcommerce.entity.OrderItemEntity;
+import rest.api.ezcommerce.entity.ProductEntity;
+import rest.api.ezcommerce.entity.ProfileEntity;
+import rest.api.ezcommerce.entity.StockReservationEntity;
+import rest.api.ezcommerce.entity.UserEntity;
+import rest.api.ezcommerce.mapper.ResponseMapper;
+import rest.api.ezcommerce.model.AddressResponse;
+import rest.api.ezcommerce.model.CartItemResponse;
+import rest.api.ezcommerce.model.CartResponse;
+import rest.api.ezcommerce.model.CategoryResponse;
+import rest.api.ezcommerce.model.OrderItemResponse;
+import rest.api.ezcommerce.model.OrderResponse;
+import rest.api.ezcommerce.model.ProductResponse;
+import rest.api.ezcommerce.model.ProfileResponse;
+import rest.api.ezcommerce.model.StockReservationResponse;
+import rest.api.ezcommerce.model.TokenResponse;
+import rest.api.ezcommerce.model.UserResponse;
+
+/*
+ * Every ResponseMapper method over 10, 1k and 100k entities. Single-entity mappers are
+ * applied element by element, the way controllers use them for a page of results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseMapperBenchmark {
+
+    private static final String TOKEN = "eyJhbGciOiJIUzUxMiJ9.eyJzdWIiOiJ1c2VyQGV6Y29tbWVyY2UudGVzdCJ9.signature";
+
+    private static final List<String> ROLES = List.of("ROLE_USER", "ROLE_ADMIN");
+
+    @Param({ "10", "1000", "100000" })
+    private int size;
+
+    private List<UserEntity> users;
+
+    private List<ProfileEntity> profiles;
+
+    private List<AddressEntity> addresses;
+
+    private List<CategoryEntity> categories;
+
+    private List<ProductEntity> products;
+
+    private List<OrderEntity> orders;
+
+    private List<OrderItemEntity> orderItems;
+
+    private List<CartEntity> carts;
+
+    private List<CartItemEntity> cartItems;
+
+    private List<StockReservationEntity> stockReservations;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        users = BenchmarkFixtures.users(size);
+        profiles = BenchmarkFixtures.profiles(size);
+        addresses = BenchmarkFixtures.addresses(size);
+        categories = BenchmarkFixtures.categories(size);
+        products = BenchmarkFixtures.products(size);
+        orders = BenchmarkFixtures.orders(size);
+        orderItems = BenchmarkFixtures.orderItems(size);
+        carts = BenchmarkFixtures.carts(size);
+        cartItems = BenchmarkFixtures.cartItems(size);
+        stockReservations = BenchmarkFixtures.stockReservations(size);
+    }
+
+    @Benchmark
+    public List<UserResponse> toUserResponse() {
+        return mapEach(users, ResponseMapper::ToUserResponseMapper);
+    }
+
+    @Benchmark
+    public List<TokenResponse> toTokenResponse() {
+        return mapEach(users, user -> ResponseMapper.ToTokenResponseMapper(user, TOKEN, ROLES));
+    }
+
+    @Benchmark
+    public List<ProfileResponse> toProfileResponse() {
+        return mapEach(profiles, ResponseMapper::ToProfileResponseMapper);
+    }
+
+    @Benchmark
+    public List<AddressResponse> toAddressResponse() {
+        return mapEach(addresses, ResponseMapper::ToAddressResponseMapper);
+    }
+
+    @Benchmark
+    public List<AddressResponse> toAddressResponseList() {
+        return ResponseMapper.ToAddressResponseListMapper(addresses);
+    }
+
+    @Benchmark
+    public List<CategoryResponse> toCategoryResponse() {
+        return mapEach(categories, ResponseMapper::ToCategoryResponseMapper);
+    }
+
+    @Benchmark
+    public List<CategoryResponse> toCategoryResponseList() {
+        return ResponseMapper.ToCategoryResponseListMapper(categories);
+    }
+
+    @Benchmark
+    public List<ProductResponse> toProductResponse() {
+        return mapEach(products, ResponseMapper::ToProductResponseMapper);
+    }
+
+    @Benchmark
+    public List<ProductResponse> toProductResponseList() {
+        return ResponseMapper.ToProductResponseListMapper(products);
+    }
+
+    @Benchmark
+    public List<OrderResponse> toOrderResponse() {
+        return mapEach(orders, ResponseMapper::ToOrderResponseMapper);
+    }
+
+    @Benchmark
+    public List<OrderResponse> toOrderResponseList() {
+        return ResponseMapper.ToOrderResponseListMapper(orders);
+    }
+
+    @Benchmark
+    public List<OrderItemResponse> toOrderItemResponse() {
+        return mapEach(orderItems, ResponseMapper::ToOrderItemResponseMapper);
+    }
+
+    @Benchmark
+    public List<OrderItemResponse> toOrderItemListResponse() {
+        return ResponseMapper.ToOrderItemListResponseMapper(orderItems);
+    }
+
+    @Benchmark
+    public List<CartItemResponse> toCartItemResponse() {
+        return mapEach(cartItems, ResponseMapper::ToCartItemResponseMapper);
+    }
+
+    @Benchmark
+    public List<CartItemResponse> toCartItemListResponse() {
+        return ResponseMapper.ToCartItemListResponseMapper(cartItems);
+    }
+
+    @Benchmark
+    public List<CartResponse> toCartResponse() {
+        return mapEach(carts, ResponseMapper::ToCartResponseMapper);
+    }
+
+    @Benchmark
+    public List<StockReservationResponse> toStockReservationResponse() {
+        return mapEach(stockReservations, ResponseMapper::ToStockReservationResponseMapper);
+    }
+
+    private static <E, R> List<R> mapEach(List<E> entities, Function<E, R> mapper) {
+        List<R> responses = new ArrayList<>(entities.size());
+
+        for (E entity : entities) {
+            responses.add(mapper.apply(entity));
+        }
+
+        return responses;
+    }
+
+}
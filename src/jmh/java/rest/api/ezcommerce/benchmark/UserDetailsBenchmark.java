@@ -0,0 +1,81 @@
+package rest.api.ezcommerce.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import rest.api.ezcommerce.entity.UserEntity;
+import rest.api.ezcommerce.repository.UserRepository;
+import rest.api.ezcommerce.security.CustomUserDetailService;
+import rest.api.ezcommerce.security.SecurityConstants;
+import rest.api.ezcommerce.security.UserPrincipal;
+
+/*
+ * CustomUserDetailService with an in-memory repository. The cached case is what every
+ * authenticated request pays; the evicted case adds the role to authority mapping.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserDetailsBenchmark {
+
+    private CustomUserDetailService userDetailService;
+
+    private String email;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UserEntity user = BenchmarkFixtures.user(1);
+        email = user.getEmail();
+
+        SecurityConstants securityConstants = new SecurityConstants();
+        ReflectionTestUtils.setField(securityConstants, "userCacheMaximumSize", 10_000L);
+        ReflectionTestUtils.setField(securityConstants, "userCacheTtl", 300L);
+
+        userDetailService = new CustomUserDetailService(userRepository(user), securityConstants, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public UserPrincipal loadCached() {
+        return userDetailService.loadCachedUser(email);
+    }
+
+    @Benchmark
+    public UserPrincipal loadAndMapAuthorities() {
+        userDetailService.evict(email);
+
+        return userDetailService.loadCachedUser(email);
+    }
+
+    // only findByEmail is reached from the service
+    private static UserRepository userRepository(UserEntity user) {
+        return (UserRepository) Proxy.newProxyInstance(
+                    UserRepository.class.getClassLoader(),
+                    new Class<?>[] { UserRepository.class },
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("findByEmail")) {
+                            return Optional.of(user).filter(u -> u.getEmail().equals(args[0]));
+                        }
+
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+    }
+
+}
@@ -0,0 +1,107 @@
+package rest.api.ezcommerce.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import rest.api.ezcommerce.model.RegisterProductRequest;
+import rest.api.ezcommerce.model.SyncCartItemRequest;
+import rest.api.ezcommerce.model.SyncCartItemsRequest;
+import rest.api.ezcommerce.service.ValidationService;
+
+/*
+ * ValidationService.validate on a valid and an invalid product request, and on the
+ * largest cart sync batch the API accepts, which cascades into every item.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidationBenchmark {
+
+    private static final int SYNC_ITEMS = 500;
+
+    private ValidatorFactory validatorFactory;
+
+    private ValidationService validationService;
+
+    private RegisterProductRequest validProduct;
+
+    private RegisterProductRequest invalidProduct;
+
+    private SyncCartItemsRequest syncCartItems;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+
+        validationService = new ValidationService();
+        ReflectionTestUtils.setField(validationService, "validator", validatorFactory.getValidator());
+
+        validProduct = RegisterProductRequest.builder()
+                        .name("Product")
+                        .description("Description")
+                        .price(10_000.0)
+                        .stock(100)
+                        .build();
+
+        invalidProduct = RegisterProductRequest.builder()
+                        .name("")
+                        .description("")
+                        .build();
+
+        List<SyncCartItemRequest> items = new ArrayList<>(SYNC_ITEMS);
+
+        for (int i = 0; i < SYNC_ITEMS; i++) {
+            items.add(new SyncCartItemRequest(i + 1, 1 + i % 5));
+        }
+
+        syncCartItems = new SyncCartItemsRequest(items);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public void validProduct() {
+        validationService.validate(validProduct);
+    }
+
+    @Benchmark
+    public ConstraintViolationException invalidProduct() {
+        try {
+            validationService.validate(invalidProduct);
+        } catch (ConstraintViolationException e) {
+            return e;
+        }
+
+        throw new IllegalStateException("Expected constraint violations");
+    }
+
+    @Benchmark
+    public void syncCartItems() {
+        validationService.validate(syncCartItems);
+    }
+
+}
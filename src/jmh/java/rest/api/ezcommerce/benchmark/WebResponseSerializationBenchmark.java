@@ -0,0 +1,69 @@
+package rest.api.ezcommerce.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import rest.api.ezcommerce.mapper.ResponseMapper;
+import rest.api.ezcommerce.model.PagingResponse;
+import rest.api.ezcommerce.model.ProductResponse;
+import rest.api.ezcommerce.model.WebResponse;
+
+/*
+ * Jackson serialization of the product list response body. The mapper comes from
+ * Jackson2ObjectMapperBuilder, which applies the same defaults Spring Boot configures
+ * for the HTTP message converters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WebResponseSerializationBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    private int size;
+
+    private ObjectMapper objectMapper;
+
+    private WebResponse<List<ProductResponse>> response;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        response = WebResponse.<List<ProductResponse>>builder()
+                        .status(true)
+                        .messages("Product fetching success")
+                        .data(ResponseMapper.ToProductResponseListMapper(BenchmarkFixtures.products(size)))
+                        .paging(PagingResponse.builder()
+                                    .currentPage(0)
+                                    .totalPage(1)
+                                    .size(size)
+                                    .build())
+                        .build();
+    }
+
+    @Benchmark
+    public byte[] serializeProductList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+}
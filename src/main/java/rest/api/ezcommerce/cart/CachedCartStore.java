@@ -0,0 +1,622 @@
+package rest.api.ezcommerce.cart;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import rest.api.ezcommerce.entity.CartEntity;
+import rest.api.ezcommerce.entity.CartItemEntity;
+import rest.api.ezcommerce.entity.ProductEntity;
+import rest.api.ezcommerce.model.CartItemResponse;
+import rest.api.ezcommerce.model.CartSummaryResponse;
+import rest.api.ezcommerce.model.SyncCartItemRequest;
+import rest.api.ezcommerce.repository.CartItemRepository;
+import rest.api.ezcommerce.repository.CartRepository;
+import rest.api.ezcommerce.repository.ProductRepository;
+import rest.api.ezcommerce.repository.UserRepository;
+
+/*
+ * Keeps live carts in memory, keyed by user id, and serves reads from there. Changes
+ * are written to the journal, applied in memory and flushed to Postgres on a schedule,
+ * where every changed line is written once however often it changed. Carts with
+ * unflushed changes are never evicted, so the store can hold more than max-carts until
+ * the next flush. Item ids come from cart_items_seq up front, so the ids a client sees
+ * are the ids the rows get. Checkout writes the cart through and holds it until the
+ * order commits.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "cart.cache.enabled", havingValue = "true")
+public class CachedCartStore implements CartStore {
+
+    // must match the allocationSize of cart_items_seq on CartItemEntity
+    private static final int ID_BLOCK = 50;
+
+    // journal records written before lines carried a price fall back to the product's current one
+    private static final String UPSERT_ITEM = "insert into cart_items (id, cart_id, product_id, quantity, unit_price, created_at, updated_at) " +
+            "select :id, :cartId, p.id, :quantity, coalesce(:unitPrice, p.price), now(), now() from products p " +
+            "where p.id = :productId and exists (select 1 from carts where id = :cartId) " +
+            "on conflict (id) do update set quantity = excluded.quantity, unit_price = excluded.unit_price, updated_at = excluded.updated_at";
+
+    private UserRepository userRepository;
+
+    private CartRepository cartRepository;
+
+    private CartItemRepository cartItemRepository;
+
+    private ProductRepository productRepository;
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    private TransactionTemplate readTemplate;
+
+    @Value("${cart.cache.max-carts:10000}")
+    private Integer maxCarts;
+
+    @Value("${cart.cache.flush-batch:500}")
+    private Integer flushBatch;
+
+    @Value("${cart.cache.journal.path:data/cart-journal}")
+    private String journalPath;
+
+    @Value("${cart.cache.journal.fsync:true}")
+    private Boolean fsync;
+
+    private final Map<Integer, Session> sessions = new ConcurrentHashMap<>();
+
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+
+    private final Object idLock = new Object();
+
+    private int nextItemId;
+
+    private int lastItemId = -1;
+
+    private CartJournal journal;
+
+    public CachedCartStore(UserRepository userRepository, CartRepository cartRepository,
+            CartItemRepository cartItemRepository, ProductRepository productRepository,
+            NamedParameterJdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        journal = new CartJournal(Path.of(journalPath), fsync);
+        journal.open();
+        recover();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        flush();
+        journal.close();
+    }
+
+    // replays what earlier runs journaled but may not have flushed; records hold whole line states, so replaying twice is harmless
+    public synchronized void recover() throws IOException {
+        long segment = journal.rotate();
+        List<String> records = journal.read(segment);
+
+        Set<Integer> cleared = new HashSet<>();
+        Map<Integer, Map<Integer, Line>> changes = new LinkedHashMap<>();
+
+        for (String record : records) {
+            String[] fields = record.split(",");
+
+            try {
+                Integer cartId = Integer.valueOf(fields[1]);
+
+                if ("C".equals(fields[0])) {
+                    cleared.add(cartId);
+                    changes.put(cartId, new LinkedHashMap<>());
+                } else {
+                    Double price = fields.length > 5 ? Double.valueOf(fields[5]) : null;
+                    Line line = new Line(Integer.valueOf(fields[2]), Integer.valueOf(fields[3]), null, price, Integer.parseInt(fields[4]));
+                    changes.computeIfAbsent(cartId, id -> new LinkedHashMap<>()).put(line.itemId(), line);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Skipping unreadable cart journal record '{}'", record);
+            }
+        }
+
+        if (!changes.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!cleared.isEmpty()) {
+                    jdbcTemplate.update("delete from cart_items where cart_id in (:cartIds)", new MapSqlParameterSource("cartIds", cleared));
+                }
+
+                write(changes.entrySet().stream()
+                            .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().values())));
+            });
+
+            log.info("Replayed {} cart journal records for {} carts", records.size(), changes.size());
+        }
+
+        journal.deleteThrough(segment);
+    }
+
+    @Override
+    public CartItemResponse add(Integer userId, Integer productId, int quantity) {
+        ProductEntity product = productRepository.findFirstById(productId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"));
+
+        Session session = lock(userId);
+
+        try {
+            Line current = session.lines.get(productId);
+            int previous = current == null ? 0 : current.quantity();
+
+            Line line = new Line(itemId(session, productId), productId, product.getName(), product.getPrice(), previous + quantity);
+            apply(session, List.of(line));
+
+            return response(session, line);
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    @Override
+    public CartItemResponse update(Integer userId, Integer itemId, int quantity) {
+        Session session = lock(userId);
+
+        try {
+            Line current = line(session, itemId);
+            Line line = new Line(current.itemId(), current.productId(), current.productName(), current.price(), quantity);
+            apply(session, List.of(line));
+
+            return response(session, line);
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(Integer userId, Integer itemId) {
+        Session session = lock(userId);
+
+        try {
+            Line current = line(session, itemId);
+            apply(session, List.of(new Line(current.itemId(), current.productId(), current.productName(), current.price(), 0)));
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    @Override
+    public List<CartItemResponse> sync(Integer userId, List<SyncCartItemRequest> lines) {
+        Set<Integer> productIds = lines.stream().map(SyncCartItemRequest::getIdProduct).collect(Collectors.toSet());
+
+        Map<Integer, ProductEntity> products = productRepository.findAllById(productIds).stream()
+                    .collect(Collectors.toMap(ProductEntity::getId, Function.identity()));
+
+        if (products.size() != productIds.size()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found");
+        }
+
+        Session session = lock(userId);
+
+        try {
+            List<Line> changed = new ArrayList<>();
+
+            for (SyncCartItemRequest request : lines) {
+                Line current = session.lines.get(request.getIdProduct());
+                int previous = current == null ? 0 : current.quantity();
+
+                if (request.getQuantity() == previous) {
+                    continue;
+                }
+
+                ProductEntity product = products.get(request.getIdProduct());
+                changed.add(new Line(itemId(session, product.getId()), product.getId(), product.getName(), product.getPrice(), request.getQuantity()));
+            }
+
+            apply(session, changed);
+
+            return session.lines.values().stream().map(line -> response(session, line)).toList();
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    @Override
+    public List<CartItemResponse> list(Integer userId) {
+        Session session = lock(userId);
+
+        try {
+            return session.lines.values().stream().map(line -> response(session, line)).toList();
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    @Override
+    public CartSummaryResponse summary(Integer userId) {
+        Session session = lock(userId);
+
+        try {
+            return new CartSummaryResponse(session.cartId, session.totalItems, session.subtotal);
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    /*
+     * Writes the cart's pending changes inside the checkout transaction and keeps the
+     * cart locked until it completes, so no change can slip in between. Once the order
+     * commits the cart is empty, in memory and in the journal.
+     */
+    @Override
+    public void beforeCheckout(Integer userId) {
+        Session session = lock(userId);
+
+        try {
+            if (!session.changes.isEmpty()) {
+                write(Map.of(session.cartId, List.copyOf(session.changes.values())));
+            }
+
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    try {
+                        if (status == STATUS_COMMITTED) {
+                            clear(session);
+                        }
+                    } finally {
+                        session.lock.unlock();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            session.lock.unlock();
+            throw e;
+        }
+    }
+
+    /*
+     * Writes every cart with pending changes, in batches of flush-batch carts per
+     * transaction. Journal segments are dropped only when every cart they describe made
+     * it to the database; a cart busy with a checkout is picked up by the next run.
+     */
+    @Scheduled(fixedDelayString = "${cart.cache.flush-interval:1000}")
+    public synchronized void flush() {
+        long segment;
+
+        try {
+            segment = journal.rotate();
+        } catch (IOException e) {
+            log.error("Unable to rotate the cart journal, skipping this flush", e);
+            return;
+        }
+
+        List<Integer> userIds = new ArrayList<>(dirty);
+        boolean complete = true;
+
+        for (int from = 0; from < userIds.size(); from += flushBatch) {
+            complete &= flush(userIds.subList(from, Math.min(from + flushBatch, userIds.size())));
+        }
+
+        if (complete) {
+            try {
+                journal.deleteThrough(segment);
+            } catch (IOException e) {
+                log.warn("Unable to delete flushed cart journal segments", e);
+            }
+        }
+
+        evict();
+    }
+
+    private boolean flush(List<Integer> userIds) {
+        List<Session> locked = new ArrayList<>();
+        boolean complete = true;
+
+        try {
+            for (Integer userId : userIds) {
+                Session session = sessions.get(userId);
+
+                if (session == null) {
+                    continue;
+                }
+
+                if (session.lock.tryLock()) {
+                    locked.add(session);
+                } else {
+                    complete = false;
+                }
+            }
+
+            Map<Integer, List<Line>> changes = new HashMap<>();
+
+            for (Session session : locked) {
+                if (!session.changes.isEmpty()) {
+                    changes.put(session.cartId, List.copyOf(session.changes.values()));
+                }
+            }
+
+            if (!changes.isEmpty()) {
+                transactionTemplate.executeWithoutResult(status -> write(changes));
+            }
+
+            for (Session session : locked) {
+                session.changes.clear();
+                dirty.remove(session.userId);
+            }
+
+            return complete;
+        } catch (RuntimeException e) {
+            log.error("Unable to flush {} carts, keeping their changes for the next run", locked.size(), e);
+            return false;
+        } finally {
+            locked.forEach(session -> session.lock.unlock());
+        }
+    }
+
+    // lines with a zero quantity are deletions; must run inside a transaction
+    private void write(Map<Integer, ? extends Iterable<Line>> changes) {
+        List<Integer> removed = new ArrayList<>();
+        List<MapSqlParameterSource> upserts = new ArrayList<>();
+
+        changes.forEach((cartId, lines) -> {
+            for (Line line : lines) {
+                if (line.quantity() == 0) {
+                    removed.add(line.itemId());
+                } else {
+                    upserts.add(new MapSqlParameterSource()
+                                .addValue("id", line.itemId())
+                                .addValue("cartId", cartId)
+                                .addValue("productId", line.productId())
+                                .addValue("quantity", line.quantity())
+                                .addValue("unitPrice", line.price(), Types.DOUBLE));
+                }
+            }
+        });
+
+        if (!removed.isEmpty()) {
+            jdbcTemplate.update("delete from cart_items where id in (:ids)", new MapSqlParameterSource("ids", removed));
+        }
+
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_ITEM, upserts.toArray(MapSqlParameterSource[]::new));
+        }
+
+        cartRepository.recalculateTotals(changes.keySet());
+    }
+
+    // clean carts nobody used for the longest go first; a cart with pending changes stays
+    private void evict() {
+        int excess = sessions.size() - maxCarts;
+
+        if (excess <= 0) {
+            return;
+        }
+
+        List<Session> candidates = sessions.values().stream()
+                    .sorted(Comparator.comparingLong(session -> session.lastUsed))
+                    .limit(excess)
+                    .toList();
+
+        for (Session session : candidates) {
+            if (session.lock.tryLock()) {
+                try {
+                    if (session.changes.isEmpty()) {
+                        session.evicted = true;
+                        sessions.remove(session.userId, session);
+                    }
+                } finally {
+                    session.lock.unlock();
+                }
+            }
+        }
+    }
+
+    // returns the user's cart locked, loading it from the database when it is not held yet
+    private Session lock(Integer userId) {
+        while (true) {
+            Session session = sessions.get(userId);
+
+            if (session == null) {
+                Session loaded = load(userId);
+                session = sessions.putIfAbsent(userId, loaded);
+
+                if (session == null) {
+                    session = loaded;
+                }
+            }
+
+            session.lock.lock();
+
+            if (!session.evicted) {
+                session.lastUsed = System.nanoTime();
+                return session;
+            }
+
+            session.lock.unlock();
+        }
+    }
+
+    private Session load(Integer userId) {
+        return readTemplate.execute(status -> {
+            CartEntity cart = cartRepository.findByUserEntity(userRepository.getReferenceById(userId))
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart not found"));
+
+            Session session = new Session(userId, cart.getId());
+
+            for (CartItemEntity item : cartItemRepository.findAllByCartEntity(cart)) {
+                ProductEntity product = item.getProductEntity();
+                Line line = new Line(item.getId(), product.getId(), product.getName(), item.getUnitPrice(), item.getQuantity());
+
+                session.lines.put(product.getId(), line);
+                session.totalItems += line.quantity();
+                session.subtotal += line.amount();
+            }
+
+            return session;
+        });
+    }
+
+    // journal first, so a change is either durable and applied or neither
+    private void apply(Session session, List<Line> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        try {
+            journal.append(lines.stream()
+                        .map(line -> "S," + session.cartId + "," + line.itemId() + "," + line.productId() + "," + line.quantity()
+                                    + "," + Objects.toString(line.price(), ""))
+                        .toList());
+        } catch (IOException e) {
+            log.error("Unable to journal a change to cart {}", session.cartId, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Cart update failed");
+        }
+
+        for (Line line : lines) {
+            Line previous = line.quantity() == 0
+                        ? session.lines.remove(line.productId())
+                        : session.lines.put(line.productId(), line);
+
+            session.totalItems += line.quantity() - (previous == null ? 0 : previous.quantity());
+            session.subtotal += line.amount() - (previous == null ? 0 : previous.amount());
+            session.changes.put(line.productId(), line);
+        }
+
+        dirty.add(session.userId);
+    }
+
+    private void clear(Session session) {
+        try {
+            journal.append(List.of("C," + session.cartId));
+        } catch (IOException e) {
+            log.error("Unable to journal the checkout of cart {}", session.cartId, e);
+        }
+
+        session.lines.clear();
+        session.changes.clear();
+        session.totalItems = 0;
+        session.subtotal = 0;
+        dirty.remove(session.userId);
+    }
+
+    private Line line(Session session, Integer itemId) {
+        return session.lines.values().stream()
+                    .filter(line -> line.itemId().equals(itemId))
+                    .findFirst()
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Item not found"));
+    }
+
+    // a product removed and added again before a flush keeps its row, the unique (cart, product) key allows only one
+    private Integer itemId(Session session, Integer productId) {
+        Line current = session.lines.get(productId);
+
+        if (current != null) {
+            return current.itemId();
+        }
+
+        Line pending = session.changes.get(productId);
+
+        return pending != null ? pending.itemId() : nextItemId();
+    }
+
+    /*
+     * Reserves a block of ids the same way Hibernate's pooled optimizer does: nextval
+     * returns the top of a block of ID_BLOCK ids nobody else will use. The first value of
+     * a fresh sequence is skipped, since Hibernate treats that one specially.
+     */
+    private Integer nextItemId() {
+        synchronized (idLock) {
+            if (nextItemId > lastItemId) {
+                long top;
+
+                do {
+                    top = jdbcTemplate.queryForObject("select nextval('cart_items_seq')", new MapSqlParameterSource(), Long.class);
+                } while (top < ID_BLOCK);
+
+                lastItemId = Math.toIntExact(top);
+                nextItemId = lastItemId - ID_BLOCK + 1;
+            }
+
+            return nextItemId++;
+        }
+    }
+
+    private CartItemResponse response(Session session, Line line) {
+        return new CartItemResponse(line.itemId(), session.cartId, line.productName(), line.quantity());
+    }
+
+    private record Line(Integer itemId, Integer productId, String productName, Double price, int quantity) {
+
+        private double amount() {
+            return price == null ? 0 : price * quantity;
+        }
+
+    }
+
+    private static class Session {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Integer userId;
+
+        private final Integer cartId;
+
+        // by product id, in the order they were added
+        private final Map<Integer, Line> lines = new LinkedHashMap<>();
+
+        // the latest state of every line changed since the last flush, by product id
+        private final Map<Integer, Line> changes = new HashMap<>();
+
+        private int totalItems;
+
+        private double subtotal;
+
+        private boolean evicted;
+
+        private volatile long lastUsed = System.nanoTime();
+
+        private Session(Integer userId, Integer cartId) {
+            this.userId = userId;
+            this.cartId = cartId;
+        }
+
+    }
+
+}
@@ -0,0 +1,157 @@
+package rest.api.ezcommerce.cart;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/*
+ * Append-only log of cart changes, written before the change is applied in memory so
+ * that changes not yet flushed to the database survive a crash. It is split into
+ * numbered segments: a flush rotates to a new segment and deletes the older ones once
+ * everything they describe is in the database. Writers that append while another is
+ * syncing share its fsync instead of issuing their own.
+ */
+final class CartJournal {
+
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+
+    private final boolean fsync;
+
+    private final Object syncLock = new Object();
+
+    private volatile FileChannel channel;
+
+    private long segment;
+
+    private volatile long written;
+
+    private long synced;
+
+    CartJournal(Path directory, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.fsync = fsync;
+
+        Files.createDirectories(directory);
+    }
+
+    // the records of the given segment and all older ones, oldest first; a torn last line is dropped
+    List<String> read(long last) throws IOException {
+        List<String> records = new ArrayList<>();
+
+        for (Path path : segments()) {
+            if (number(path) > last) {
+                continue;
+            }
+
+            String content = Files.readString(path, StandardCharsets.UTF_8);
+            int end = content.lastIndexOf('\n');
+
+            if (end >= 0) {
+                content.substring(0, end).lines().filter(line -> !line.isEmpty()).forEach(records::add);
+            }
+        }
+
+        return records;
+    }
+
+    // starts a segment after the ones on disk, which stay until deleteThrough covers them
+    synchronized void open() throws IOException {
+        List<Path> existing = segments();
+
+        segment = existing.isEmpty() ? 0 : number(existing.get(existing.size() - 1));
+        channel = openSegment(++segment);
+    }
+
+    // the records of one call land together and are synced before it returns
+    void append(List<String> records) throws IOException {
+        long position;
+
+        synchronized (this) {
+            ByteBuffer buffer = ByteBuffer.wrap((String.join("\n", records) + "\n").getBytes(StandardCharsets.UTF_8));
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            position = ++written;
+        }
+
+        if (fsync) {
+            sync(position);
+        }
+    }
+
+    // closes the current segment and returns its number, later appends go to a new one
+    long rotate() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                FileChannel previous = channel;
+
+                channel = openSegment(segment + 1);
+                previous.force(false);
+                previous.close();
+                synced = written;
+
+                return segment++;
+            }
+        }
+    }
+
+    // removes the given segment and all older ones
+    synchronized void deleteThrough(long last) throws IOException {
+        for (Path path : segments()) {
+            if (number(path) <= last) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    private void sync(long position) throws IOException {
+        synchronized (syncLock) {
+            if (synced >= position) {
+                return;
+            }
+
+            long target = written;
+            channel.force(false);
+            synced = target;
+        }
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(directory.resolve(PREFIX + String.format("%012d", number) + SUFFIX),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(path -> path.getFileName().toString().startsWith(PREFIX))
+                        .sorted()
+                        .toList();
+        }
+    }
+
+    private static long number(Path path) {
+        String name = path.getFileName().toString();
+
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+}
@@ -0,0 +1,32 @@
+package rest.api.ezcommerce.cart;
+
+import java.util.List;
+
+import rest.api.ezcommerce.model.CartItemResponse;
+import rest.api.ezcommerce.model.CartSummaryResponse;
+import rest.api.ezcommerce.model.SyncCartItemRequest;
+
+/*
+ * Where the lines of a user's cart live, selected with cart.cache.enabled. Requests
+ * reach it already validated; it answers for a missing cart, item or product.
+ */
+public interface CartStore {
+
+    CartItemResponse add(Integer userId, Integer productId, int quantity);
+
+    CartItemResponse update(Integer userId, Integer itemId, int quantity);
+
+    void remove(Integer userId, Integer itemId);
+
+    // each line sets the quantity of its product, zero removes it, unlisted products stay
+    List<CartItemResponse> sync(Integer userId, List<SyncCartItemRequest> lines);
+
+    List<CartItemResponse> list(Integer userId);
+
+    CartSummaryResponse summary(Integer userId);
+
+    // called inside the checkout transaction before it reads cart_items
+    default void beforeCheckout(Integer userId) {
+    }
+
+}
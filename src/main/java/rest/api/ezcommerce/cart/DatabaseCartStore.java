@@ -0,0 +1,216 @@
+package rest.api.ezcommerce.cart;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import rest.api.ezcommerce.entity.CartEntity;
+import rest.api.ezcommerce.entity.CartItemEntity;
+import rest.api.ezcommerce.entity.ProductEntity;
+import rest.api.ezcommerce.entity.UserEntity;
+import rest.api.ezcommerce.mapper.ResponseMapper;
+import rest.api.ezcommerce.model.CartItemResponse;
+import rest.api.ezcommerce.model.CartSummaryResponse;
+import rest.api.ezcommerce.model.SyncCartItemRequest;
+import rest.api.ezcommerce.repository.CartItemRepository;
+import rest.api.ezcommerce.repository.CartRepository;
+import rest.api.ezcommerce.repository.ProductRepository;
+import rest.api.ezcommerce.repository.UserRepository;
+
+/*
+ * Every change goes straight to Postgres. A cart holds at most one line per product.
+ * Every change locks the cart row first, which serializes concurrent changes to the
+ * same cart, keeps the (cart, product) lookup-then-insert safe and lets the cart
+ * totals move by exact deltas. A line keeps the unit price it was last added at and
+ * every delta is computed from it, so the subtotal is always the sum of the lines.
+ */
+@Component
+@ConditionalOnProperty(name = "cart.cache.enabled", havingValue = "false", matchIfMissing = true)
+public class DatabaseCartStore implements CartStore {
+
+    private UserRepository userRepository;
+
+    private CartRepository cartRepository;
+
+    private CartItemRepository cartItemRepository;
+
+    private ProductRepository productRepository;
+
+    public DatabaseCartStore(UserRepository userRepository, CartRepository cartRepository,
+            CartItemRepository cartItemRepository, ProductRepository productRepository) {
+        this.userRepository = userRepository;
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.productRepository = productRepository;
+    }
+
+    @Override
+    @Transactional
+    public CartItemResponse add(Integer userId, Integer productId, int quantity) {
+        CartEntity cart = lockCart(userId);
+
+        ProductEntity product = productRepository.findFirstById(productId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"));
+
+        // adding a product the cart already holds grows its line instead of adding another
+        CartItemEntity item = cartItemRepository.findFirstByCartEntityAndProductEntity(cart, product)
+                    .orElseGet(() -> {
+                        CartItemEntity created = new CartItemEntity();
+                        created.setProductEntity(product);
+                        created.setCartEntity(cart);
+                        created.setQuantity(0);
+                        return created;
+                    });
+
+        // the line moves to the current price, the subtotal by what that changed the line's worth
+        double before = amount(item);
+
+        item.setQuantity(item.getQuantity() + quantity);
+        item.setUnitPrice(product.getPrice());
+        cartItemRepository.save(item);
+
+        cartRepository.adjustTotals(cart.getId(), quantity, amount(item) - before);
+
+        return ResponseMapper.ToCartItemResponseMapper(item);
+    }
+
+    @Override
+    @Transactional
+    public CartItemResponse update(Integer userId, Integer itemId, int quantity) {
+        CartEntity cart = lockCart(userId);
+
+        CartItemEntity item = cartItemRepository.findFirstByCartEntityAndId(cart, itemId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Item not found"));
+
+        int delta = quantity - item.getQuantity();
+        double before = amount(item);
+
+        item.setQuantity(quantity);
+        cartItemRepository.save(item);
+
+        cartRepository.adjustTotals(cart.getId(), delta, amount(item) - before);
+
+        return ResponseMapper.ToCartItemResponseMapper(item);
+    }
+
+    @Override
+    @Transactional
+    public void remove(Integer userId, Integer itemId) {
+        CartEntity cart = lockCart(userId);
+
+        CartItemEntity item = cartItemRepository.findFirstByCartEntityAndId(cart, itemId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Item not found"));
+
+        cartRepository.adjustTotals(cart.getId(), -item.getQuantity(), -amount(item));
+
+        try {
+            cartItemRepository.delete(item);
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Delete item failed");
+        }
+    }
+
+    @Override
+    @Transactional
+    public List<CartItemResponse> sync(Integer userId, List<SyncCartItemRequest> lines) {
+        CartEntity cart = lockCart(userId);
+
+        Set<Integer> productIds = lines.stream().map(SyncCartItemRequest::getIdProduct).collect(Collectors.toSet());
+
+        Map<Integer, ProductEntity> products = productRepository.findAllById(productIds).stream()
+                    .collect(Collectors.toMap(ProductEntity::getId, Function.identity()));
+
+        if (products.size() != productIds.size()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found");
+        }
+
+        Map<Integer, CartItemEntity> existing = cartItemRepository.findAllByCartEntityAndProductEntityIdIn(cart, productIds).stream()
+                    .collect(Collectors.toMap(item -> item.getProductEntity().getId(), Function.identity()));
+
+        List<CartItemEntity> saved = new ArrayList<>();
+        List<CartItemEntity> removed = new ArrayList<>();
+        int items = 0;
+        double amount = 0;
+
+        for (SyncCartItemRequest line : lines) {
+            ProductEntity product = products.get(line.getIdProduct());
+            CartItemEntity item = existing.get(line.getIdProduct());
+            int current = item == null ? 0 : item.getQuantity();
+            int delta = line.getQuantity() - current;
+
+            if (delta == 0) {
+                continue;
+            }
+
+            double before = item == null ? 0 : amount(item);
+
+            if (line.getQuantity() == 0) {
+                removed.add(item);
+                amount -= before;
+            } else {
+                if (item == null) {
+                    item = new CartItemEntity();
+                    item.setProductEntity(product);
+                    item.setCartEntity(cart);
+                }
+
+                item.setQuantity(line.getQuantity());
+                item.setUnitPrice(product.getPrice());
+                saved.add(item);
+                amount += amount(item) - before;
+            }
+
+            items += delta;
+        }
+
+        cartItemRepository.deleteAllInBatch(removed);
+        cartItemRepository.saveAll(saved);
+
+        if (items != 0 || amount != 0) {
+            cartRepository.adjustTotals(cart.getId(), items, amount);
+        }
+
+        return ResponseMapper.ToCartItemListResponseMapper(cartItemRepository.findAllByCartEntity(cart));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CartItemResponse> list(Integer userId) {
+        UserEntity user = userRepository.getReferenceById(userId);
+
+        CartEntity cart = cartRepository.findByUserEntity(user)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart not found"));
+
+        List<CartItemEntity> items = cartItemRepository.findAllByCartEntity(cart);
+
+        return ResponseMapper.ToCartItemListResponseMapper(items);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CartSummaryResponse summary(Integer userId) {
+        return cartRepository.findSummaryByUserId(userId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart not found"));
+    }
+
+    private CartEntity lockCart(Integer userId) {
+        UserEntity user = userRepository.getReferenceById(userId);
+
+        return cartRepository.lockByUserEntity(user)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart not found"));
+    }
+
+    private double amount(CartItemEntity item) {
+        return item.getUnitPrice() == null ? 0 : item.getUnitPrice() * item.getQuantity();
+    }
+
+}
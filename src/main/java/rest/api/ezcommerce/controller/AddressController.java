@@ -3,21 +3,25 @@ package rest.api.ezcommerce.controller;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
+import jakarta.servlet.http.HttpServletResponse;
 import rest.api.ezcommerce.model.AddressResponse;
 import rest.api.ezcommerce.model.RegisterAddressRequest;
 import rest.api.ezcommerce.model.UpdateAddressRequest;
 import rest.api.ezcommerce.model.WebResponse;
+import rest.api.ezcommerce.security.CurrentUser;
+import rest.api.ezcommerce.security.UserPrincipal;
 import rest.api.ezcommerce.service.AddressService;
 
 @RestController
@@ -36,10 +40,10 @@ public class AddressController {
         consumes = MediaType.APPLICATION_JSON_VALUE,
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<AddressResponse> register(Authentication authentication, 
+    public WebResponse<AddressResponse> register(@CurrentUser UserPrincipal principal, 
                                             @RequestBody RegisterAddressRequest request) {
 
-        AddressResponse response = addressService.register(authentication, request);
+        AddressResponse response = addressService.register(principal, request);
 
         return WebResponse.<AddressResponse>builder()
                                         .status(true)
@@ -53,10 +57,12 @@ public class AddressController {
         path = "/api/addresses/{addressId}",                
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<AddressResponse> get(Authentication authentication,
-                                            @PathVariable("addressId") String addressId) {
+    public WebResponse<AddressResponse> get(@CurrentUser UserPrincipal principal,
+                                            @PathVariable("addressId") String addressId,
+                                            HttpServletResponse httpResponse) {
 
-        AddressResponse response = addressService.get(authentication, addressId);
+        AddressResponse response = addressService.get(principal, addressId);
+        ETags.write(httpResponse, response.getVersion());
 
         return WebResponse.<AddressResponse>builder()
                                         .status(true)
@@ -70,9 +76,9 @@ public class AddressController {
         path = "/api/addresses/list",                
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<List<AddressResponse>> listByUser(Authentication authentication) {
+    public WebResponse<List<AddressResponse>> listByUser(@CurrentUser UserPrincipal principal) {
 
-        List<AddressResponse> response = addressService.list(authentication);
+        List<AddressResponse> response = addressService.list(principal);
 
         return WebResponse.<List<AddressResponse>>builder()
                                         .status(true)
@@ -103,13 +109,16 @@ public class AddressController {
         consumes = MediaType.APPLICATION_JSON_VALUE,
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<AddressResponse> update(Authentication authentication, 
+    public WebResponse<AddressResponse> update(@CurrentUser UserPrincipal principal, 
                                             @RequestBody UpdateAddressRequest request,
-                                            @PathVariable("addressId") String addressId) {
+                                            @PathVariable("addressId") String addressId,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                            HttpServletResponse httpResponse) {
 
         request.setId(addressId);
 
-        AddressResponse response = addressService.update(authentication, request, addressId);
+        AddressResponse response = addressService.update(principal, request, addressId, ETags.parseIfMatch(ifMatch));
+        ETags.write(httpResponse, response.getVersion());
 
         return WebResponse.<AddressResponse>builder()
                                         .status(true)
@@ -123,10 +132,10 @@ public class AddressController {
         path = "/api/addresses/{addressId}",
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<String> delete(Authentication authentication,
+    public WebResponse<String> delete(@CurrentUser UserPrincipal principal,
                                             @PathVariable("addressId") String addressId) {
 
-        addressService.delete(authentication, addressId);
+        addressService.delete(principal, addressId);
 
         return WebResponse.<String>builder()
                                         .status(true)
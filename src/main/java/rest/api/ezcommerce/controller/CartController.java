@@ -3,13 +3,15 @@ package rest.api.ezcommerce.controller;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import rest.api.ezcommerce.model.CartResponse;
+import rest.api.ezcommerce.model.CartSummaryResponse;
 import rest.api.ezcommerce.model.WebResponse;
+import rest.api.ezcommerce.security.CurrentUser;
+import rest.api.ezcommerce.security.UserPrincipal;
 import rest.api.ezcommerce.service.CartService;
 
 @RestController
@@ -27,9 +29,9 @@ public class CartController {
         path = "/api/carts",                
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<CartResponse> create(Authentication authentication) {
+    public WebResponse<CartResponse> create(@CurrentUser UserPrincipal principal) {
 
-        CartResponse response = cartService.create(authentication);
+        CartResponse response = cartService.create(principal);
 
         return WebResponse.<CartResponse>builder()
                                         .status(true)
@@ -43,9 +45,9 @@ public class CartController {
         path = "/api/carts",                
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<CartResponse> list(Authentication authentication) {
+    public WebResponse<CartResponse> list(@CurrentUser UserPrincipal principal) {
 
-        CartResponse response = cartService.get(authentication);
+        CartResponse response = cartService.get(principal);
 
         return WebResponse.<CartResponse>builder()
                                         .status(true)
@@ -53,4 +55,20 @@ public class CartController {
                                         .data(response)
                                         .build();      
     }
+
+    @PreAuthorize("hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
+    @GetMapping(
+        path = "/api/carts/summary",
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<CartSummaryResponse> summary(@CurrentUser UserPrincipal principal) {
+
+        CartSummaryResponse response = cartService.summary(principal);
+
+        return WebResponse.<CartSummaryResponse>builder()
+                                        .status(true)
+                                        .messages("Cart summary fetching success")
+                                        .data(response)
+                                        .build();
+    }
 }
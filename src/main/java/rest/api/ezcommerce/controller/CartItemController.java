@@ -5,17 +5,22 @@ import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
 import rest.api.ezcommerce.model.CartItemResponse;
 import rest.api.ezcommerce.model.RegisterCartItemRequest;
+import rest.api.ezcommerce.model.SyncCartItemsRequest;
+import rest.api.ezcommerce.model.UpdateCartItemRequest;
 import rest.api.ezcommerce.model.WebResponse;
+import rest.api.ezcommerce.security.CurrentUser;
+import rest.api.ezcommerce.security.UserPrincipal;
 import rest.api.ezcommerce.service.CartItemService;
 
 @RestController
@@ -34,10 +39,10 @@ public class CartItemController {
         consumes = MediaType.APPLICATION_JSON_VALUE,
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<CartItemResponse> register(Authentication authentication, 
+    public WebResponse<CartItemResponse> register(@CurrentUser UserPrincipal principal, 
                                             @RequestBody RegisterCartItemRequest request) {
 
-        CartItemResponse response = cartItemService.register(authentication, request);
+        CartItemResponse response = cartItemService.register(principal, request);
 
         return WebResponse.<CartItemResponse>builder()
                                         .status(true)
@@ -46,14 +51,32 @@ public class CartItemController {
                                         .build();      
     }
 
+    @PreAuthorize("hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
+    @PutMapping(
+        path = "/api/carts/items",
+        consumes = MediaType.APPLICATION_JSON_VALUE,
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<List<CartItemResponse>> sync(@CurrentUser UserPrincipal principal,
+                                            @RequestBody SyncCartItemsRequest request) {
+
+        List<CartItemResponse> response = cartItemService.sync(principal, request);
+
+        return WebResponse.<List<CartItemResponse>>builder()
+                                        .status(true)
+                                        .messages("Cart items sync success")
+                                        .data(response)
+                                        .build();
+    }
+
     @PreAuthorize("hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
     @GetMapping(
         path = "/api/carts/items",                
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<List<CartItemResponse>> list(Authentication authentication) {
+    public WebResponse<List<CartItemResponse>> list(@CurrentUser UserPrincipal principal) {
 
-        List<CartItemResponse> response = cartItemService.list(authentication);
+        List<CartItemResponse> response = cartItemService.list(principal);
 
         return WebResponse.<List<CartItemResponse>>builder()
                                         .status(true)
@@ -62,15 +85,34 @@ public class CartItemController {
                                         .build();      
     }
 
+    @PreAuthorize("hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
+    @PatchMapping(
+        path = "/api/carts/items/{itemId}",
+        consumes = MediaType.APPLICATION_JSON_VALUE,
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<CartItemResponse> update(@CurrentUser UserPrincipal principal,
+                                            @RequestBody UpdateCartItemRequest request,
+                                            @PathVariable("itemId") String itemId) {
+
+        CartItemResponse response = cartItemService.update(principal, request, itemId);
+
+        return WebResponse.<CartItemResponse>builder()
+                                        .status(true)
+                                        .messages("Cart item update success")
+                                        .data(response)
+                                        .build();
+    }
+
     @PreAuthorize("hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
     @DeleteMapping(
         path = "/api/carts/items/{itemId}",                
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<List<CartItemResponse>> delete(Authentication authentication,
+    public WebResponse<List<CartItemResponse>> delete(@CurrentUser UserPrincipal principal,
                                                     @PathVariable("itemId") String itemId) {
 
-        cartItemService.delete(authentication, itemId);
+        cartItemService.delete(principal, itemId);
 
         return WebResponse.<List<CartItemResponse>>builder()
                                         .status(true)
@@ -5,7 +5,6 @@ import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
@@ -14,6 +13,8 @@ import rest.api.ezcommerce.model.CategoryResponse;
 import rest.api.ezcommerce.model.RegisterCategoryRequest;
 import rest.api.ezcommerce.model.UpdateCategoryRequest;
 import rest.api.ezcommerce.model.WebResponse;
+import rest.api.ezcommerce.security.CurrentUser;
+import rest.api.ezcommerce.security.UserPrincipal;
 import rest.api.ezcommerce.service.CategoryService;
 
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -37,10 +38,10 @@ public class CategoryController {
         consumes = MediaType.APPLICATION_JSON_VALUE,
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<CategoryResponse> register(Authentication authentication, 
+    public WebResponse<CategoryResponse> register(@CurrentUser UserPrincipal principal, 
                                             @RequestBody RegisterCategoryRequest request) {
 
-        CategoryResponse response = categoryService.register(authentication, request);
+        CategoryResponse response = categoryService.register(principal, request);
 
         return WebResponse.<CategoryResponse>builder()
                                         .status(true)
@@ -54,10 +55,10 @@ public class CategoryController {
         path = "/api/categories/{categoryId}",                
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<CategoryResponse> get(Authentication authentication,
+    public WebResponse<CategoryResponse> get(@CurrentUser UserPrincipal principal,
                                              @PathVariable("categoryId") String categoryId) {
 
-        CategoryResponse response = categoryService.get(authentication, categoryId);
+        CategoryResponse response = categoryService.get(principal, categoryId);
 
         return WebResponse.<CategoryResponse>builder()
                                         .status(true)
@@ -71,9 +72,9 @@ public class CategoryController {
         path = "/api/categories",                
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<List<CategoryResponse>> list(Authentication authentication) {
+    public WebResponse<List<CategoryResponse>> list(@CurrentUser UserPrincipal principal) {
 
-        List<CategoryResponse> response = categoryService.list(authentication);
+        List<CategoryResponse> response = categoryService.list(principal);
 
         return WebResponse.<List<CategoryResponse>>builder()
                                         .status(true)
@@ -88,11 +89,11 @@ public class CategoryController {
         consumes = MediaType.APPLICATION_JSON_VALUE,
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<CategoryResponse> register(Authentication authentication, 
+    public WebResponse<CategoryResponse> register(@CurrentUser UserPrincipal principal, 
                                             @RequestBody UpdateCategoryRequest request,
                                             @PathVariable("categoryId") String categoryId) {
 
-        CategoryResponse response = categoryService.update(authentication, request, categoryId);
+        CategoryResponse response = categoryService.update(principal, request, categoryId);
 
         return WebResponse.<CategoryResponse>builder()
                                         .status(true)
@@ -106,10 +107,10 @@ public class CategoryController {
         path = "/api/categories/{categoryId}",
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<String> delete(Authentication authentication,
+    public WebResponse<String> delete(@CurrentUser UserPrincipal principal,
                                             @PathVariable("categoryId") String categoryId) {
 
-        categoryService.delete(authentication, categoryId);
+        categoryService.delete(principal, categoryId);
 
         return WebResponse.<String>builder()
                                         .status(true)
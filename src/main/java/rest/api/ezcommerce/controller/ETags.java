@@ -0,0 +1,46 @@
+package rest.api.ezcommerce.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/*
+ * Entity tags are the row's @Version in quotes. If-Match accepts the strong or weak
+ * form of a single tag; "*" or no header means the write is unconditional.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static void write(HttpServletResponse response, Long version) {
+        if (version != null) {
+            response.setHeader(HttpHeaders.ETAG, "\"" + version + "\"");
+        }
+    }
+
+    static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+
+        String tag = ifMatch.trim();
+
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
+        }
+
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
+        }
+    }
+
+}
@@ -3,20 +3,31 @@ package rest.api.ezcommerce.controller;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Window;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import jakarta.servlet.http.HttpServletResponse;
+import rest.api.ezcommerce.model.CheckoutRequest;
+import rest.api.ezcommerce.model.OrderDetailResponse;
 import rest.api.ezcommerce.model.OrderResponse;
+import rest.api.ezcommerce.model.PagingResponse;
 import rest.api.ezcommerce.model.RegisterOrderRequest;
+import rest.api.ezcommerce.model.SearchOrderRequest;
 import rest.api.ezcommerce.model.UpdateOrderRequest;
 import rest.api.ezcommerce.model.WebResponse;
+import rest.api.ezcommerce.security.CurrentUser;
+import rest.api.ezcommerce.security.UserPrincipal;
+import rest.api.ezcommerce.service.CheckoutService;
 import rest.api.ezcommerce.service.OrderService;
 
 @RestController
@@ -25,8 +36,12 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
-    public OrderController(OrderService orderService) {
+    @Autowired
+    private CheckoutService checkoutService;
+
+    public OrderController(OrderService orderService, CheckoutService checkoutService) {
         this.orderService = orderService;
+        this.checkoutService = checkoutService;
     }
 
     @PreAuthorize("hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
@@ -35,10 +50,10 @@ public class OrderController {
         consumes = MediaType.APPLICATION_JSON_VALUE,
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<OrderResponse> register(Authentication authentication, 
+    public WebResponse<OrderResponse> register(@CurrentUser UserPrincipal principal, 
                                             @RequestBody RegisterOrderRequest request) {
 
-        OrderResponse response = orderService.register(authentication, request);
+        OrderResponse response = orderService.register(principal, request);
 
         return WebResponse.<OrderResponse>builder()
                                         .status(true)
@@ -47,15 +62,35 @@ public class OrderController {
                                         .build();      
     }
 
+    @PreAuthorize("hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
+    @PostMapping(
+        path = "/api/orders/checkout",
+        consumes = MediaType.APPLICATION_JSON_VALUE,
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<OrderResponse> checkout(@CurrentUser UserPrincipal principal,
+                                            @RequestBody CheckoutRequest request) {
+
+        OrderResponse response = checkoutService.checkout(principal, request);
+
+        return WebResponse.<OrderResponse>builder()
+                                        .status(true)
+                                        .messages("Checkout success")
+                                        .data(response)
+                                        .build();
+    }
+
     @PreAuthorize("hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
     @GetMapping(
         path = "/api/orders/{orderId}",                
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<OrderResponse> get(Authentication authentication, 
-                                            @PathVariable("orderId") String orderId) {
+    public WebResponse<OrderResponse> get(@CurrentUser UserPrincipal principal, 
+                                            @PathVariable("orderId") String orderId,
+                                            HttpServletResponse httpResponse) {
 
-        OrderResponse response = orderService.get(authentication, orderId);
+        OrderResponse response = orderService.get(principal, orderId);
+        ETags.write(httpResponse, response.getVersion());
 
         return WebResponse.<OrderResponse>builder()
                                         .status(true)
@@ -66,17 +101,54 @@ public class OrderController {
     
     @PreAuthorize("hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
     @GetMapping(
-        path = "/api/orders",        
+        path = "/api/orders/{orderId}/detail",
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<List<OrderResponse>> list(Authentication authentication) {
+    public WebResponse<OrderDetailResponse> detail(@CurrentUser UserPrincipal principal,
+                                            @PathVariable("orderId") String orderId,
+                                            HttpServletResponse httpResponse) {
 
-        List<OrderResponse> response = orderService.list(authentication);
+        OrderDetailResponse response = orderService.detail(principal, orderId);
+        ETags.write(httpResponse, response.getVersion());
+
+        return WebResponse.<OrderDetailResponse>builder()
+                                        .status(true)
+                                        .messages("Order detail fetching success")
+                                        .data(response)
+                                        .build();
+    }
+
+    @PreAuthorize("hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
+    @GetMapping(
+        path = "/api/orders",        
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<List<OrderResponse>> list(@CurrentUser UserPrincipal principal,
+                                            @RequestParam(value = "status", required = false) String status,
+                                            @RequestParam(value = "from", required = false) String from,
+                                            @RequestParam(value = "to", required = false) String to,
+                                            @RequestParam(value = "sort", required = false, defaultValue = "desc") String sort,
+                                            @RequestParam(value = "size", required = false, defaultValue = "10") Integer size,
+                                            @RequestParam(value = "cursor", required = false) String cursor) {
+        SearchOrderRequest request = SearchOrderRequest.builder()
+                                        .status(status)
+                                        .from(from)
+                                        .to(to)
+                                        .sort(sort)
+                                        .size(size)
+                                        .cursor(cursor)
+                                        .build();
+
+        Window<OrderResponse> response = orderService.list(principal, request);
 
         return WebResponse.<List<OrderResponse>>builder()
                                         .status(true)
                                         .messages("Order list fetching success")
-                                        .data(response)
+                                        .data(response.getContent())
+                                        .paging(PagingResponse.builder()
+                                            .size(size)
+                                            .nextCursor(orderService.nextCursor(response))
+                                            .build())
                                         .build();      
     }
 
@@ -86,11 +158,14 @@ public class OrderController {
         consumes = MediaType.APPLICATION_JSON_VALUE,
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<OrderResponse> update(Authentication authentication, 
+    public WebResponse<OrderResponse> update(@CurrentUser UserPrincipal principal, 
                                             @RequestBody UpdateOrderRequest request,
-                                            @PathVariable("orderId") String orderId) {
+                                            @PathVariable("orderId") String orderId,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                            HttpServletResponse httpResponse) {
 
-        OrderResponse response = orderService.update(authentication, request, orderId);
+        OrderResponse response = orderService.update(principal, request, orderId, ETags.parseIfMatch(ifMatch));
+        ETags.write(httpResponse, response.getVersion());
 
         return WebResponse.<OrderResponse>builder()
                                         .status(true)
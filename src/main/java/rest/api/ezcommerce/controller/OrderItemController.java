@@ -5,7 +5,6 @@ import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -13,8 +12,11 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
 import rest.api.ezcommerce.model.OrderItemResponse;
+import rest.api.ezcommerce.model.RegisterOrderItemBatchRequest;
 import rest.api.ezcommerce.model.RegisterOrderItemRequest;
 import rest.api.ezcommerce.model.WebResponse;
+import rest.api.ezcommerce.security.CurrentUser;
+import rest.api.ezcommerce.security.UserPrincipal;
 import rest.api.ezcommerce.service.OrderItemService;
 
 @RestController
@@ -33,11 +35,11 @@ public class OrderItemController {
         consumes = MediaType.APPLICATION_JSON_VALUE,
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<OrderItemResponse> register(Authentication authentication, 
+    public WebResponse<OrderItemResponse> register(@CurrentUser UserPrincipal principal, 
                                             @RequestBody RegisterOrderItemRequest request,
                                             @PathVariable("orderId") String orderId) {
 
-        OrderItemResponse response = orderItemService.register(authentication, request, orderId);
+        OrderItemResponse response = orderItemService.register(principal, request, orderId);
 
         return WebResponse.<OrderItemResponse>builder()
                                         .status(true)
@@ -46,16 +48,35 @@ public class OrderItemController {
                                         .build();      
     }
 
+    @PreAuthorize("hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
+    @PostMapping(
+        path = "/api/orders/{orderId}/items/batch",
+        consumes = MediaType.APPLICATION_JSON_VALUE,
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<List<OrderItemResponse>> registerBatch(@CurrentUser UserPrincipal principal,
+                                            @RequestBody RegisterOrderItemBatchRequest request,
+                                            @PathVariable("orderId") String orderId) {
+
+        List<OrderItemResponse> response = orderItemService.registerBatch(principal, request, orderId);
+
+        return WebResponse.<List<OrderItemResponse>>builder()
+                                        .status(true)
+                                        .messages("Order items registration success")
+                                        .data(response)
+                                        .build();
+    }
+
     @PreAuthorize("hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
     @GetMapping(
         path = "/api/orders/{orderId}/items",      
         consumes = MediaType.APPLICATION_JSON_VALUE,
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<List<OrderItemResponse>> list(Authentication authentication,
+    public WebResponse<List<OrderItemResponse>> list(@CurrentUser UserPrincipal principal,
                                             @PathVariable("orderId") String orderId) {
 
-        List<OrderItemResponse> response = orderItemService.get(authentication, orderId);
+        List<OrderItemResponse> response = orderItemService.get(principal, orderId);
 
         return WebResponse.<List<OrderItemResponse>>builder()
                                         .status(true)
@@ -1,27 +1,42 @@
 package rest.api.ezcommerce.controller;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Window;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import rest.api.ezcommerce.model.ImportProductResponse;
 import rest.api.ezcommerce.model.PagingResponse;
 import rest.api.ezcommerce.model.ProductResponse;
 import rest.api.ezcommerce.model.RegisterProductRequest;
 import rest.api.ezcommerce.model.SearchProductRequest;
 import rest.api.ezcommerce.model.UpdateProductRequest;
 import rest.api.ezcommerce.model.WebResponse;
+import rest.api.ezcommerce.security.CurrentUser;
+import rest.api.ezcommerce.security.UserPrincipal;
+import rest.api.ezcommerce.service.ProductImportService;
 import rest.api.ezcommerce.service.ProductService;
 
 @RestController
@@ -30,8 +45,12 @@ public class ProductController {
     @Autowired
     ProductService productService;
 
-    public ProductController(ProductService productService) {
+    @Autowired
+    ProductImportService productImportService;
+
+    public ProductController(ProductService productService, ProductImportService productImportService) {
         this.productService = productService;
+        this.productImportService = productImportService;
     }
 
     @PreAuthorize("hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
@@ -40,11 +59,11 @@ public class ProductController {
         consumes = MediaType.APPLICATION_JSON_VALUE,
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<ProductResponse> register(Authentication authentication, 
+    public WebResponse<ProductResponse> register(@CurrentUser UserPrincipal principal, 
                                             @RequestBody RegisterProductRequest request,
                                             @PathVariable("categoryId") String categoryId) {
 
-        ProductResponse response = productService.register(authentication, request, categoryId);
+        ProductResponse response = productService.register(principal, request, categoryId);
 
         return WebResponse.<ProductResponse>builder()
                                         .status(true)
@@ -58,11 +77,13 @@ public class ProductController {
         path = "/api/categories/{categoryId}/products/{productId}",        
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<ProductResponse> get(Authentication authentication,                                             
+    public WebResponse<ProductResponse> get(@CurrentUser UserPrincipal principal,                                             
                                             @PathVariable("categoryId") String categoryId,
-                                            @PathVariable("productId") String productId) {
+                                            @PathVariable("productId") String productId,
+                                            HttpServletResponse httpResponse) {
 
-        ProductResponse response = productService.get(authentication, categoryId, productId);
+        ProductResponse response = productService.get(principal, categoryId, productId);
+        ETags.write(httpResponse, response.getVersion());
 
         return WebResponse.<ProductResponse>builder()
                                         .status(true)
@@ -76,9 +97,9 @@ public class ProductController {
         path = "/api/products/list",       
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<List<ProductResponse>> listByUser(Authentication authentication) {
+    public WebResponse<List<ProductResponse>> listByUser(@CurrentUser UserPrincipal principal) {
 
-        List<ProductResponse> response = productService.list(authentication);
+        List<ProductResponse> response = productService.list(principal);
 
         return WebResponse.<List<ProductResponse>>builder()
                                         .status(true)
@@ -103,18 +124,59 @@ public class ProductController {
                                         .build();      
     }
 
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping(
+        path = "/api/products/export"
+    )
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(value = "format", required = false, defaultValue = "ndjson") String format) {
+        if (!"ndjson".equals(format) && !"json".equals(format)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
+        }
+
+        boolean ndjson = "ndjson".equals(format);
+        MediaType mediaType = ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON;
+
+        // the body is written on the async request thread once the headers are out
+        return ResponseEntity.ok()
+                        .contentType(new MediaType(mediaType, StandardCharsets.UTF_8))
+                        .body(output -> productService.export(output, ndjson));
+    }
+
+    // streams the body, send Content-Type text/csv (with a header row) or application/x-ndjson
+    @PreAuthorize("hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
+    @PostMapping(
+        path = "/api/products/import",
+        consumes = { "text/csv", MediaType.APPLICATION_NDJSON_VALUE },
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<ImportProductResponse> importProducts(@CurrentUser UserPrincipal principal,
+                                                            HttpServletRequest request) throws IOException {
+        String format = MediaType.APPLICATION_NDJSON.isCompatibleWith(MediaType.parseMediaType(request.getContentType())) ? "ndjson" : "csv";
+
+        ImportProductResponse response = productImportService.importProducts(principal, request.getInputStream(), format);
+
+        return WebResponse.<ImportProductResponse>builder()
+                                        .status(true)
+                                        .messages("Product import finished")
+                                        .data(response)
+                                        .build();
+    }
+
     @PreAuthorize("hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
     @PatchMapping(
         path = "/api/categories/{categoryId}/products/{productId}",        
         consumes = MediaType.APPLICATION_JSON_VALUE,
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<ProductResponse> update(Authentication authentication, 
+    public WebResponse<ProductResponse> update(@CurrentUser UserPrincipal principal, 
                                             @RequestBody UpdateProductRequest request,
                                             @PathVariable("categoryId") String categoryId,
-                                            @PathVariable("productId") String productId) {
+                                            @PathVariable("productId") String productId,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                            HttpServletResponse httpResponse) {
 
-        ProductResponse response = productService.update(authentication, request, categoryId, productId);
+        ProductResponse response = productService.update(principal, request, categoryId, productId, ETags.parseIfMatch(ifMatch));
+        ETags.write(httpResponse, response.getVersion());
 
         return WebResponse.<ProductResponse>builder()
                                         .status(true)
@@ -128,11 +190,11 @@ public class ProductController {
         path = "/api/categories/{categoryId}/products/{productId}",
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<String> delete(Authentication authentication,
+    public WebResponse<String> delete(@CurrentUser UserPrincipal principal,
                                         @PathVariable("categoryId") String categoryId,
                                         @PathVariable("productId") String productId) {
 
-        productService.delete(authentication, categoryId, productId);
+        productService.delete(principal, categoryId, productId);
 
         return WebResponse.<String>builder()
                                         .status(true)
@@ -145,18 +207,25 @@ public class ProductController {
         path = "/api/products/search",        
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<List<ProductResponse>> search(Authentication authentication, 
+    public WebResponse<List<ProductResponse>> search(@CurrentUser UserPrincipal principal, 
                                                         @RequestParam(value = "name", required = false) String name,
                                                         @RequestParam(value = "description", required = false) String description,
                                                         @RequestParam(value = "page", required = false, defaultValue = "0") Integer page,
-                                                        @RequestParam(value = "size", required = false, defaultValue = "10") Integer size) {
+                                                        @RequestParam(value = "size", required = false, defaultValue = "10") Integer size,
+                                                        @RequestParam(value = "cursor", required = false) String cursor,
+                                                        @RequestParam(value = "count", required = false, defaultValue = "false") Boolean count) {
         SearchProductRequest request = SearchProductRequest.builder()
                                         .page(page)
                                         .size(size)
                                         .name(name)
                                         .description(description)
+                                        .cursor(cursor)
                                         .build();
 
+        if (cursor != null) {
+            return scroll(request, count);
+        }
+
         Page<ProductResponse> response = productService.search(request);
         return WebResponse.<List<ProductResponse>>builder()
                             .status(true)
@@ -171,4 +240,62 @@ public class ProductController {
                             .build();
     }
 
+    @PreAuthorize("hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
+    @GetMapping(
+        path = "/api/products/search/facets",
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<Map<String, Long>> facets(@RequestParam(value = "name", required = false) String name,
+                                                    @RequestParam(value = "description", required = false) String description) {
+        SearchProductRequest request = SearchProductRequest.builder()
+                                        .name(name)
+                                        .description(description)
+                                        .build();
+
+        Map<String, Long> response = productService.categoryFacets(request);
+
+        return WebResponse.<Map<String, Long>>builder()
+                            .status(true)
+                            .messages("Product facets fetching success")
+                            .data(response)
+                            .build();
+    }
+
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(
+        path = "/api/products/search/rebuild",
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<String> rebuild() {
+        productService.rebuildSearchIndex();
+
+        return WebResponse.<String>builder()
+                            .status(true)
+                            .messages("Product search index rebuilt")
+                            .build();
+    }
+
+    // cursor mode: no current page, total pages only when the caller asks for the count
+    private WebResponse<List<ProductResponse>> scroll(SearchProductRequest request, Boolean count) {
+        Window<ProductResponse> response = productService.scroll(request);
+
+        Integer totalPage = null;
+
+        if (count) {
+            totalPage = (int) Math.ceil((double) productService.count(request) / request.getSize());
+        }
+
+        return WebResponse.<List<ProductResponse>>builder()
+                            .status(true)
+                            .messages("Product search executed successfully")
+                            .errors(null)
+                            .data(response.getContent())
+                            .paging(PagingResponse.builder()
+                                .totalPage(totalPage)
+                                .size(request.getSize())
+                                .nextCursor(productService.nextCursor(response))
+                                .build())
+                            .build();
+    }
+
 }
@@ -3,7 +3,6 @@ package rest.api.ezcommerce.controller;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -14,6 +13,8 @@ import rest.api.ezcommerce.model.ProfileResponse;
 import rest.api.ezcommerce.model.RegisterProfileRequest;
 import rest.api.ezcommerce.model.UpdateProfileRequest;
 import rest.api.ezcommerce.model.WebResponse;
+import rest.api.ezcommerce.security.CurrentUser;
+import rest.api.ezcommerce.security.UserPrincipal;
 import rest.api.ezcommerce.service.ProfileService;
 
 @RestController
@@ -32,10 +33,10 @@ public class ProfileController {
         consumes = MediaType.APPLICATION_JSON_VALUE,
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<ProfileResponse> register(Authentication authentication, 
+    public WebResponse<ProfileResponse> register(@CurrentUser UserPrincipal principal, 
                                             @RequestBody RegisterProfileRequest request) {
 
-        ProfileResponse response = profileService.register(authentication, request);
+        ProfileResponse response = profileService.register(principal, request);
 
         return WebResponse.<ProfileResponse>builder()
                                         .status(true)
@@ -49,9 +50,9 @@ public class ProfileController {
         path = "/api/profiles",                
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<ProfileResponse> get(Authentication authentication) {
+    public WebResponse<ProfileResponse> get(@CurrentUser UserPrincipal principal) {
 
-        ProfileResponse response = profileService.get(authentication);
+        ProfileResponse response = profileService.get(principal);
 
         return WebResponse.<ProfileResponse>builder()
                                         .status(true)
@@ -66,10 +67,10 @@ public class ProfileController {
         consumes = MediaType.APPLICATION_JSON_VALUE,
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<ProfileResponse> update(Authentication authentication, 
+    public WebResponse<ProfileResponse> update(@CurrentUser UserPrincipal principal, 
                                             @RequestBody UpdateProfileRequest request) {
 
-        ProfileResponse response = profileService.update(authentication, request);
+        ProfileResponse response = profileService.update(principal, request);
 
         return WebResponse.<ProfileResponse>builder()
                                         .status(true)
@@ -0,0 +1,94 @@
+package rest.api.ezcommerce.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import rest.api.ezcommerce.model.ReserveStockRequest;
+import rest.api.ezcommerce.model.StockReservationResponse;
+import rest.api.ezcommerce.model.WebResponse;
+import rest.api.ezcommerce.security.CurrentUser;
+import rest.api.ezcommerce.security.UserPrincipal;
+import rest.api.ezcommerce.service.StockReservationService;
+
+@RestController
+public class StockReservationController {
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    public StockReservationController(StockReservationService stockReservationService) {
+        this.stockReservationService = stockReservationService;
+    }
+
+    @PreAuthorize("hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
+    @PostMapping(
+        path = "/api/products/{productId}/reservations",
+        consumes = MediaType.APPLICATION_JSON_VALUE,
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<StockReservationResponse> reserve(@CurrentUser UserPrincipal principal,
+                                            @PathVariable("productId") String productId,
+                                            @RequestBody ReserveStockRequest request) {
+
+        StockReservationResponse response = stockReservationService.reserve(principal, productId, request);
+
+        return WebResponse.<StockReservationResponse>builder()
+                                        .status(true)
+                                        .messages("Stock reservation success")
+                                        .data(response)
+                                        .build();
+    }
+
+    @PreAuthorize("hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
+    @DeleteMapping(
+        path = "/api/reservations/{reservationId}",
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<String> release(@CurrentUser UserPrincipal principal,
+                                            @PathVariable("reservationId") String reservationId) {
+
+        stockReservationService.release(principal, reservationId);
+
+        return WebResponse.<String>builder()
+                                        .status(true)
+                                        .messages("Stock reservation release success")
+                                        .build();
+    }
+
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping(
+        path = "/api/products/{productId}/stock/hot",
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<String> enableHot(@PathVariable("productId") String productId) {
+
+        stockReservationService.setHot(productId, true);
+
+        return WebResponse.<String>builder()
+                                        .status(true)
+                                        .messages("Hot stock pool enabled")
+                                        .build();
+    }
+
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping(
+        path = "/api/products/{productId}/stock/hot",
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<String> disableHot(@PathVariable("productId") String productId) {
+
+        stockReservationService.setHot(productId, false);
+
+        return WebResponse.<String>builder()
+                                        .status(true)
+                                        .messages("Hot stock pool disabled")
+                                        .build();
+    }
+}
@@ -3,7 +3,6 @@ package rest.api.ezcommerce.controller;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -15,6 +14,8 @@ import rest.api.ezcommerce.model.RegisterUserRequest;
 import rest.api.ezcommerce.model.UpdateUserRequest;
 import rest.api.ezcommerce.model.UserResponse;
 import rest.api.ezcommerce.model.WebResponse;
+import rest.api.ezcommerce.security.CurrentUser;
+import rest.api.ezcommerce.security.UserPrincipal;
 import rest.api.ezcommerce.service.UserService;
 
 @RestController
@@ -47,9 +48,9 @@ public class UserController {
         path = "/api/users",        
         produces = MediaType.APPLICATION_JSON_VALUE
     )    
-    public WebResponse<UserResponse> get(Authentication authentication) {
+    public WebResponse<UserResponse> get(@CurrentUser UserPrincipal principal) {
         log.debug("GET CURRENT USER");
-        UserResponse response = userService.get(authentication);
+        UserResponse response = userService.get(principal);
 
         return WebResponse.<UserResponse>builder()
                                             .status(true)
@@ -64,8 +65,8 @@ public class UserController {
         consumes = MediaType.APPLICATION_JSON_VALUE,
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<UserResponse> update(Authentication authentication, @RequestBody UpdateUserRequest request) {
-        UserResponse response = userService.update(authentication, request);
+    public WebResponse<UserResponse> update(@CurrentUser UserPrincipal principal, @RequestBody UpdateUserRequest request) {
+        UserResponse response = userService.update(principal, request);
 
         return WebResponse.<UserResponse>builder()
                                             .status(true)
@@ -3,6 +3,7 @@ package rest.api.ezcommerce.entity;
 import java.util.Date;
 import java.util.List;
 
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -15,7 +16,9 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -29,12 +32,16 @@ import lombok.NoArgsConstructor;
 @Table(name = "carts")
 public class CartEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "carts_seq")
+    @SequenceGenerator(name = "carts_seq", sequenceName = "carts_seq", allocationSize = 50)
     private Integer id;
 
     @Column(name = "total_item")
     private Integer totalItems;
 
+    @ColumnDefault("0")
+    private Double subtotal;
+
     @OneToOne
     @JoinColumn(name = "user_id")
     private UserEntity userEntity;
@@ -42,6 +49,10 @@ public class CartEntity {
     @OneToMany(mappedBy = "cartEntity", cascade = CascadeType.ALL)
     private List<CartItemEntity> cartItems;
 
+    @Version
+    @ColumnDefault("0")
+    private Long version;
+
     @CreationTimestamp
     @Column(updatable = false, name = "created_at")
     private Date createdAt;
@@ -2,7 +2,9 @@ package rest.api.ezcommerce.entity;
 
 import java.util.Date;
 import java.util.List;
+import java.util.UUID;
 
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -12,10 +14,14 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -26,14 +32,17 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @Builder
 @Entity
-@Table(name = "orders")
+@Table(name = "orders",
+        uniqueConstraints = @UniqueConstraint(name = "uk_orders_order_id", columnNames = "order_id"),
+        indexes = @Index(name = "idx_orders_user_created", columnList = "user_id, created_at, id"))
 public class OrderEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Integer id;
 
-    @Column(name = "order_id")
-    private String orderId;
+    @Column(name = "order_id", updatable = false)
+    private UUID orderId;
 
     @Column(name = "total_amount")
     private Double totalAmount;
@@ -53,6 +62,10 @@ public class OrderEntity {
     @JoinColumn(name = "address_id", nullable = false, referencedColumnName = "id")
     private AddressEntity addressEntity;    
 
+    @Version
+    @ColumnDefault("0")
+    private Long version;
+
     @CreationTimestamp
     @Column(updatable = false, name = "created_at")
     private Date createdAt;
@@ -2,20 +2,34 @@ package rest.api.ezcommerce.exception;
 
 import jakarta.validation.ConstraintViolationException;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.NoHandlerFoundException;
 
 import rest.api.ezcommerce.model.WebResponse;
+import rest.api.ezcommerce.repository.UserRepository;
+import rest.api.ezcommerce.security.UserPrincipal;
 
 @RestControllerAdvice
 public class CustomExcHandler {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    public CustomExcHandler(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
     @ExceptionHandler
     public ResponseEntity<WebResponse<String>> constraintViolationException(ConstraintViolationException exception) {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -63,10 +77,38 @@ public class CustomExcHandler {
 
     @ExceptionHandler
     public ResponseEntity<WebResponse<String>> dataIntegrityViolationException(DataIntegrityViolationException exception) {
+        if (isCurrentUserDeleted()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(WebResponse.<String>builder()
+                                            .status(false)
+                                            .errors("User not found")
+                                            .build());
+        }
+
         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                 .body(WebResponse.<String>builder()
                                             .status(false)
                                             .errors(exception.getMessage())
                                             .build());
     }
+
+    // still conflicting after the service retried, or a write that is never retried
+    @ExceptionHandler
+    public ResponseEntity<WebResponse<String>> optimisticLockingFailureException(ObjectOptimisticLockingFailureException exception) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(WebResponse.<String>builder()
+                                            .status(false)
+                                            .errors("Resource was modified concurrently")
+                                            .build());
+    }
+
+    // services write through a reference to the principal's user, so a token that outlived
+    // its user (deleted on another node, cached principal still valid here) fails on the foreign key
+    private boolean isCurrentUserDeleted() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        return authentication != null
+                && authentication.getPrincipal() instanceof UserPrincipal principal
+                && !userRepository.existsById(principal.getId());
+    }
 }
@@ -11,6 +11,7 @@ import rest.api.ezcommerce.entity.OrderEntity;
 import rest.api.ezcommerce.entity.OrderItemEntity;
 import rest.api.ezcommerce.entity.ProductEntity;
 import rest.api.ezcommerce.entity.ProfileEntity;
+import rest.api.ezcommerce.entity.StockReservationEntity;
 import rest.api.ezcommerce.entity.UserEntity;
 import rest.api.ezcommerce.model.AddressResponse;
 import rest.api.ezcommerce.model.CartItemResponse;
@@ -20,6 +21,7 @@ import rest.api.ezcommerce.model.OrderItemResponse;
 import rest.api.ezcommerce.model.OrderResponse;
 import rest.api.ezcommerce.model.ProductResponse;
 import rest.api.ezcommerce.model.ProfileResponse;
+import rest.api.ezcommerce.model.StockReservationResponse;
 import rest.api.ezcommerce.model.TokenResponse;
 import rest.api.ezcommerce.model.UserResponse;
 
@@ -60,6 +62,7 @@ public class ResponseMapper {
                 .city(address.getCity())
                 .country(address.getCountry())
                 .postalCode(address.getPostalCode())
+                .version(address.getVersion())
                 .build();
     }
 
@@ -72,7 +75,8 @@ public class ResponseMapper {
                                     p.getAddress(),
                                     p.getCountry(),
                                     p.getCity(),
-                                    p.getPostalCode()
+                                    p.getPostalCode(),
+                                    p.getVersion()
                                 )).collect(Collectors.toList());
     }
 
@@ -100,6 +104,7 @@ public class ResponseMapper {
                 .description(product.getDescription())
                 .price(product.getPrice())
                 .stock(product.getStock())
+                .version(product.getVersion())
                 .build();
     }
 
@@ -112,7 +117,8 @@ public class ResponseMapper {
                                     p.getName(),
                                     p.getDescription(),
                                     p.getPrice(),
-                                    p.getStock()
+                                    p.getStock(),
+                                    p.getVersion()
                                 )).collect(Collectors.toList());
     }
 
@@ -123,6 +129,8 @@ public class ResponseMapper {
                 .totalAmount(order.getTotalAmount())
                 .status(order.getStatus())
                 .remark(order.getRemark())
+                .version(order.getVersion())
+                .createdAt(order.getCreatedAt())
                 .build();
     }
 
@@ -134,7 +142,9 @@ public class ResponseMapper {
                                 p.getOrderId(),
                                 p.getTotalAmount(),
                                 p.getStatus(),
-                                p.getRemark()
+                                p.getRemark(),
+                                p.getVersion(),
+                                p.getCreatedAt()
                             )).collect(Collectors.toList());
     }
 
@@ -190,4 +200,13 @@ public class ResponseMapper {
                 .totalItems(cart.getTotalItems())
                 .build();
     }
+
+    public static StockReservationResponse ToStockReservationResponseMapper(StockReservationEntity reservation) {
+        return StockReservationResponse.builder()
+                .id(reservation.getId())
+                .productId(reservation.getProductEntity().getId())
+                .quantity(reservation.getQuantity())
+                .expiresAt(reservation.getExpiresAt())
+                .build();
+    }
 }
@@ -23,4 +23,6 @@ public class AddressResponse {
     
     private String postalCode;
 
+    private Long version;
+
 }
@@ -0,0 +1,20 @@
+package rest.api.ezcommerce.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CartSummaryResponse {
+
+    private Integer id;
+
+    private Integer totalItems;
+
+    private Double subtotal;
+
+}
@@ -0,0 +1,22 @@
+package rest.api.ezcommerce.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// one product in a cart being checked out, quantities of repeated cart items summed
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CheckoutLine {
+
+    private Integer productId;
+
+    // what the cart lines are worth, each at the unit price it was added at
+    private Double amount;
+
+    private Long quantity;
+
+}
@@ -0,0 +1,19 @@
+package rest.api.ezcommerce.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ImportProductError {
+
+    // 1-based position of the record in the upload, header excluded
+    private Long row;
+
+    private String message;
+
+}
@@ -0,0 +1,34 @@
+package rest.api.ezcommerce.model;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ImportProductRequest {
+
+    @NotNull
+    private Integer categoryId;
+
+    @NotBlank
+    private String name;
+
+    @NotBlank
+    private String description;
+
+    @NotNull
+    @PositiveOrZero
+    private Double price;
+
+    @NotNull
+    @PositiveOrZero
+    private Integer stock;
+
+}
@@ -0,0 +1,25 @@
+package rest.api.ezcommerce.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ImportProductResponse {
+
+    private Long total;
+
+    private Long imported;
+
+    private Long failed;
+
+    // capped at product.import.max-errors, failed keeps the full count
+    private List<ImportProductError> errors;
+
+}
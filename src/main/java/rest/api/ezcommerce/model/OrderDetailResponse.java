@@ -0,0 +1,33 @@
+package rest.api.ezcommerce.model;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderDetailResponse {
+
+    private Integer id;
+
+    private UUID orderId;
+
+    private Double totalAmount;
+
+    private String status;
+
+    private String remark;
+
+    private Long version;
+
+    private Date createdAt;
+
+    private List<OrderItemResponse> items;
+}
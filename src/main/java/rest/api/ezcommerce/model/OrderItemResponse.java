@@ -1,5 +1,7 @@
 package rest.api.ezcommerce.model;
 
+import java.util.UUID;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,7 +15,7 @@ public class OrderItemResponse {
 
     private Integer id;
 
-    private String orderId;
+    private UUID orderId;
 
     private Integer productId;
 
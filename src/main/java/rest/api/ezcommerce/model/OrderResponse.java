@@ -1,5 +1,8 @@
 package rest.api.ezcommerce.model;
 
+import java.util.Date;
+import java.util.UUID;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,11 +16,15 @@ public class OrderResponse {
 
     private Integer id;
 
-    private String orderId;
+    private UUID orderId;
 
     private Double totalAmount;
 
     private String status;
 
     private String remark;
+
+    private Long version;
+
+    private Date createdAt;
 }
@@ -23,4 +23,6 @@ public class ProductResponse {
 
     private Integer stock;
 
+    private Long version;
+
 }
@@ -1,5 +1,6 @@
 package rest.api.ezcommerce.model;
 
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -16,6 +17,7 @@ public class RegisterCartItemRequest {
     private Integer idProduct;
 
     @NotNull
+    @Min(1)
     private Integer quantity;
 
 }
@@ -0,0 +1,23 @@
+package rest.api.ezcommerce.model;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class RegisterOrderItemBatchRequest {
+
+    @NotEmpty
+    @Size(max = 500)
+    private List<@Valid RegisterOrderItemRequest> items;
+
+}
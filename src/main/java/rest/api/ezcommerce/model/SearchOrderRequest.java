@@ -0,0 +1,35 @@
+package rest.api.ezcommerce.model;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SearchOrderRequest {
+
+    private String status;
+
+    // inclusive ISO dates (yyyy-MM-dd) on created_at
+    private String from;
+
+    private String to;
+
+    // direction of created_at, "desc" (newest first) or "asc"
+    private String sort;
+
+    @NotNull
+    @Min(1)
+    @Max(100)
+    private Integer size;
+
+    // opaque keyset position, empty for the first page
+    private String cursor;
+
+}
@@ -22,4 +22,7 @@ public class SearchProductRequest {
     @NotNull
     private Integer size;
 
+    // opaque keyset position, empty for the first page
+    private String cursor;
+
 }
@@ -0,0 +1,22 @@
+package rest.api.ezcommerce.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StockReservationResponse {
+
+    private Integer id;
+
+    private Integer productId;
+
+    private Integer quantity;
+
+    private Long expiresAt;
+
+}
@@ -0,0 +1,24 @@
+package rest.api.ezcommerce.model;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SyncCartItemRequest {
+
+    @NotNull
+    private Integer idProduct;
+
+    // zero removes the product from the cart
+    @NotNull
+    @Min(0)
+    private Integer quantity;
+
+}
@@ -0,0 +1,20 @@
+package rest.api.ezcommerce.model;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UpdateCartItemRequest {
+
+    @NotNull
+    @Min(1)
+    private Integer quantity;
+
+}
@@ -1,9 +1,15 @@
 package rest.api.ezcommerce.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import rest.api.ezcommerce.entity.CartEntity;
 import rest.api.ezcommerce.entity.CartItemEntity;
+import rest.api.ezcommerce.entity.ProductEntity;
+import rest.api.ezcommerce.model.CheckoutLine;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,4 +20,17 @@ public interface CartItemRepository extends JpaRepository<CartItemEntity, Intege
 
     Optional<CartItemEntity> findFirstByCartEntityAndId(CartEntity cartEntity, Integer id);
 
+    Optional<CartItemEntity> findFirstByCartEntityAndProductEntity(CartEntity cartEntity, ProductEntity productEntity);
+
+    List<CartItemEntity> findAllByCartEntityAndProductEntityIdIn(CartEntity cartEntity, Collection<Integer> productIds);
+
+    // ordered by product so concurrent checkouts take product row locks in the same order
+    @Query("select new rest.api.ezcommerce.model.CheckoutLine(p.id, sum(i.quantity * coalesce(i.unitPrice, p.price)), sum(i.quantity)) " +
+            "from CartItemEntity i join i.productEntity p where i.cartEntity = :cart group by p.id order by p.id")
+    List<CheckoutLine> findCheckoutLinesByCartEntity(@Param("cart") CartEntity cart);
+
+    @Modifying
+    @Query("delete from CartItemEntity i where i.cartEntity = :cart")
+    int deleteAllByCartEntity(@Param("cart") CartEntity cart);
+
 }
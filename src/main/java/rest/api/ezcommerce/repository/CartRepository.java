@@ -1,10 +1,19 @@
 package rest.api.ezcommerce.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import jakarta.persistence.LockModeType;
 import rest.api.ezcommerce.entity.CartEntity;
 import rest.api.ezcommerce.entity.UserEntity;
+import rest.api.ezcommerce.model.CartSummaryResponse;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 
@@ -12,4 +21,42 @@ public interface CartRepository extends JpaRepository<CartEntity, Integer> {
 
     Optional<CartEntity> findByUserEntity(UserEntity userEntity);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from CartEntity c where c.userEntity = :user")
+    Optional<CartEntity> lockByUserEntity(@Param("user") UserEntity user);
+
+    @Query("select new rest.api.ezcommerce.model.CartSummaryResponse(c.id, coalesce(c.totalItems, 0), coalesce(c.subtotal, 0)) " +
+            "from CartEntity c where c.userEntity.id = :userId")
+    Optional<CartSummaryResponse> findSummaryByUserId(@Param("userId") Integer userId);
+
+    // relative to the stored values, so callers only need to know what their own change added or removed
+    @Modifying
+    @Query("update CartEntity c set c.totalItems = coalesce(c.totalItems, 0) + :items, " +
+            "c.subtotal = coalesce(c.subtotal, 0) + :amount, c.version = c.version + 1 where c.id = :id")
+    int adjustTotals(@Param("id") Integer id, @Param("items") Integer items, @Param("amount") Double amount);
+
+    @Modifying
+    @Query("update CartEntity c set c.totalItems = 0, c.subtotal = 0, c.version = c.version + 1 where c.id = :id")
+    int clearTotals(@Param("id") Integer id);
+
+    @Query("select c.id from CartEntity c where c.id > :after order by c.id")
+    List<Integer> findIdsAfter(@Param("after") Integer after, Limit limit);
+
+    @Query("select c.id from CartEntity c where c.id in :ids and (" +
+            "coalesce(c.totalItems, 0) <> (select coalesce(sum(i.quantity), 0) from CartItemEntity i where i.cartEntity = c) or " +
+            "abs(coalesce(c.subtotal, 0) - (select coalesce(sum(i.quantity * i.unitPrice), 0) " +
+            "from CartItemEntity i where i.cartEntity = c)) > 0.005) order by c.id")
+    List<Integer> findDriftedIds(@Param("ids") Collection<Integer> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from CartEntity c where c.id in :ids order by c.id")
+    List<CartEntity> lockAllByIds(@Param("ids") Collection<Integer> ids);
+
+    @Modifying
+    @Query("update CartEntity c set " +
+            "c.totalItems = (select coalesce(sum(i.quantity), 0) from CartItemEntity i where i.cartEntity = c), " +
+            "c.subtotal = (select coalesce(sum(i.quantity * i.unitPrice), 0) from CartItemEntity i where i.cartEntity = c), " +
+            "c.version = c.version + 1 where c.id in :ids")
+    int recalculateTotals(@Param("ids") Collection<Integer> ids);
+
 }
@@ -1,9 +1,12 @@
 package rest.api.ezcommerce.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import rest.api.ezcommerce.entity.CategoryEntity;
 import rest.api.ezcommerce.entity.UserEntity;
@@ -17,5 +20,8 @@ public interface CategoryRepository extends JpaRepository<CategoryEntity, Intege
     Optional<CategoryEntity> findByName(String name);    
 
     List<CategoryEntity> findAllByUserEntity(UserEntity user);
+
+    @Query("select c.id from CategoryEntity c where c.userEntity.id = :userId and c.id in :ids")
+    List<Integer> findIdsByUserIdAndIdIn(@Param("userId") Integer userId, @Param("ids") Collection<Integer> ids);
     
 }
@@ -0,0 +1,76 @@
+package rest.api.ezcommerce.repository;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * Checks at start-up that the indexes the repository queries rely on exist, and fails
+ * the start if any is missing. ddl-auto=validate compares tables and columns only, so
+ * an index dropped by hand or a migration skipped on one database would otherwise only
+ * show up as sequential scans under load.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "schema.index-check.enabled", havingValue = "true", matchIfMissing = true)
+public class IndexVerifier {
+
+    // keep in step with db/migration; unique constraints are listed by their index name
+    static final List<String> EXPECTED_INDEXES = List.of(
+            "users_token_idx",
+            "users_roles_user_id_idx",
+            "users_roles_role_id_idx",
+            "addresses_user_id_idx",
+            "categories_user_id_idx",
+            "products_user_id_name_idx",
+            "products_category_id_idx",
+            "products_search_vector_idx",
+            "cart_items_product_id_idx",
+            "uk_cart_items_cart_product",
+            "orders_address_id_idx",
+            "idx_orders_user_created",
+            "uk_orders_order_id",
+            "order_items_order_id_idx",
+            "order_items_product_id_idx",
+            "stock_reservations_product_id_idx",
+            "stock_reservations_expires_at_idx",
+            "stock_reservations_user_product_idx",
+            "revoked_tokens_expires_at_idx");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public IndexVerifier(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void verify() {
+        List<String> missing = missingIndexes();
+
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Missing database indexes " + missing
+                    + ", run the migrations in db/migration or set schema.index-check.enabled=false");
+        }
+
+        log.info("All {} expected database indexes are present", EXPECTED_INDEXES.size());
+    }
+
+    public List<String> missingIndexes() {
+        Set<String> present = new HashSet<>(jdbcTemplate.queryForList(
+                "select indexname from pg_indexes where schemaname = current_schema()", String.class));
+
+        return EXPECTED_INDEXES.stream()
+                    .filter(name -> !present.contains(name))
+                    .toList();
+    }
+
+}
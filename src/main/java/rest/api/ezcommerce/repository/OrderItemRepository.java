@@ -3,6 +3,8 @@ package rest.api.ezcommerce.repository;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import rest.api.ezcommerce.entity.OrderEntity;
 import rest.api.ezcommerce.entity.OrderItemEntity;
@@ -11,4 +13,7 @@ public interface OrderItemRepository extends JpaRepository<OrderItemEntity, Inte
 
     List<OrderItemEntity> findAllByOrderEntity(OrderEntity orderEntity);
 
+    @Query("select coalesce(sum(i.amount), 0) from OrderItemEntity i where i.orderEntity = :order")
+    Double sumAmountByOrderEntity(@Param("order") OrderEntity order);
+
 }
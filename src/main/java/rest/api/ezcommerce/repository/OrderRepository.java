@@ -2,19 +2,20 @@ package rest.api.ezcommerce.repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import rest.api.ezcommerce.entity.OrderEntity;
 import rest.api.ezcommerce.entity.UserEntity;
 
-public interface OrderRepository extends JpaRepository<OrderEntity, Integer>{
+public interface OrderRepository extends JpaRepository<OrderEntity, Integer>, OrderRepositoryCustom {
 
-    Optional<OrderEntity> findByOrderId(String orderId);
+    Optional<OrderEntity> findByOrderId(UUID orderId);
 
-    Optional<OrderEntity> findByUserEntityAndOrderId(UserEntity userEntity, String orderId);
+    Optional<OrderEntity> findByUserEntityAndOrderId(UserEntity userEntity, UUID orderId);
 
-    Optional<OrderEntity> findByUserEntityAndIdAndOrderId(UserEntity userEntity, Integer id, String orderId);
+    Optional<OrderEntity> findByUserEntityAndIdAndOrderId(UserEntity userEntity, Integer id, UUID orderId);
 
     List<OrderEntity> findAllByUserEntity(UserEntity userEntity);
 
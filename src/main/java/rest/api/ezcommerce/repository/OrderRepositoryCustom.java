@@ -0,0 +1,25 @@
+package rest.api.ezcommerce.repository;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import rest.api.ezcommerce.model.OrderDetailResponse;
+import rest.api.ezcommerce.model.OrderResponse;
+
+public interface OrderRepositoryCustom {
+
+    String CREATED_AT_KEY = "createdAt";
+    String ID_KEY = "id";
+
+    // from is inclusive and to exclusive, either may be null
+    Window<OrderResponse> scrollByUserId(Integer userId, String status, Date from, Date to,
+            Sort.Direction direction, KeysetScrollPosition position, int size);
+
+    Optional<OrderDetailResponse> findDetailByUserIdAndOrderId(Integer userId, UUID orderId);
+
+}
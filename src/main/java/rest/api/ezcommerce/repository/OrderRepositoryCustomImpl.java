@@ -0,0 +1,165 @@
+package rest.api.ezcommerce.repository;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import rest.api.ezcommerce.entity.OrderEntity;
+import rest.api.ezcommerce.model.OrderDetailResponse;
+import rest.api.ezcommerce.model.OrderItemResponse;
+import rest.api.ezcommerce.model.OrderResponse;
+
+public class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /*
+     * Reads only the orders columns, projected into OrderResponse, so neither the user
+     * nor the address is loaded. Pages seek past the (created_at, id) of the previous
+     * page's last row, which idx_orders_user_created serves in either direction. One row
+     * more than asked tells whether there is a next page without a count.
+     */
+    @Override
+    public Window<OrderResponse> scrollByUserId(Integer userId, String status, Date from, Date to,
+            Sort.Direction direction, KeysetScrollPosition position, int size) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<OrderResponse> query = builder.createQuery(OrderResponse.class);
+        Root<OrderEntity> root = query.from(OrderEntity.class);
+
+        Path<Date> createdAt = root.get("createdAt");
+        Path<Integer> id = root.get("id");
+        boolean ascending = direction.isAscending();
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(builder.equal(root.get("userEntity").get("id"), userId));
+
+        if (Objects.nonNull(status)) {
+            predicates.add(builder.equal(root.get("status"), status));
+        }
+
+        if (Objects.nonNull(from)) {
+            predicates.add(builder.greaterThanOrEqualTo(createdAt, from));
+        }
+
+        if (Objects.nonNull(to)) {
+            predicates.add(builder.lessThan(createdAt, to));
+        }
+
+        Map<String, Object> keys = position.getKeys();
+
+        if (!keys.isEmpty()) {
+            Date lastCreatedAt = (Date) keys.get(CREATED_AT_KEY);
+            Integer lastId = (Integer) keys.get(ID_KEY);
+
+            // the first half bounds the index range, the second skips rows of the same instant already seen
+            if (ascending) {
+                predicates.add(builder.greaterThanOrEqualTo(createdAt, lastCreatedAt));
+                predicates.add(builder.or(builder.greaterThan(createdAt, lastCreatedAt), builder.greaterThan(id, lastId)));
+            } else {
+                predicates.add(builder.lessThanOrEqualTo(createdAt, lastCreatedAt));
+                predicates.add(builder.or(builder.lessThan(createdAt, lastCreatedAt), builder.lessThan(id, lastId)));
+            }
+        }
+
+        query.select(builder.construct(OrderResponse.class,
+                        id,
+                        root.get("orderId"),
+                        root.get("totalAmount"),
+                        root.get("status"),
+                        root.get("remark"),
+                        root.get("version"),
+                        createdAt))
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(ascending ? builder.asc(createdAt) : builder.desc(createdAt),
+                        ascending ? builder.asc(id) : builder.desc(id));
+
+        List<OrderResponse> rows = entityManager.createQuery(query)
+                    .setMaxResults(size + 1)
+                    .getResultList();
+
+        boolean hasNext = rows.size() > size;
+        List<OrderResponse> page = hasNext ? rows.subList(0, size) : rows;
+
+        return Window.from(page,
+                    index -> ScrollPosition.forward(Map.of(
+                                CREATED_AT_KEY, page.get(index).getCreatedAt(),
+                                ID_KEY, page.get(index).getId())),
+                    hasNext);
+    }
+
+    /*
+     * Order header, items and their products in one statement: every row repeats the
+     * header columns and carries one item, an order without items yields a single row
+     * with null item columns.
+     */
+    @Override
+    public Optional<OrderDetailResponse> findDetailByUserIdAndOrderId(Integer userId, UUID orderId) {
+        List<Tuple> rows = entityManager.createQuery("""
+                    select o.id as id, o.orderId as orderId, o.totalAmount as totalAmount, o.status as status,
+                           o.remark as remark, o.version as version, o.createdAt as createdAt,
+                           i.id as itemId, p.id as productId, p.name as productName, p.price as productPrice,
+                           i.quantity as quantity, i.amount as amount
+                    from OrderEntity o
+                    left join o.orderItems i
+                    left join i.productEntity p
+                    where o.userEntity.id = :userId and o.orderId = :orderId
+                    order by i.id
+                    """, Tuple.class)
+                    .setParameter("userId", userId)
+                    .setParameter("orderId", orderId)
+                    .getResultList();
+
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Tuple header = rows.get(0);
+        List<OrderItemResponse> items = new ArrayList<>(rows.size());
+
+        for (Tuple row : rows) {
+            if (Objects.isNull(row.get("itemId"))) {
+                continue;
+            }
+
+            items.add(OrderItemResponse.builder()
+                        .id(row.get("itemId", Integer.class))
+                        .orderId(orderId)
+                        .productId(row.get("productId", Integer.class))
+                        .productName(row.get("productName", String.class))
+                        .productPrice(row.get("productPrice", Double.class))
+                        .quantity(row.get("quantity", Integer.class))
+                        .amount(row.get("amount", Double.class))
+                        .build());
+        }
+
+        return Optional.of(OrderDetailResponse.builder()
+                    .id(header.get("id", Integer.class))
+                    .orderId(header.get("orderId", UUID.class))
+                    .totalAmount(header.get("totalAmount", Double.class))
+                    .status(header.get("status", String.class))
+                    .remark(header.get("remark", String.class))
+                    .version(header.get("version", Long.class))
+                    .createdAt(header.get("createdAt", Date.class))
+                    .items(items)
+                    .build());
+    }
+
+}
@@ -1,16 +1,23 @@
 package rest.api.ezcommerce.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import rest.api.ezcommerce.entity.CategoryEntity;
 import rest.api.ezcommerce.entity.ProductEntity;
 import rest.api.ezcommerce.entity.UserEntity;
+import rest.api.ezcommerce.model.ProductResponse;
 
-public interface ProductRepository extends JpaRepository<ProductEntity, Integer>, JpaSpecificationExecutor<ProductEntity> {
+public interface ProductRepository extends JpaRepository<ProductEntity, Integer>, JpaSpecificationExecutor<ProductEntity>,
+                                            ProductRepositoryCustom {
 
     Optional<ProductEntity> findByUserEntityAndName(UserEntity user, String name);
 
@@ -24,4 +31,35 @@ public interface ProductRepository extends JpaRepository<ProductEntity, Integer>
 
     Optional<ProductEntity> findFirstById(Integer id);
 
+    @Query("select new rest.api.ezcommerce.model.ProductResponse(p.id, c.name, p.name, p.description, p.price, p.stock, p.version) " +
+            "from ProductEntity p join p.categoryEntity c where p.userEntity.id = :userId order by p.id")
+    List<ProductResponse> findAllResponsesByUserId(@Param("userId") Integer userId);
+
+    @Query("select new rest.api.ezcommerce.model.ProductResponse(p.id, c.name, p.name, p.description, p.price, p.stock, p.version) " +
+            "from ProductEntity p join p.categoryEntity c order by p.id")
+    List<ProductResponse> findAllResponses();
+
+    @Query("select new rest.api.ezcommerce.model.ProductResponse(p.id, c.name, p.name, p.description, p.price, p.stock, p.version) " +
+            "from ProductEntity p join p.categoryEntity c where p.id in :ids")
+    List<ProductResponse> findAllResponsesByIdIn(@Param("ids") Collection<Integer> ids);
+
+    // conditional decrement, matches no row rather than letting stock go negative; bulk updates
+    // skip Hibernate's versioning, so the version is bumped here to fail stale If-Match writes
+    @Modifying
+    @Query("update ProductEntity p set p.stock = p.stock - :quantity, p.version = p.version + 1 where p.id = :id and p.stock >= :quantity")
+    int decrementStock(@Param("id") Integer id, @Param("quantity") Integer quantity);
+
+    @Modifying
+    @Query("update ProductEntity p set p.stock = p.stock + :quantity, p.version = p.version + 1 where p.id = :id")
+    int incrementStock(@Param("id") Integer id, @Param("quantity") Integer quantity);
+
+    @Query("select p.stock from ProductEntity p where p.id = :id")
+    Optional<Integer> findStockById(@Param("id") Integer id);
+
+    @Query("select p.id from ProductEntity p where p.categoryEntity.id in :categoryIds")
+    List<Integer> findIdsByCategoryIdIn(@Param("categoryIds") Collection<Integer> categoryIds);
+
+    @Query("select p.name from ProductEntity p where p.userEntity.id = :userId")
+    Set<String> findNamesByUserId(@Param("userId") Integer userId);
+
 }
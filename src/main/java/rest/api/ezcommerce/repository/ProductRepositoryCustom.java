@@ -0,0 +1,11 @@
+package rest.api.ezcommerce.repository;
+
+import java.util.stream.Stream;
+
+import rest.api.ezcommerce.model.ProductResponse;
+
+public interface ProductRepositoryCustom {
+
+    Stream<ProductResponse> streamAll(int fetchSize);
+
+}
@@ -0,0 +1,31 @@
+package rest.api.ezcommerce.repository;
+
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import rest.api.ezcommerce.model.ProductResponse;
+
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /*
+     * Rows are projected straight into ProductResponse so nothing is attached to the
+     * persistence context, and the fetch size makes the driver read through a
+     * server-side cursor. Must be consumed inside a transaction and closed.
+     */
+    @Override
+    public Stream<ProductResponse> streamAll(int fetchSize) {
+        return entityManager.createQuery(
+                    "select new rest.api.ezcommerce.model.ProductResponse(p.id, c.name, p.name, p.description, p.price, p.stock, p.version) " +
+                    "from ProductEntity p join p.categoryEntity c order by p.id", ProductResponse.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+}
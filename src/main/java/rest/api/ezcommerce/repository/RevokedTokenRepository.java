@@ -0,0 +1,24 @@
+package rest.api.ezcommerce.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import rest.api.ezcommerce.entity.RevokedTokenEntity;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedTokenEntity, Integer> {
+
+    boolean existsByJti(String jti);
+
+    List<RevokedTokenEntity> findAllByExpiresAtGreaterThan(Long expiresAt);
+
+    @Modifying
+    @Query("delete from RevokedTokenEntity t where t.expiresAt <= :expiresAt")
+    int deleteAllExpired(@Param("expiresAt") Long expiresAt);
+
+}
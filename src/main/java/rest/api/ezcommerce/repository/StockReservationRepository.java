@@ -0,0 +1,40 @@
+package rest.api.ezcommerce.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.LockModeType;
+import rest.api.ezcommerce.entity.StockReservationEntity;
+import rest.api.ezcommerce.entity.UserEntity;
+
+public interface StockReservationRepository extends JpaRepository<StockReservationEntity, Integer> {
+
+    Optional<StockReservationEntity> findFirstByUserEntityAndId(UserEntity userEntity, Integer id);
+
+    // expired rows count too, their units are back only once the sweeper deleted them
+    boolean existsByProductEntityId(Integer productId);
+
+    @Query("select r from StockReservationEntity r where r.expiresAt <= :now order by r.expiresAt")
+    List<StockReservationEntity> findExpired(@Param("now") Long now, Limit limit);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from StockReservationEntity r " +
+            "where r.userEntity = :user and r.productEntity.id in :productIds and r.expiresAt > :now")
+    List<StockReservationEntity> lockActiveByUserEntityAndProductIds(@Param("user") UserEntity user,
+                                                                    @Param("productIds") Collection<Integer> productIds,
+                                                                    @Param("now") Long now);
+
+    // 1 when this caller removed the reservation, 0 when someone else got there first
+    @Modifying
+    @Query("delete from StockReservationEntity r where r.id = :id")
+    int deleteReservation(@Param("id") Integer id);
+
+}
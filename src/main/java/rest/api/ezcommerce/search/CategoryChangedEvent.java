@@ -0,0 +1,12 @@
+package rest.api.ezcommerce.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CategoryChangedEvent {
+
+    private Integer categoryId;
+
+}
@@ -0,0 +1,114 @@
+package rest.api.ezcommerce.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import rest.api.ezcommerce.entity.ProductEntity;
+import rest.api.ezcommerce.mapper.ResponseMapper;
+import rest.api.ezcommerce.model.ProductResponse;
+import rest.api.ezcommerce.model.SearchProductRequest;
+import rest.api.ezcommerce.repository.ProductRepository;
+
+/*
+ * Portable substring matching through a Specification. Works on any database but
+ * cannot use an index, so it is meant for tests and non-Postgres deployments.
+ */
+@Component
+@ConditionalOnProperty(name = "product.search.engine", havingValue = "jpa")
+public class JpaProductSearchEngine implements ProductSearchEngine {
+
+    private ProductRepository productRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public JpaProductSearchEngine(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @SuppressWarnings("null")
+    @Override
+    public Page<ProductResponse> search(SearchProductRequest request) {
+        Pageable pageable = PageRequest.of(request.getPage(), request.getSize(), Sort.by("id"));
+
+        return productRepository.findAll(specification(request), pageable)
+                                .map(product -> ResponseMapper.ToProductResponseMapper(product));
+    }
+
+    @Override
+    public Window<ProductResponse> scroll(SearchProductRequest request, KeysetScrollPosition position) {
+        Window<ProductEntity> products = productRepository.findBy(specification(request),
+                                            query -> query.sortBy(Sort.by("id"))
+                                                        .limit(request.getSize())
+                                                        .scroll(position));
+
+        return products.map(product -> ResponseMapper.ToProductResponseMapper(product));
+    }
+
+    @Override
+    public long count(SearchProductRequest request) {
+        return productRepository.count(specification(request));
+    }
+
+    @Override
+    public Map<String, Long> categoryFacets(SearchProductRequest request) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<ProductEntity> root = query.from(ProductEntity.class);
+
+        Path<String> category = root.get("categoryEntity").get("name");
+        Expression<Long> total = builder.count(root);
+
+        query.multiselect(category, total)
+                .where(specification(request).toPredicate(root, query, builder))
+                .groupBy(category)
+                .orderBy(builder.desc(total), builder.asc(category));
+
+        Map<String, Long> facets = new LinkedHashMap<>();
+
+        for (Tuple row : entityManager.createQuery(query).getResultList()) {
+            facets.put(row.get(0, String.class), row.get(1, Long.class));
+        }
+
+        return facets;
+    }
+
+    private Specification<ProductEntity> specification(SearchProductRequest request) {
+        return (root, query, builder) -> {
+            List<Predicate> predicates = new ArrayList<>();            
+
+            if (Objects.nonNull(request.getName())) {
+                predicates.add(builder.like(root.get("name"), "%"+request.getName()+"%"));
+            }
+            
+            if (Objects.nonNull(request.getDescription())) {
+                predicates.add(builder.like(root.get("description"), "%"+request.getDescription()+"%"));
+            }
+
+            return builder.and(predicates.toArray(new Predicate[]{}));
+        };
+    }
+
+}
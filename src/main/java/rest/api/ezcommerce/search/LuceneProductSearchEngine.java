@@ -0,0 +1,505 @@
+package rest.api.ezcommerce.search;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsCollectorManager;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import rest.api.ezcommerce.model.ProductResponse;
+import rest.api.ezcommerce.model.SearchProductRequest;
+import rest.api.ezcommerce.repository.ProductRepository;
+
+/*
+ * In-process Lucene index over products, served from memory-mapped files. Writes reach
+ * it through ProductChangedEvent and CategoryChangedEvent after the database transaction
+ * commits; they are queued, applied in batches on a schedule and become visible through
+ * a near-real-time reader refresh. The writer commits to disk on a slower schedule. An
+ * empty index is rebuilt from the database on start-up.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "product.search.engine", havingValue = "lucene")
+public class LuceneProductSearchEngine implements ProductSearchEngine {
+
+    private static final String ID = "id";
+    private static final String ID_TERM = "id_term";
+    private static final String NAME = "name";
+    private static final String DESCRIPTION = "description";
+    private static final String CATEGORY = "category";
+    private static final String PRICE = "price";
+    private static final String STOCK = "stock";
+    private static final String VERSION = "version";
+
+    private static final Sort RELEVANCE_SORT = new Sort(SortField.FIELD_SCORE, new SortField(ID, SortField.Type.INT));
+    private static final Sort ID_SORT = new Sort(new SortField(ID, SortField.Type.INT));
+
+    private ProductRepository productRepository;
+
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${product.search.lucene.path:data/product-index}")
+    private String indexPath;
+
+    @Value("${product.export.fetch-size:500}")
+    private Integer fetchSize;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+
+    private final FacetsConfig facetsConfig = new FacetsConfig();
+
+    private Directory directory;
+
+    private IndexWriter indexWriter;
+
+    private SearcherManager searcherManager;
+
+    private volatile FacetState facetState;
+
+    private final Set<Integer> pendingProducts = ConcurrentHashMap.newKeySet();
+
+    private final Set<Integer> pendingCategories = ConcurrentHashMap.newKeySet();
+
+    public LuceneProductSearchEngine(ProductRepository productRepository, PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        Path path = Path.of(indexPath);
+        Files.createDirectories(path);
+
+        directory = new MMapDirectory(path);
+        indexWriter = new IndexWriter(directory, new IndexWriterConfig(analyzer).setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        searcherManager = new SearcherManager(indexWriter, null);
+
+        if (indexWriter.getDocStats().numDocs == 0) {
+            rebuild();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        applyPending();
+
+        searcherManager.close();
+        indexWriter.close();
+        directory.close();
+    }
+
+    @Scheduled(fixedDelayString = "${product.search.lucene.commit-interval:5000}")
+    public synchronized void commit() throws IOException {
+        if (indexWriter.hasUncommittedChanges()) {
+            indexWriter.commit();
+        }
+    }
+
+    // only queues the id, the request thread never waits on the index
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        pendingProducts.add(event.getProductId());
+    }
+
+    // product documents carry the category name, a rename reindexes every product in it
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        pendingCategories.add(event.getCategoryId());
+    }
+
+    /*
+     * Applies the queued changes in batches, reading the rows as they are now rather than
+     * as they were when each event fired. Shares the monitor with rebuild() and commit(),
+     * so a rebuild is never overwritten by rows read before it and its half-built index
+     * is never refreshed into view.
+     */
+    @Scheduled(fixedDelayString = "${product.search.lucene.refresh-interval:250}")
+    public synchronized void applyPending() {
+        if (pendingProducts.isEmpty() && pendingCategories.isEmpty()) {
+            return;
+        }
+
+        Set<Integer> productIds = new LinkedHashSet<>();
+        List<Integer> categoryIds = drain(pendingCategories);
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int from = 0; from < categoryIds.size(); from += fetchSize) {
+                    productIds.addAll(productRepository.findIdsByCategoryIdIn(categoryIds.subList(from, Math.min(from + fetchSize, categoryIds.size()))));
+                }
+
+                productIds.addAll(drain(pendingProducts));
+
+                List<Integer> ids = new ArrayList<>(productIds);
+
+                for (int from = 0; from < ids.size(); from += fetchSize) {
+                    List<Integer> batch = ids.subList(from, Math.min(from + fetchSize, ids.size()));
+                    Set<Integer> missing = new HashSet<>(batch);
+
+                    for (ProductResponse product : productRepository.findAllResponsesByIdIn(batch)) {
+                        index(product);
+                        missing.remove(product.getId());
+                    }
+
+                    for (Integer id : missing) {
+                        delete(id);
+                    }
+                }
+            });
+
+            searcherManager.maybeRefresh();
+        } catch (IOException | RuntimeException e) {
+            log.error("Unable to apply changes of {} products to the search index, rebuild it to recover", productIds.size(), e);
+        }
+    }
+
+    @Override
+    public synchronized void rebuild() {
+        AtomicLong count = new AtomicLong();
+
+        try {
+            indexWriter.deleteAll();
+
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<ProductResponse> products = productRepository.streamAll(fetchSize)) {
+                    products.forEach(product -> {
+                        index(product);
+                        count.incrementAndGet();
+                    });
+                }
+            });
+
+            indexWriter.commit();
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to rebuild the product search index", e);
+        }
+
+        log.info("Product search index rebuilt with {} products", count.get());
+    }
+
+    @Override
+    public Page<ProductResponse> search(SearchProductRequest request) {
+        Pageable pageable = PageRequest.of(request.getPage(), request.getSize());
+        Query query = toQuery(request);
+
+        return withSearcher(searcher -> {
+            int offset = (int) pageable.getOffset();
+            TopDocs topDocs = searcher.search(query, offset + pageable.getPageSize(), RELEVANCE_SORT);
+
+            List<ProductResponse> products = toResponses(searcher, topDocs, offset, topDocs.scoreDocs.length);
+
+            return PageableExecutionUtils.getPage(products, pageable, () -> count(searcher, query));
+        });
+    }
+
+    @Override
+    public Window<ProductResponse> scroll(SearchProductRequest request, KeysetScrollPosition position) {
+        Query query = toQuery(request);
+        Object lastId = position.getKeys().get(ID);
+
+        if (lastId != null) {
+            query = new BooleanQuery.Builder()
+                        .add(query, Occur.MUST)
+                        .add(IntPoint.newRangeQuery(ID, ((Number) lastId).intValue() + 1, Integer.MAX_VALUE), Occur.FILTER)
+                        .build();
+        }
+
+        Query seekQuery = query;
+
+        return withSearcher(searcher -> {
+            TopDocs topDocs = searcher.search(seekQuery, request.getSize() + 1, ID_SORT);
+
+            boolean hasNext = topDocs.scoreDocs.length > request.getSize();
+            List<ProductResponse> products = toResponses(searcher, topDocs, 0, Math.min(topDocs.scoreDocs.length, request.getSize()));
+
+            return Window.from(products, index -> ScrollPosition.forward(Map.of(ID, products.get(index).getId())), hasNext);
+        });
+    }
+
+    @Override
+    public long count(SearchProductRequest request) {
+        Query query = toQuery(request);
+
+        return withSearcher(searcher -> count(searcher, query));
+    }
+
+    @Override
+    public Map<String, Long> categoryFacets(SearchProductRequest request) {
+        Query query = toQuery(request);
+
+        return withSearcher(searcher -> {
+            Map<String, Long> facets = new LinkedHashMap<>();
+            SortedSetDocValuesReaderState state = facetState(searcher.getIndexReader());
+
+            if (state == null) {
+                return facets;
+            }
+
+            FacetsCollector collector = searcher.search(query, new FacetsCollectorManager());
+            FacetResult result = new SortedSetDocValuesFacetCounts(state, collector).getAllChildren(CATEGORY);
+
+            if (result == null) {
+                return facets;
+            }
+
+            Stream.of(result.labelValues)
+                    .sorted(Comparator.comparing((LabelAndValue label) -> label.value.longValue()).reversed()
+                                .thenComparing(label -> label.label))
+                    .forEach(label -> facets.put(label.label, label.value.longValue()));
+
+            return facets;
+        });
+    }
+
+    private void index(ProductResponse product) {
+        try {
+            indexWriter.updateDocument(idTerm(product.getId()), toDocument(product));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void delete(Integer id) {
+        try {
+            indexWriter.deleteDocuments(idTerm(id));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<Integer> drain(Set<Integer> pending) {
+        List<Integer> ids = new ArrayList<>();
+        Iterator<Integer> iterator = pending.iterator();
+
+        while (iterator.hasNext()) {
+            ids.add(iterator.next());
+            iterator.remove();
+        }
+
+        return ids;
+    }
+
+    private Document toDocument(ProductResponse product) throws IOException {
+        Document document = new Document();
+
+        document.add(new StringField(ID_TERM, String.valueOf(product.getId()), Field.Store.NO));
+        document.add(new IntPoint(ID, product.getId()));
+        document.add(new NumericDocValuesField(ID, product.getId()));
+        document.add(new StoredField(ID, product.getId()));
+        document.add(new TextField(NAME, Objects.toString(product.getName(), ""), Field.Store.YES));
+        document.add(new TextField(DESCRIPTION, Objects.toString(product.getDescription(), ""), Field.Store.YES));
+
+        if (product.getCategory() != null) {
+            document.add(new StoredField(CATEGORY, product.getCategory()));
+            document.add(new SortedSetDocValuesFacetField(CATEGORY, product.getCategory()));
+        }
+
+        if (product.getPrice() != null) {
+            document.add(new DoublePoint(PRICE, product.getPrice()));
+            document.add(new StoredField(PRICE, product.getPrice()));
+        }
+
+        if (product.getStock() != null) {
+            document.add(new StoredField(STOCK, product.getStock()));
+        }
+
+        if (product.getVersion() != null) {
+            document.add(new StoredField(VERSION, product.getVersion()));
+        }
+
+        return facetsConfig.build(document);
+    }
+
+    private List<ProductResponse> toResponses(IndexSearcher searcher, TopDocs topDocs, int from, int to) throws IOException {
+        List<ProductResponse> products = new ArrayList<>();
+        StoredFields storedFields = searcher.storedFields();
+
+        for (int i = from; i < to; i++) {
+            ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+            Document document = storedFields.document(scoreDoc.doc);
+
+            products.add(new ProductResponse(
+                            document.getField(ID).numericValue().intValue(),
+                            document.get(CATEGORY),
+                            document.get(NAME),
+                            document.get(DESCRIPTION),
+                            document.getField(PRICE) == null ? null : document.getField(PRICE).numericValue().doubleValue(),
+                            document.getField(STOCK) == null ? null : document.getField(STOCK).numericValue().intValue(),
+                            document.getField(VERSION) == null ? null : document.getField(VERSION).numericValue().longValue()));
+        }
+
+        return products;
+    }
+
+    // every word must match as a whole term or as a prefix, whole terms rank higher
+    private Query toQuery(SearchProductRequest request) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+
+        boolean hasName = addTerms(builder, NAME, request.getName());
+        boolean hasDescription = addTerms(builder, DESCRIPTION, request.getDescription());
+
+        return hasName || hasDescription ? builder.build() : new MatchAllDocsQuery();
+    }
+
+    private boolean addTerms(BooleanQuery.Builder builder, String field, String text) {
+        if (!StringUtils.hasText(text)) {
+            return false;
+        }
+
+        boolean added = false;
+
+        try (TokenStream stream = analyzer.tokenStream(field, text)) {
+            CharTermAttribute termAttribute = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+
+            while (stream.incrementToken()) {
+                Term term = new Term(field, termAttribute.toString());
+
+                builder.add(new BooleanQuery.Builder()
+                                .add(new BoostQuery(new TermQuery(term), 2.0f), Occur.SHOULD)
+                                .add(new PrefixQuery(term), Occur.SHOULD)
+                                .build(), Occur.MUST);
+                added = true;
+            }
+
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return added;
+    }
+
+    private long count(IndexSearcher searcher, Query query) {
+        try {
+            return searcher.count(query);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // the ordinal map behind category facets is costly, build it once per reader generation
+    private SortedSetDocValuesReaderState facetState(IndexReader reader) throws IOException {
+        FacetState current = facetState;
+
+        if (current != null && current.reader() == reader) {
+            return current.state();
+        }
+
+        SortedSetDocValuesReaderState state = null;
+
+        try {
+            state = new DefaultSortedSetDocValuesReaderState(reader, facetsConfig);
+        } catch (IllegalArgumentException e) {
+            // no indexed product carries a category yet
+        }
+
+        facetState = new FacetState(reader, state);
+
+        return state;
+    }
+
+    private Term idTerm(Integer id) {
+        return new Term(ID_TERM, String.valueOf(id));
+    }
+
+    private <T> T withSearcher(SearcherCallback<T> callback) {
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+
+            try {
+                return callback.apply(searcher);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Product search index is not readable", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SearcherCallback<T> {
+
+        T apply(IndexSearcher searcher) throws IOException;
+
+    }
+
+    private record FacetState(IndexReader reader, SortedSetDocValuesReaderState state) {
+    }
+
+}
@@ -0,0 +1,168 @@
+package rest.api.ezcommerce.search;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import rest.api.ezcommerce.model.ProductResponse;
+import rest.api.ezcommerce.model.SearchProductRequest;
+
+/*
+ * Full-text search over a generated tsvector column (name weighted A, description
+ * weighted B) backed by a GIN index, both created by the V5 migration, so Postgres
+ * keeps the index current on every write. Terms are prefix-matched and restricted to
+ * the weight of the field they were given for; results are ranked with ts_rank.
+ */
+@Component
+@ConditionalOnProperty(name = "product.search.engine", havingValue = "postgres", matchIfMissing = true)
+public class PostgresProductSearchEngine implements ProductSearchEngine {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final String SELECT = "select p.id, c.name as category, p.name, p.description, p.price, p.stock, p.version " +
+                                         "from products p join categories c on c.id = p.category_id";
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    public PostgresProductSearchEngine(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Page<ProductResponse> search(SearchProductRequest request) {
+        Pageable pageable = PageRequest.of(request.getPage(), request.getSize());
+        String query = toTsQuery(request);
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                                            .addValue("query", query)
+                                            .addValue("limit", pageable.getPageSize())
+                                            .addValue("offset", pageable.getOffset());
+
+        String sql = query == null
+                        ? SELECT + " order by p.id limit :limit offset :offset"
+                        : SELECT + ", to_tsquery('simple', :query) q where p.search_vector @@ q " +
+                          "order by ts_rank(p.search_vector, q) desc, p.id limit :limit offset :offset";
+
+        List<ProductResponse> products = jdbcTemplate.query(sql, params, this::mapRow);
+
+        return PageableExecutionUtils.getPage(products, pageable, () -> count(request));
+    }
+
+    @Override
+    public Window<ProductResponse> scroll(SearchProductRequest request, KeysetScrollPosition position) {
+        String query = toTsQuery(request);
+        Object lastId = position.getKeys().get("id");
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                                            .addValue("query", query)
+                                            .addValue("lastId", lastId)
+                                            .addValue("limit", request.getSize() + 1);
+
+        StringBuilder sql = new StringBuilder(SELECT);
+        List<String> conditions = new ArrayList<>();
+
+        if (query != null) {
+            sql.append(", to_tsquery('simple', :query) q");
+            conditions.add("p.search_vector @@ q");
+        }
+
+        if (lastId != null) {
+            conditions.add("p.id > :lastId");
+        }
+
+        if (!conditions.isEmpty()) {
+            sql.append(" where ").append(String.join(" and ", conditions));
+        }
+
+        sql.append(" order by p.id limit :limit");
+
+        List<ProductResponse> products = jdbcTemplate.query(sql.toString(), params, this::mapRow);
+        boolean hasNext = products.size() > request.getSize();
+        List<ProductResponse> content = hasNext ? products.subList(0, request.getSize()) : products;
+
+        return Window.from(content, index -> ScrollPosition.forward(Map.of("id", content.get(index).getId())), hasNext);
+    }
+
+    @Override
+    public long count(SearchProductRequest request) {
+        String query = toTsQuery(request);
+
+        if (query == null) {
+            return jdbcTemplate.queryForObject("select count(*) from products", new MapSqlParameterSource(), Long.class);
+        }
+
+        return jdbcTemplate.queryForObject("select count(*) from products p, to_tsquery('simple', :query) q where p.search_vector @@ q",
+                                            new MapSqlParameterSource("query", query), Long.class);
+    }
+
+    @Override
+    public Map<String, Long> categoryFacets(SearchProductRequest request) {
+        String query = toTsQuery(request);
+
+        String sql = "select c.name as category, count(*) as total from products p join categories c on c.id = p.category_id" +
+                        (query == null ? "" : ", to_tsquery('simple', :query) q where p.search_vector @@ q") +
+                        " group by c.name order by total desc, c.name";
+
+        return jdbcTemplate.query(sql, new MapSqlParameterSource("query", query), rs -> {
+            Map<String, Long> facets = new LinkedHashMap<>();
+
+            while (rs.next()) {
+                facets.put(rs.getString("category"), rs.getLong("total"));
+            }
+
+            return facets;
+        });
+    }
+
+    // every word becomes a prefix term bound to its field weight, all terms must match
+    private String toTsQuery(SearchProductRequest request) {
+        List<String> terms = new ArrayList<>();
+
+        addTerms(terms, request.getName(), "A");
+        addTerms(terms, request.getDescription(), "B");
+
+        return terms.isEmpty() ? null : String.join(" & ", terms);
+    }
+
+    private void addTerms(List<String> terms, String text, String weight) {
+        if (!StringUtils.hasText(text)) {
+            return;
+        }
+
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                terms.add(token + ":*" + weight);
+            }
+        }
+    }
+
+    private ProductResponse mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new ProductResponse(
+                        rs.getInt("id"),
+                        rs.getString("category"),
+                        rs.getString("name"),
+                        rs.getString("description"),
+                        rs.getObject("price", Double.class),
+                        rs.getObject("stock", Integer.class),
+                        rs.getObject("version", Long.class));
+    }
+
+}
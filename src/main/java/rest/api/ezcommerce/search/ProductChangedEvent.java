@@ -0,0 +1,14 @@
+package rest.api.ezcommerce.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ProductChangedEvent {
+
+    private Integer productId;
+
+    private boolean deleted;
+
+}
@@ -0,0 +1,35 @@
+package rest.api.ezcommerce.search;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import rest.api.ezcommerce.entity.ProductEntity;
+
+/*
+ * Publishes a ProductChangedEvent for every product write, whichever code path made
+ * it. Engines that keep their own index apply the events once the transaction commits.
+ */
+@Component
+public class ProductIndexListener {
+
+    private ApplicationEventPublisher eventPublisher;
+
+    public ProductIndexListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void changed(ProductEntity product) {
+        eventPublisher.publishEvent(new ProductChangedEvent(product.getId(), false));
+    }
+
+    @PostRemove
+    public void removed(ProductEntity product) {
+        eventPublisher.publishEvent(new ProductChangedEvent(product.getId(), true));
+    }
+
+}
@@ -0,0 +1,32 @@
+package rest.api.ezcommerce.search;
+
+import java.util.Map;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Window;
+
+import rest.api.ezcommerce.model.ProductResponse;
+import rest.api.ezcommerce.model.SearchProductRequest;
+
+/*
+ * Backend for /api/products/search, selected with product.search.engine.
+ * Offset searches are ranked by relevance; keyset scrolls are ordered by id so the
+ * cursor stays stable across pages.
+ */
+public interface ProductSearchEngine {
+
+    Page<ProductResponse> search(SearchProductRequest request);
+
+    Window<ProductResponse> scroll(SearchProductRequest request, KeysetScrollPosition position);
+
+    long count(SearchProductRequest request);
+
+    // category name to number of matching products, largest first
+    Map<String, Long> categoryFacets(SearchProductRequest request);
+
+    // only engines that keep an index outside the products table have anything to rebuild
+    default void rebuild() {
+    }
+
+}
@@ -1,17 +1,21 @@
 package rest.api.ezcommerce.security;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.User;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import rest.api.ezcommerce.entity.RoleEntity;
 import rest.api.ezcommerce.entity.UserEntity;
 import rest.api.ezcommerce.repository.UserRepository;
@@ -21,15 +25,44 @@ public class CustomUserDetailService implements UserDetailsService {
 
     private UserRepository userRepository;
 
-    public CustomUserDetailService(UserRepository userRepository) {
+    private Cache<String, UserPrincipal> userCache;
+
+    public CustomUserDetailService(UserRepository userRepository, SecurityConstants securityConstants, MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
+        this.userCache = Caffeine.newBuilder()
+                            .maximumSize(securityConstants.getUserCacheMaximumSize())
+                            .expireAfterWrite(Duration.ofSeconds(securityConstants.getUserCacheTtl()))
+                            .recordStats()
+                            .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, userCache, "userDetails");
     }
 
+    // what the authentication manager checks passwords against, always the committed row: a cached
+    // principal could still carry a password changed since, on this node or any other
     @Override
-    public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+    public UserPrincipal loadUserByUsername(String email) throws UsernameNotFoundException {
+        return loadFromDatabase(email);
+    }
+
+    // request-path lookups for tokens that were already verified
+    public UserPrincipal loadCachedUser(String email) throws UsernameNotFoundException {
+        UserPrincipal cached = userCache.get(email, this::loadFromDatabase);
+
+        // hand out a copy, the authentication manager erases credentials on the returned principal
+        return new UserPrincipal(cached.getId(), cached.getUsername(), cached.getPassword(), cached.getAuthorities());
+    }
+
+    public void evict(String email) {
+        if (email != null) {
+            userCache.invalidate(email);
+        }
+    }
+
+    private UserPrincipal loadFromDatabase(String email) {
         UserEntity user = userRepository.findByEmail(email).orElseThrow(() -> new UsernameNotFoundException("Username not found"));
         
-        return new User(user.getEmail(), user.getPassword(), mapRolesToAuthorities(user.getRoles()));
+        return new UserPrincipal(user.getId(), user.getEmail(), user.getPassword(), mapRolesToAuthorities(user.getRoles()));
     }
 
     private Collection<GrantedAuthority> mapRolesToAuthorities(List<RoleEntity> roles) {
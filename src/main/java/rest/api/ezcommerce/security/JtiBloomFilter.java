@@ -0,0 +1,78 @@
+package rest.api.ezcommerce.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Bloom filter over token ids. Lookups only read the bit array and the
+ * String's cached hash, so the common "not revoked" answer allocates nothing.
+ */
+class JtiBloomFilter {
+
+    private static final int HASHES = 5;
+
+    private static final int BITS_PER_ENTRY = 10;
+
+    private static final int MIN_BITS = 1 << 10;
+
+    private static final int MAX_BITS = 1 << 30;
+
+    private final AtomicLongArray bits;
+
+    private final int mask;
+
+    JtiBloomFilter(int expectedEntries) {
+        long wanted = Math.min(Math.max((long) expectedEntries * BITS_PER_ENTRY, MIN_BITS), MAX_BITS);
+        int size = (int) (Long.highestOneBit(wanted - 1) << 1);
+
+        this.bits = new AtomicLongArray(size >>> 6);
+        this.mask = size - 1;
+    }
+
+    void add(String jti) {
+        int h1 = spread(jti.hashCode());
+        int h2 = secondaryHash(jti);
+
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (h1 + i * h2) & mask;
+            long bitMask = 1L << (bit & 63);
+            int index = bit >>> 6;
+            long current = bits.get(index);
+
+            while ((current & bitMask) == 0 && !bits.compareAndSet(index, current, current | bitMask)) {
+                current = bits.get(index);
+            }
+        }
+    }
+
+    boolean mightContain(String jti) {
+        int h1 = spread(jti.hashCode());
+        int h2 = secondaryHash(jti);
+
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (h1 + i * h2) & mask;
+
+            if ((bits.get(bit >>> 6) & (1L << (bit & 63))) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    // FNV-1a, forced odd so the probe sequence visits distinct bits
+    private static int secondaryHash(String value) {
+        int hash = 0x811c9dc5;
+
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x01000193;
+        }
+
+        return hash | 1;
+    }
+
+}
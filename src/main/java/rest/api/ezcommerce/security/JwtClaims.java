@@ -0,0 +1,29 @@
+package rest.api.ezcommerce.security;
+
+import java.util.Date;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class JwtClaims {
+
+    private String id;
+
+    private String subject;
+
+    private Integer userId;
+
+    private List<String> roles;
+
+    private Date issuedAt;
+
+    private Date expiration;
+
+}
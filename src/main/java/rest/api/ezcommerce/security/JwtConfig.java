@@ -0,0 +1,90 @@
+package rest.api.ezcommerce.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+
+import javax.crypto.SecretKey;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Configuration
+public class JwtConfig {
+
+    private static final int HS512_KEY_BYTES = 64;
+
+    @Bean
+    public JwtKeys jwtKeys(SecurityConstants securityConstants) {
+        if (StringUtils.hasText(securityConstants.getJwtPublicKey())) {
+            return loadAsymmetricKeys(securityConstants);
+        }
+
+        return loadHmacKeys(securityConstants);
+    }
+
+    // JwtParser is immutable and thread-safe, so one instance serves every request
+    @Bean
+    public JwtParser jwtParser(JwtKeys jwtKeys) {
+        return Jwts.parserBuilder()
+                    .setSigningKey(jwtKeys.getVerificationKey())
+                    .build();
+    }
+
+    private JwtKeys loadHmacKeys(SecurityConstants securityConstants) {
+        String secret = securityConstants.getJwtSecret();
+
+        if (!StringUtils.hasText(secret)) {
+            throw new IllegalStateException("jwt.secret must be set when jwt.public-key is not configured");
+        }
+
+        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+
+        if (keyBytes.length < HS512_KEY_BYTES) {
+            throw new IllegalStateException("jwt.secret must be at least " + HS512_KEY_BYTES + " bytes for HS512");
+        }
+
+        SecretKey key = Keys.hmacShaKeyFor(keyBytes);
+
+        return new JwtKeys(key, key);
+    }
+
+    private JwtKeys loadAsymmetricKeys(SecurityConstants securityConstants) {
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance(securityConstants.getJwtKeyAlgorithm());
+
+            PublicKey publicKey = keyFactory.generatePublic(new X509EncodedKeySpec(decodePem(securityConstants.getJwtPublicKey())));
+            PrivateKey privateKey = null;
+
+            if (StringUtils.hasText(securityConstants.getJwtPrivateKey())) {
+                privateKey = keyFactory.generatePrivate(new PKCS8EncodedKeySpec(decodePem(securityConstants.getJwtPrivateKey())));
+            } else {
+                log.info("jwt.private-key is not set, this node will only verify tokens");
+            }
+
+            return new JwtKeys(privateKey, publicKey);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Unable to load JWT key pair", e);
+        }
+    }
+
+    // accepts either a PEM block or the bare Base64 DER content
+    private byte[] decodePem(String pem) {
+        String content = pem.replaceAll("-----(BEGIN|END)[A-Z ]*-----", "").replaceAll("\\s", "");
+
+        return Base64.getDecoder().decode(content);
+    }
+
+}
@@ -1,9 +1,14 @@
 package rest.api.ezcommerce.security;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -16,10 +21,8 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.extern.slf4j.Slf4j;
 
 @Component
-@Slf4j
 public class JwtFilter extends OncePerRequestFilter {
 
     @Autowired
@@ -28,6 +31,12 @@ public class JwtFilter extends OncePerRequestFilter {
     @Autowired
     private CustomUserDetailService userDetailService;
 
+    @Autowired
+    private SecurityConstants securityConstants;
+
+    @Autowired
+    private TokenRevocationStore revocationStore;
+
     private HandlerExceptionResolver exceptionResolver;
     
     public JwtFilter(HandlerExceptionResolver exceptionResolver) {
@@ -41,14 +50,15 @@ public class JwtFilter extends OncePerRequestFilter {
                                     FilterChain filterChain) throws ServletException, IOException {
         
         String token = jwtUtil.getJwtFromRequest(request);
-        log.info("CURRENT TOKEN {}", token);
 
         try {
-            if (StringUtils.hasText(token) && jwtUtil.validateToken(token) && (!jwtUtil.isTokenExpired(token))) {
-                String email = jwtUtil.getEmailFromJwt(token);
-    
-                UserDetails userDetails = userDetailService.loadUserByUsername(email);
-    
+            UserDetails userDetails = null;
+
+            if (StringUtils.hasText(token)) {
+                userDetails = resolveUserDetails(token, jwtUtil.parseToken(token));
+            }
+
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authenticationToken);                                
@@ -61,4 +71,30 @@ public class JwtFilter extends OncePerRequestFilter {
         }              
     }
 
+    private UserDetails resolveUserDetails(String token, JwtClaims claims) {
+        if (revocationStore.isRevoked(claims.getId())) {
+            throw new AuthenticationCredentialsNotFoundException("JWT was revoked");
+        }
+
+        // tokens issued before the uid claim existed still go through the user lookup
+        if (securityConstants.getJwtStateless() && claims.getUserId() != null) {
+            // the user must still exist, the principal cache answers that without a query until the entry expires
+            if (!claims.getUserId().equals(userDetailService.loadCachedUser(claims.getSubject()).getId())) {
+                throw new AuthenticationCredentialsNotFoundException("JWT user no longer exists");
+            }
+
+            return new UserPrincipal(claims.getUserId(), claims.getSubject(), "", mapRolesToAuthorities(claims));
+        }
+
+        if (jwtUtil.isTokenExpired(token)) {
+            return null;
+        }
+
+        return userDetailService.loadCachedUser(claims.getSubject());
+    }
+
+    private Collection<GrantedAuthority> mapRolesToAuthorities(JwtClaims claims) {
+        return claims.getRoles().stream().map(role -> new SimpleGrantedAuthority(role)).collect(Collectors.toList());
+    }
+
 }
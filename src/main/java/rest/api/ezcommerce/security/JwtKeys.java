@@ -0,0 +1,21 @@
+package rest.api.ezcommerce.security;
+
+import java.security.Key;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class JwtKeys {
+
+    // null when the node only verifies tokens issued elsewhere
+    private Key signingKey;
+
+    private Key verificationKey;
+
+    public boolean canSign() {
+        return signingKey != null;
+    }
+
+}
@@ -1,20 +1,23 @@
 package rest.api.ezcommerce.security;
 
-import java.security.Key;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.server.ResponseStatusException;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
 import jakarta.servlet.http.HttpServletRequest;
 import rest.api.ezcommerce.entity.UserEntity;
 import rest.api.ezcommerce.repository.UserRepository;
@@ -22,7 +25,9 @@ import rest.api.ezcommerce.repository.UserRepository;
 @Component
 public class JwtUtil {
 
-    private static final Key key = Keys.secretKeyFor(SignatureAlgorithm.HS512);
+    private static final String ROLES_CLAIM = "roles";
+
+    private static final String USER_ID_CLAIM = "uid";
 
     @Autowired
     private UserRepository userRepository;
@@ -30,42 +35,64 @@ public class JwtUtil {
     @Autowired
     private SecurityConstants securityConstants;
 
+    @Autowired
+    private JwtKeys jwtKeys;
+
+    @Autowired
+    private JwtParser jwtParser;
+
     public String generateToken(Authentication authentication) {
+        if (!jwtKeys.canSign()) {
+            throw new IllegalStateException("JWT signing key is not configured on this node");
+        }
+
         String email = authentication.getName();
         Date currDate = new Date();
         Date expDate = new Date(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        List<String> roles = authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toList());
+
+        Integer userId = authentication.getPrincipal() instanceof UserPrincipal principal ? principal.getId() : null;
 
         String token = Jwts.builder()
+                        .setId(UUID.randomUUID().toString())
                         .setSubject(email)
+                        .claim(USER_ID_CLAIM, userId)
+                        .claim(ROLES_CLAIM, roles)
                         .setIssuedAt(currDate)
                         .setExpiration(expDate)
-                        .signWith(key, SignatureAlgorithm.HS512)
+                        .signWith(jwtKeys.getSigningKey())
                         .compact();
 
         return token;
     }
 
-    public String getEmailFromJwt(String token) {
-        Claims claims = Jwts.parserBuilder()
-                        .setSigningKey(key)
-                        .build()
-                        .parseClaimsJws(token)
-                        .getBody();
-
-        return claims.getSubject();
-    }
+    public JwtClaims parseToken(String token) {
+        Claims claims;
 
-    public Boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token);
-
-                return true;
+            claims = jwtParser.parseClaimsJws(token).getBody();
         } catch (Exception e) {
             throw new AuthenticationCredentialsNotFoundException("JWT was expired or incorrect", e.fillInStackTrace());
         }
+
+        return JwtClaims.builder()
+                        .id(claims.getId())
+                        .subject(claims.getSubject())
+                        .userId(claims.get(USER_ID_CLAIM, Integer.class))
+                        .roles(getRolesFromClaims(claims))
+                        .issuedAt(claims.getIssuedAt())
+                        .expiration(claims.getExpiration())
+                        .build();
+    }
+
+    public String getEmailFromJwt(String token) {
+        return parseToken(token).getSubject();
+    }
+
+    public Boolean validateToken(String token) {
+        parseToken(token);
+
+        return true;
     }
 
     public String getJwtFromRequest(HttpServletRequest request) {
@@ -90,4 +117,14 @@ public class JwtUtil {
         return false;
     }
 
+    private List<String> getRolesFromClaims(Claims claims) {
+        Object roles = claims.get(ROLES_CLAIM);
+
+        if (!(roles instanceof List<?> list)) {
+            return Collections.emptyList();
+        }
+
+        return list.stream().map(String::valueOf).collect(Collectors.toList());
+    }
+
 }
\ No newline at end of file
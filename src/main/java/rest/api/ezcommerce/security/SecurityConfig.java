@@ -1,5 +1,7 @@
 package rest.api.ezcommerce.security;
 
+import jakarta.servlet.DispatcherType;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
@@ -31,6 +33,8 @@ public class SecurityConfig {
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http.csrf(csrf -> csrf.disable())
             .authorizeHttpRequests(requests -> requests
+                    // streamed bodies finish on an ASYNC dispatch of a request that was already authorized
+                    .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                     .requestMatchers(HttpMethod.POST, "/api/auth/**").permitAll()
                     //.requestMatchers("/api/users/**").permitAll()
                     .requestMatchers(HttpMethod.POST, "/api/users/**").permitAll()
@@ -9,9 +9,30 @@ public class SecurityConstants {
     @Value("${jwt.expiration}")
     private Integer jwtExpiration;
 
-    @Value("${jwt.secret}")
+    @Value("${jwt.secret:}")
     private String jwtSecret;
 
+    @Value("${jwt.public-key:}")
+    private String jwtPublicKey;
+
+    @Value("${jwt.private-key:}")
+    private String jwtPrivateKey;
+
+    @Value("${jwt.key-algorithm:RSA}")
+    private String jwtKeyAlgorithm;
+
+    @Value("${jwt.stateless:false}")
+    private Boolean jwtStateless;
+
+    @Value("${jwt.revocation.expected-tokens:100000}")
+    private Integer jwtRevocationExpectedTokens;
+
+    @Value("${security.user-cache.maximum-size:10000}")
+    private Long userCacheMaximumSize;
+
+    @Value("${security.user-cache.ttl:300}")
+    private Long userCacheTtl;
+
     public Integer getJwtExpiration() {
         return jwtExpiration;
     }
@@ -20,4 +41,32 @@ public class SecurityConstants {
         return jwtSecret;
     }
 
-}
+    public String getJwtPublicKey() {
+        return jwtPublicKey;
+    }
+
+    public String getJwtPrivateKey() {
+        return jwtPrivateKey;
+    }
+
+    public String getJwtKeyAlgorithm() {
+        return jwtKeyAlgorithm;
+    }
+
+    public Boolean getJwtStateless() {
+        return jwtStateless;
+    }
+
+    public Integer getJwtRevocationExpectedTokens() {
+        return jwtRevocationExpectedTokens;
+    }
+
+    public Long getUserCacheMaximumSize() {
+        return userCacheMaximumSize;
+    }
+
+    public Long getUserCacheTtl() {
+        return userCacheTtl;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,87 @@
+package rest.api.ezcommerce.security;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import lombok.extern.slf4j.Slf4j;
+import rest.api.ezcommerce.entity.RevokedTokenEntity;
+import rest.api.ezcommerce.repository.RevokedTokenRepository;
+
+@Slf4j
+@Component
+public class TokenRevocationStore {
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private SecurityConstants securityConstants;
+
+    private final ConcurrentHashMap<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    private volatile JtiBloomFilter bloomFilter;
+
+    public TokenRevocationStore(RevokedTokenRepository revokedTokenRepository, SecurityConstants securityConstants) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.securityConstants = securityConstants;
+        this.bloomFilter = new JtiBloomFilter(securityConstants.getJwtRevocationExpectedTokens());
+    }
+
+    public boolean isRevoked(String jti) {
+        if (jti == null || !bloomFilter.mightContain(jti)) {
+            return false;
+        }
+
+        return revokedTokens.containsKey(jti);
+    }
+
+    @Transactional
+    public void revoke(String jti, Long expiresAt) {
+        if (jti == null || expiresAt == null || expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+
+        if (!revokedTokenRepository.existsByJti(jti)) {
+            RevokedTokenEntity revokedToken = new RevokedTokenEntity();
+            revokedToken.setJti(jti);
+            revokedToken.setExpiresAt(expiresAt);
+            revokedTokenRepository.save(revokedToken);
+        }
+
+        add(jti, expiresAt);
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval:30000}")
+    public void sync() {
+        long now = System.currentTimeMillis();
+
+        revokedTokenRepository.deleteAllExpired(now);
+        List<RevokedTokenEntity> activeTokens = revokedTokenRepository.findAllByExpiresAtGreaterThan(now);
+
+        rebuild(activeTokens, now);
+    }
+
+    private synchronized void add(String jti, Long expiresAt) {
+        revokedTokens.put(jti, expiresAt);
+        bloomFilter.add(jti);
+    }
+
+    // bloom filters cannot forget, so expired ids are dropped by building a fresh one
+    private synchronized void rebuild(List<RevokedTokenEntity> activeTokens, long now) {
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        activeTokens.forEach(token -> revokedTokens.put(token.getJti(), token.getExpiresAt()));
+
+        JtiBloomFilter rebuilt = new JtiBloomFilter(Math.max(securityConstants.getJwtRevocationExpectedTokens(), revokedTokens.size() * 2));
+        revokedTokens.keySet().forEach(rebuilt::add);
+        bloomFilter = rebuilt;
+
+        log.debug("Revocation store synced with {} active revoked tokens", revokedTokens.size());
+    }
+
+}
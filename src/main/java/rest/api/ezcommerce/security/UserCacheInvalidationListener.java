@@ -0,0 +1,48 @@
+package rest.api.ezcommerce.security;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import rest.api.ezcommerce.entity.UserEntity;
+
+/*
+ * Drops cached principals whenever a user row changes. The service is looked up
+ * lazily because Hibernate creates listeners while the repositories are still
+ * being wired. Listeners run at flush, before the change is visible to other
+ * connections, so the eviction waits for the commit: evicting earlier would let a
+ * concurrent lookup cache the old row again.
+ */
+@Component
+public class UserCacheInvalidationListener {
+
+    private ObjectProvider<CustomUserDetailService> userDetailService;
+
+    public UserCacheInvalidationListener(ObjectProvider<CustomUserDetailService> userDetailService) {
+        this.userDetailService = userDetailService;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void evict(UserEntity user) {
+        String email = user.getEmail();
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            userDetailService.ifAvailable(service -> service.evict(email));
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                userDetailService.ifAvailable(service -> service.evict(email));
+            }
+        });
+    }
+
+}
@@ -0,0 +1,25 @@
+package rest.api.ezcommerce.security;
+
+import java.util.Collection;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+/*
+ * Authenticated user as seen by controllers and services. Carries the database id
+ * so callers can work with an entity reference instead of looking the user up by email.
+ */
+public class UserPrincipal extends User {
+
+    private final Integer id;
+
+    public UserPrincipal(Integer id, String username, String password, Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, authorities);
+        this.id = id;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+}
@@ -5,7 +5,6 @@ import java.util.Objects;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
@@ -18,6 +17,7 @@ import rest.api.ezcommerce.model.RegisterAddressRequest;
 import rest.api.ezcommerce.model.UpdateAddressRequest;
 import rest.api.ezcommerce.repository.AddressRepository;
 import rest.api.ezcommerce.repository.UserRepository;
+import rest.api.ezcommerce.security.UserPrincipal;
 
 @Service
 public class AddressService {
@@ -39,15 +39,14 @@ public class AddressService {
     }
 
     @Transactional
-    public AddressResponse register(Authentication authentication, RegisterAddressRequest request) {
+    public AddressResponse register(UserPrincipal principal, RegisterAddressRequest request) {
         validationService.validate(request);
 
         if (addressRepository.findByTitle(request.getTitle()).isPresent()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Address already registered");
         }
 
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        UserEntity user = userRepository.getReferenceById(principal.getId());
 
         AddressEntity address = new AddressEntity();
         address.setTitle(request.getTitle());
@@ -62,7 +61,7 @@ public class AddressService {
     }
 
     @Transactional(readOnly = true)
-    public AddressResponse get(Authentication authentication, String strAddressId) {
+    public AddressResponse get(UserPrincipal principal, String strAddressId) {
         Integer addressId = 0;
 
         try {
@@ -71,8 +70,7 @@ public class AddressService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
         }
 
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        UserEntity user = userRepository.getReferenceById(principal.getId());
 
         AddressEntity address = addressRepository.findFirstByUserEntityAndId(user, addressId)
                                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Address not found"));
@@ -81,9 +79,8 @@ public class AddressService {
     }
 
     @Transactional(readOnly = true)
-    public List<AddressResponse> list(Authentication authentication) {
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+    public List<AddressResponse> list(UserPrincipal principal) {
+        UserEntity user = userRepository.getReferenceById(principal.getId());
 
         List<AddressEntity> addresses = addressRepository.findAllByUserEntity(user);
 
@@ -97,8 +94,10 @@ public class AddressService {
         return ResponseMapper.ToAddressResponseListMapper(addresses);
     }
 
+    // expectedVersion comes from If-Match, null updates whatever version is current
+    @RetryOnConflict
     @Transactional
-    public AddressResponse update(Authentication authentication, UpdateAddressRequest request, String strAddressId) {
+    public AddressResponse update(UserPrincipal principal, UpdateAddressRequest request, String strAddressId, Long expectedVersion) {
         Integer addressId = 0;
 
         try {
@@ -107,12 +106,15 @@ public class AddressService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
         }
 
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));        
+        UserEntity user = userRepository.getReferenceById(principal.getId());        
 
         AddressEntity address = addressRepository.findFirstByUserEntityAndId(user, addressId)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Address not found"));
 
+        if (Objects.nonNull(expectedVersion) && !expectedVersion.equals(address.getVersion())) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Address was modified");
+        }
+
         if (Objects.nonNull(request.getTitle())) {
             address.setTitle(request.getTitle());
         }
@@ -133,13 +135,13 @@ public class AddressService {
             address.setPostalCode(request.getPostalCode());
         }
 
-        addressRepository.save(address);
+        addressRepository.saveAndFlush(address);
 
         return ResponseMapper.ToAddressResponseMapper(address);
     }
 
     @Transactional
-    public void delete(Authentication authentication, String strAddressId) {
+    public void delete(UserPrincipal principal, String strAddressId) {
         Integer addressId = 0;
 
         try {
@@ -148,8 +150,7 @@ public class AddressService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
         }
 
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        UserEntity user = userRepository.getReferenceById(principal.getId());
 
         AddressEntity address = addressRepository.findFirstByUserEntityAndId(user, addressId)
                             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Address not found"));
@@ -24,8 +24,10 @@ import rest.api.ezcommerce.model.LoginUserRequest;
 import rest.api.ezcommerce.model.TokenResponse;
 import rest.api.ezcommerce.repository.UserRepository;
 import rest.api.ezcommerce.security.CustomUserDetailService;
+import rest.api.ezcommerce.security.JwtClaims;
 import rest.api.ezcommerce.security.JwtUtil;
 import rest.api.ezcommerce.security.SecurityConstants;
+import rest.api.ezcommerce.security.TokenRevocationStore;
 
 @Service
 public class AuthService {
@@ -45,6 +47,9 @@ public class AuthService {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private TokenRevocationStore revocationStore;
+
     @Autowired
     ValidationService validationService;
 
@@ -66,7 +71,7 @@ public class AuthService {
                                             
             SecurityContextHolder.getContext().setAuthentication(authentication);
 
-            UserDetails userDetails = userDetailService.loadUserByUsername(request.getEmail());
+            UserDetails userDetails = userDetailService.loadCachedUser(request.getEmail());
 
             List<String> roles = userDetails.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toList());
             
@@ -89,6 +94,16 @@ public class AuthService {
     public void logout(Authentication authentication, HttpServletRequest request, HttpServletResponse response) {
         
         if (authentication != null && authentication.isAuthenticated()) {
+            String token = jwtUtil.getJwtFromRequest(request);
+            JwtClaims claims = jwtUtil.parseToken(token);
+            revocationStore.revoke(claims.getId(), claims.getExpiration().getTime());
+
+            userRepository.findByEmail(authentication.getName()).ifPresent(user -> {
+                user.setToken(null);
+                user.setTokenExpiredAt(null);
+                userRepository.save(user);
+            });
+
             new SecurityContextLogoutHandler().logout(request, response, authentication);
         } else {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Username not found");
@@ -1,89 +1,75 @@
 package rest.api.ezcommerce.service;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
-import rest.api.ezcommerce.entity.CartEntity;
-import rest.api.ezcommerce.entity.CartItemEntity;
-import rest.api.ezcommerce.entity.ProductEntity;
-import rest.api.ezcommerce.entity.UserEntity;
-import rest.api.ezcommerce.mapper.ResponseMapper;
+import rest.api.ezcommerce.cart.CartStore;
 import rest.api.ezcommerce.model.CartItemResponse;
 import rest.api.ezcommerce.model.RegisterCartItemRequest;
-import rest.api.ezcommerce.repository.CartItemRepository;
-import rest.api.ezcommerce.repository.CartRepository;
-import rest.api.ezcommerce.repository.ProductRepository;
-import rest.api.ezcommerce.repository.UserRepository;
+import rest.api.ezcommerce.model.SyncCartItemRequest;
+import rest.api.ezcommerce.model.SyncCartItemsRequest;
+import rest.api.ezcommerce.model.UpdateCartItemRequest;
+import rest.api.ezcommerce.security.UserPrincipal;
 
 @Service
 public class CartItemService {
 
     @Autowired
-    private UserRepository userRepository;
-
-    @Autowired
-    private CartRepository cartRepository;
-
-    @Autowired
-    private CartItemRepository cartItemRepository;
-
-    @Autowired
-    private ProductRepository productRepository;
+    private CartStore cartStore;
 
     @Autowired
     private ValidationService validationService;
 
-    public CartItemService(UserRepository userRepository, CartRepository cartRepository,
-            CartItemRepository cartItemRepository, ValidationService validationService) {
-        this.userRepository = userRepository;
-        this.cartRepository = cartRepository;
-        this.cartItemRepository = cartItemRepository;
+    public CartItemService(CartStore cartStore, ValidationService validationService) {
+        this.cartStore = cartStore;
         this.validationService = validationService;
     }
 
-    @Transactional
-    public CartItemResponse register(Authentication authentication, RegisterCartItemRequest request) {
+    public CartItemResponse register(UserPrincipal principal, RegisterCartItemRequest request) {
         validationService.validate(request);
 
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        return cartStore.add(principal.getId(), request.getIdProduct(), request.getQuantity());
+    }
 
-        CartEntity cart = cartRepository.findByUserEntity(user)
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart not found"));
+    public CartItemResponse update(UserPrincipal principal, UpdateCartItemRequest request, String strItemId) {
+        Integer itemId = 0;
 
-        ProductEntity product = productRepository.findFirstById(request.getIdProduct())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found"));
+        try {
+            itemId = Integer.parseInt(strItemId);
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
+        }
 
-        CartItemEntity item = new CartItemEntity();
-        item.setProductEntity(product);
-        item.setCartEntity(cart);
-        item.setQuantity(request.getQuantity());
-        cartItemRepository.save(item);
+        validationService.validate(request);
 
-        return ResponseMapper.ToCartItemResponseMapper(item);
+        return cartStore.update(principal.getId(), itemId, request.getQuantity());
     }
 
-    @Transactional(readOnly = true)
-    public List<CartItemResponse> list(Authentication authentication) {
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+    public List<CartItemResponse> sync(UserPrincipal principal, SyncCartItemsRequest request) {
+        validationService.validate(request);
+
+        Set<Integer> productIds = new HashSet<>();
 
-        CartEntity cart = cartRepository.findByUserEntity(user)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart not found")); 
+        for (SyncCartItemRequest line : request.getItems()) {
+            if (!productIds.add(line.getIdProduct())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Duplicate product " + line.getIdProduct());
+            }
+        }
 
-        List<CartItemEntity> items = cartItemRepository.findAllByCartEntity(cart);
+        return cartStore.sync(principal.getId(), request.getItems());
+    }
 
-        return ResponseMapper.ToCartItemListResponseMapper(items);
+    public List<CartItemResponse> list(UserPrincipal principal) {
+        return cartStore.list(principal.getId());
     }
 
-    @Transactional
-    public void delete(Authentication authentication, String strItemId) {
+    public void delete(UserPrincipal principal, String strItemId) {
         Integer itemId = 0;
 
         try {
@@ -92,20 +78,7 @@ public class CartItemService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
         }
 
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
-
-        CartEntity cart = cartRepository.findByUserEntity(user)
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart not found"));
-
-        CartItemEntity item = cartItemRepository.findFirstByCartEntityAndId(cart, itemId)
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Item not found"));
-
-        try {
-            cartItemRepository.delete(item);
-        } catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Delete item failed");
-        } 
+        cartStore.remove(principal.getId(), itemId);
     }
 
 }
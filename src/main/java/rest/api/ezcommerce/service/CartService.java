@@ -1,19 +1,37 @@
 package rest.api.ezcommerce.service;
 
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.core.Authentication;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import lombok.extern.slf4j.Slf4j;
+import rest.api.ezcommerce.cart.CartStore;
 import rest.api.ezcommerce.entity.CartEntity;
 import rest.api.ezcommerce.entity.UserEntity;
 import rest.api.ezcommerce.mapper.ResponseMapper;
 import rest.api.ezcommerce.model.CartResponse;
+import rest.api.ezcommerce.model.CartSummaryResponse;
 import rest.api.ezcommerce.repository.CartRepository;
 import rest.api.ezcommerce.repository.UserRepository;
-
+import rest.api.ezcommerce.security.UserPrincipal;
+
+/*
+ * The cart row keeps its item count and subtotal up to date: every add and remove
+ * adjusts them in the same transaction, so reading them never touches cart_items.
+ * The subtotal is the sum of the lines at the unit price each was last added at, which
+ * is also what checkout charges, so a later product price change is not drift; a
+ * reconcile job only recomputes carts whose stored totals no longer match their items.
+ */
+@Slf4j
 @Service
 public class CartService {
 
@@ -26,18 +44,30 @@ public class CartService {
     @Autowired
     ValidationService validationService;
 
+    @Autowired
+    private CartStore cartStore;
+
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${cart.totals.reconcile-batch:500}")
+    private Integer reconcileBatch;
+
+    @Value("${cart.cache.enabled:false}")
+    private Boolean cartCacheEnabled;
+
     public CartService(UserRepository userRepository, CartRepository cartRepository,
-            ValidationService validationService) {
+            ValidationService validationService, CartStore cartStore, PlatformTransactionManager transactionManager) {
         this.userRepository = userRepository;
         this.cartRepository = cartRepository;
         this.validationService = validationService;
+        this.cartStore = cartStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Transactional
-    public CartResponse create(Authentication authentication) {
+    public CartResponse create(UserPrincipal principal) {
 
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        UserEntity user = userRepository.getReferenceById(principal.getId());
 
         if (cartRepository.findByUserEntity(user).isPresent()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cart already registered");
@@ -45,21 +75,71 @@ public class CartService {
 
         CartEntity cart = new CartEntity();
         cart.setUserEntity(user);
-        cart.setTotalItems(0);        
+        cart.setTotalItems(0);
+        cart.setSubtotal(0.0);
         cartRepository.save(cart);
 
         return ResponseMapper.ToCartResponseMapper(cart);
     }
 
-    @Transactional(readOnly = true)
-    public CartResponse get(Authentication authentication) {
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+    // the totals come from the cart store, which may hold changes the carts row does not have yet
+    public CartResponse get(UserPrincipal principal) {
+        CartSummaryResponse summary = cartStore.summary(principal.getId());
+
+        return CartResponse.builder()
+                    .id(summary.getId())
+                    .totalItems(summary.getTotalItems())
+                    .build();
+    }
+
+    public CartSummaryResponse summary(UserPrincipal principal) {
+        return cartStore.summary(principal.getId());
+    }
 
-        CartEntity cart = cartRepository.findByUserEntity(user)
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart not found"));
+    @Scheduled(fixedDelayString = "${cart.totals.reconcile-interval:300000}")
+    public int reconcile() {
+        // the cached store holds open carts in memory and writes their rows on flush, so a
+        // recount here would race those writes and be overwritten by the next one anyway
+        if (Boolean.TRUE.equals(cartCacheEnabled)) {
+            return 0;
+        }
+
+        int repaired = 0;
+        Integer after = 0;
+        List<Integer> ids;
+
+        do {
+            ids = cartRepository.findIdsAfter(after, Limit.of(reconcileBatch));
+
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            List<Integer> batch = ids;
+
+            Integer count = transactionTemplate.execute(status -> {
+                List<Integer> drifted = cartRepository.findDriftedIds(batch);
+
+                if (drifted.isEmpty()) {
+                    return 0;
+                }
+
+                // item changes lock the cart row before touching its items, so once the rows are
+                // locked no change is in flight and the recount sees every committed item
+                cartRepository.lockAllByIds(drifted);
+
+                return cartRepository.recalculateTotals(drifted);
+            });
+
+            repaired += count == null ? 0 : count;
+            after = ids.get(ids.size() - 1);
+        } while (ids.size() == reconcileBatch);
+
+        if (repaired > 0) {
+            log.warn("Repaired totals of {} carts that drifted from their items", repaired);
+        }
 
-        return ResponseMapper.ToCartResponseMapper(cart);                    
+        return repaired;
     }
 
 }
@@ -4,8 +4,8 @@ import java.util.List;
 import java.util.Objects;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
@@ -18,6 +18,8 @@ import rest.api.ezcommerce.model.RegisterCategoryRequest;
 import rest.api.ezcommerce.model.UpdateCategoryRequest;
 import rest.api.ezcommerce.repository.CategoryRepository;
 import rest.api.ezcommerce.repository.UserRepository;
+import rest.api.ezcommerce.search.CategoryChangedEvent;
+import rest.api.ezcommerce.security.UserPrincipal;
 
 @Service
 public class CategoryService {
@@ -31,23 +33,26 @@ public class CategoryService {
     @Autowired
     private ValidationService validationService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public CategoryService(UserRepository userRepository, CategoryRepository categoryRepository,
-            ValidationService validationService) {
+            ValidationService validationService, ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
         this.categoryRepository = categoryRepository;
         this.validationService = validationService;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
-    public CategoryResponse register(Authentication authentication, RegisterCategoryRequest request) {
+    public CategoryResponse register(UserPrincipal principal, RegisterCategoryRequest request) {
         validationService.validate(request);
 
         if (categoryRepository.findByName(request.getName()).isPresent()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Category already registered");
         }
 
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        UserEntity user = userRepository.getReferenceById(principal.getId());
 
         CategoryEntity category = new CategoryEntity();
         category.setName(request.getName());
@@ -58,7 +63,7 @@ public class CategoryService {
     }
 
     @Transactional(readOnly = true)
-    public CategoryResponse get(Authentication authentication, String strCategoryId) {
+    public CategoryResponse get(UserPrincipal principal, String strCategoryId) {
         Integer categoryId = 0;
 
         try {
@@ -67,8 +72,7 @@ public class CategoryService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
         }
 
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        UserEntity user = userRepository.getReferenceById(principal.getId());
 
         CategoryEntity category = categoryRepository.findFirstByUserEntityAndId(user, categoryId)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Category not found"));
@@ -77,9 +81,8 @@ public class CategoryService {
     }
 
     @Transactional(readOnly = true)
-    public List<CategoryResponse> list(Authentication authentication) {
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+    public List<CategoryResponse> list(UserPrincipal principal) {
+        UserEntity user = userRepository.getReferenceById(principal.getId());
 
         List<CategoryEntity> categories = categoryRepository.findAllByUserEntity(user);
 
@@ -87,7 +90,7 @@ public class CategoryService {
     }
 
     @Transactional
-    public CategoryResponse update(Authentication authentication, UpdateCategoryRequest request, String strCategoryId) {
+    public CategoryResponse update(UserPrincipal principal, UpdateCategoryRequest request, String strCategoryId) {
         Integer categoryId = 0;
 
         try {
@@ -96,14 +99,16 @@ public class CategoryService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
         }
 
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        UserEntity user = userRepository.getReferenceById(principal.getId());
 
         CategoryEntity category = categoryRepository.findFirstByUserEntityAndId(user, categoryId)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Category not found"));
 
-        if (Objects.nonNull(request.getName())) {
+        if (Objects.nonNull(request.getName()) && !request.getName().equals(category.getName())) {
             category.setName(request.getName());
+
+            // indexed products carry the category name
+            eventPublisher.publishEvent(new CategoryChangedEvent(category.getId()));
         }
 
         categoryRepository.save(category);
@@ -112,7 +117,7 @@ public class CategoryService {
     }
 
     @Transactional
-    public void delete(Authentication authentication, String strCategoryId) {
+    public void delete(UserPrincipal principal, String strCategoryId) {
         Integer categoryId = 0;
 
         try {
@@ -121,8 +126,7 @@ public class CategoryService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
         }
 
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        UserEntity user = userRepository.getReferenceById(principal.getId());
 
         CategoryEntity category = categoryRepository.findFirstByUserEntityAndId(user, categoryId)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Category not found"));
@@ -0,0 +1,159 @@
+package rest.api.ezcommerce.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import rest.api.ezcommerce.cart.CartStore;
+import rest.api.ezcommerce.entity.AddressEntity;
+import rest.api.ezcommerce.entity.CartEntity;
+import rest.api.ezcommerce.entity.OrderEntity;
+import rest.api.ezcommerce.entity.OrderItemEntity;
+import rest.api.ezcommerce.entity.UserEntity;
+import rest.api.ezcommerce.mapper.ResponseMapper;
+import rest.api.ezcommerce.model.CheckoutLine;
+import rest.api.ezcommerce.model.CheckoutRequest;
+import rest.api.ezcommerce.model.OrderResponse;
+import rest.api.ezcommerce.repository.AddressRepository;
+import rest.api.ezcommerce.repository.CartItemRepository;
+import rest.api.ezcommerce.repository.CartRepository;
+import rest.api.ezcommerce.repository.OrderItemRepository;
+import rest.api.ezcommerce.repository.OrderRepository;
+import rest.api.ezcommerce.repository.ProductRepository;
+import rest.api.ezcommerce.repository.UserRepository;
+import rest.api.ezcommerce.security.UserPrincipal;
+
+/*
+ * Turns the caller's cart into an order in one transaction. Prices and the total come
+ * from the products table, never from the client. Stock the buyer already reserved is
+ * used first and the rest is taken with conditional updates, so two checkouts cannot
+ * both sell the last unit. Any failure rolls back the stock, the order and the cart
+ * together.
+ */
+@Service
+public class CheckoutService {
+
+    public static final String ORDER_STATUS_WAITING_PAYMENT = "Waiting payment";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ValidationService validationService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private CartStore cartStore;
+
+    public CheckoutService(UserRepository userRepository, AddressRepository addressRepository,
+            CartRepository cartRepository, CartItemRepository cartItemRepository,
+            ProductRepository productRepository, OrderRepository orderRepository,
+            OrderItemRepository orderItemRepository, ValidationService validationService,
+            StockReservationService stockReservationService, CartStore cartStore) {
+        this.userRepository = userRepository;
+        this.addressRepository = addressRepository;
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.productRepository = productRepository;
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.validationService = validationService;
+        this.stockReservationService = stockReservationService;
+        this.cartStore = cartStore;
+    }
+
+    @Transactional
+    public OrderResponse checkout(UserPrincipal principal, CheckoutRequest request) {
+        validationService.validate(request);
+
+        UserEntity user = userRepository.getReferenceById(principal.getId());
+
+        cartStore.beforeCheckout(principal.getId());
+
+        // locked like any other cart change, so no item can be added between pricing the lines and clearing them
+        CartEntity cart = cartRepository.lockByUserEntity(user)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart not found"));
+
+        AddressEntity address = addressRepository.findByUserEntityAndId(user, request.getAddressId())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Address not found"));
+
+        List<CheckoutLine> lines = cartItemRepository.findCheckoutLinesByCartEntity(cart);
+
+        if (lines.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cart is empty");
+        }
+
+        Map<Integer, Long> reserved = stockReservationService.consume(user,
+                    lines.stream().map(CheckoutLine::getProductId).toList());
+
+        for (CheckoutLine line : lines) {
+            long held = reserved.getOrDefault(line.getProductId(), 0L);
+            long missing = line.getQuantity() - held;
+
+            if (missing < 0) {
+                stockReservationService.restore(line.getProductId(), Math.toIntExact(-missing));
+            } else if (missing > 0 && !stockReservationService.take(line.getProductId(), Math.toIntExact(missing))) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Insufficient stock for product " + line.getProductId());
+            }
+        }
+
+        OrderEntity order = new OrderEntity();
+        order.setOrderId(OrderIds.next());
+        order.setStatus(ORDER_STATUS_WAITING_PAYMENT);
+        order.setRemark(request.getRemark());
+        order.setUserEntity(user);
+        order.setAddressEntity(address);
+
+        List<OrderItemEntity> items = new ArrayList<>(lines.size());
+        double totalAmount = 0;
+
+        for (CheckoutLine line : lines) {
+            double amount = line.getAmount();
+
+            OrderItemEntity item = new OrderItemEntity();
+            item.setOrderEntity(order);
+            item.setProductEntity(productRepository.getReferenceById(line.getProductId()));
+            item.setQuantity(Math.toIntExact(line.getQuantity()));
+            item.setAmount(amount);
+            items.add(item);
+
+            totalAmount += amount;
+        }
+
+        order.setTotalAmount(totalAmount);
+        orderRepository.save(order);
+        orderItemRepository.saveAll(items);
+
+        cartItemRepository.deleteAllByCartEntity(cart);
+        cartRepository.clearTotals(cart.getId());
+
+        return ResponseMapper.ToOrderResponseMapper(order);
+    }
+
+}
@@ -0,0 +1,296 @@
+package rest.api.ezcommerce.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import rest.api.ezcommerce.repository.ProductRepository;
+import rest.api.ezcommerce.search.ProductChangedEvent;
+
+/*
+ * In-memory stock for hot products. Instead of every buyer updating the same products
+ * row, this node leases stock from the row in blocks and hands it out from striped
+ * counters, so buyers only contend on a CAS and the row sees one update per block.
+ * Leased units are gone from products.stock, which can therefore under-report while a
+ * pool holds them; idle pools flush their leftovers back in one update and shutdown
+ * returns whatever is left. A crash loses what the pools held, usually less than a
+ * block per pooled product: stock under-reports by that much until corrected, it is
+ * never oversold. The stock updates are bulk queries the entity listeners never see,
+ * so every one that changes the row publishes its own ProductChangedEvent.
+ */
+@Slf4j
+@Component
+public class HotStockPool {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${stock.hot.product-ids:}")
+    private List<Integer> productIds;
+
+    @Value("${stock.hot.block-size:50}")
+    private Integer blockSize;
+
+    @Value("${stock.hot.stripes:8}")
+    private Integer stripes;
+
+    private static final int LEASE_ATTEMPTS = 5;
+
+    private final Map<Integer, Pool> pools = new ConcurrentHashMap<>();
+
+    public HotStockPool(ProductRepository productRepository, ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    public void init() {
+        productIds.forEach(this::enable);
+    }
+
+    // runs once the web server has stopped taking requests, late gives go straight to the row
+    @PreDestroy
+    public void close() {
+        pools.keySet().forEach(this::disable);
+    }
+
+    public boolean isHot(Integer productId) {
+        return pools.containsKey(productId);
+    }
+
+    public void enable(Integer productId) {
+        pools.computeIfAbsent(productId, id -> new Pool(stripes));
+    }
+
+    public void disable(Integer productId) {
+        Pool pool = pools.remove(productId);
+
+        if (pool != null) {
+            synchronized (pool) {
+                pool.closed = true;
+                giveBack(productId, pool.drain());
+            }
+        }
+    }
+
+    /*
+     * Takes from the pool, leasing a new block from the products row when it runs dry.
+     * The lease uses its own connection, so callers must not hold one already: with
+     * every request thread holding a connection and waiting here, the leasing thread
+     * could never get one.
+     */
+    public boolean take(Integer productId, int quantity) {
+        Pool pool = pools.get(productId);
+
+        if (pool == null) {
+            return decrement(productId, quantity);
+        }
+
+        if (pool.tryTake(quantity)) {
+            return true;
+        }
+
+        synchronized (pool) {
+            // disabled while this thread waited, a block leased now would never be returned
+            if (pool.closed) {
+                return decrement(productId, quantity);
+            }
+
+            int available = pool.drain() + lease(productId, Math.max(blockSize, quantity));
+
+            if (available < quantity) {
+                pool.put(available);
+                return false;
+            }
+
+            pool.put(available - quantity);
+            return true;
+        }
+    }
+
+    // only what the pool already holds, never touches the database
+    public boolean takeLeased(Integer productId, int quantity) {
+        Pool pool = pools.get(productId);
+
+        return pool != null && pool.tryTake(quantity);
+    }
+
+    public void give(Integer productId, int quantity) {
+        Pool pool = pools.get(productId);
+
+        if (pool == null) {
+            giveBack(productId, quantity);
+            return;
+        }
+
+        pool.put(quantity);
+
+        // closed is set before the final drain, so a put that missed the drain sees it here
+        if (pool.closed) {
+            synchronized (pool) {
+                giveBack(productId, pool.drain());
+            }
+        }
+    }
+
+    // a pool nobody took from since the last run returns its leftovers to the products row
+    @Scheduled(fixedDelayString = "${stock.hot.flush-interval:5000}")
+    public void flush() {
+        pools.forEach((productId, pool) -> {
+            if (pool.markIdle()) {
+                synchronized (pool) {
+                    giveBack(productId, pool.drain());
+                }
+            }
+        });
+    }
+
+    public int available(Integer productId) {
+        Pool pool = pools.get(productId);
+
+        return pool == null ? 0 : pool.sum();
+    }
+
+    // the path products take when they are not pooled
+    private boolean decrement(Integer productId, int quantity) {
+        Boolean decremented = transactionTemplate.execute(status -> {
+            if (productRepository.decrementStock(productId, quantity) == 0) {
+                return false;
+            }
+
+            eventPublisher.publishEvent(new ProductChangedEvent(productId, false));
+            return true;
+        });
+
+        return Boolean.TRUE.equals(decremented);
+    }
+
+    // takes up to the wanted amount, fewer when the row has less left
+    private int lease(Integer productId, int wanted) {
+        Integer leased = transactionTemplate.execute(status -> {
+            for (int attempt = 0; attempt < LEASE_ATTEMPTS; attempt++) {
+                int stock = productRepository.findStockById(productId).orElse(0);
+
+                if (stock <= 0) {
+                    return 0;
+                }
+
+                int quantity = Math.min(wanted, stock);
+
+                if (productRepository.decrementStock(productId, quantity) == 1) {
+                    eventPublisher.publishEvent(new ProductChangedEvent(productId, false));
+                    return quantity;
+                }
+            }
+
+            return 0;
+        });
+
+        return leased == null ? 0 : leased;
+    }
+
+    private void giveBack(Integer productId, int quantity) {
+        if (quantity > 0) {
+            transactionTemplate.executeWithoutResult(status -> {
+                productRepository.incrementStock(productId, quantity);
+                eventPublisher.publishEvent(new ProductChangedEvent(productId, false));
+            });
+            log.debug("Returned {} pooled units of product {}", quantity, productId);
+        }
+    }
+
+    private static class Pool {
+
+        private final AtomicIntegerArray counters;
+
+        private volatile boolean used;
+
+        // set under the pool's monitor once it left the map, never cleared
+        private volatile boolean closed;
+
+        private Pool(int stripes) {
+            this.counters = new AtomicIntegerArray(stripes);
+        }
+
+        private boolean tryTake(int quantity) {
+            used = true;
+
+            int start = stripe();
+
+            for (int i = 0; i < counters.length(); i++) {
+                int index = (start + i) % counters.length();
+                int current = counters.get(index);
+
+                while (current >= quantity) {
+                    if (counters.compareAndSet(index, current, current - quantity)) {
+                        return true;
+                    }
+
+                    current = counters.get(index);
+                }
+            }
+
+            return false;
+        }
+
+        private void put(int quantity) {
+            if (quantity > 0) {
+                counters.addAndGet(stripe(), quantity);
+            }
+        }
+
+        private int drain() {
+            int total = 0;
+
+            for (int i = 0; i < counters.length(); i++) {
+                total += counters.getAndSet(i, 0);
+            }
+
+            return total;
+        }
+
+        private int sum() {
+            int total = 0;
+
+            for (int i = 0; i < counters.length(); i++) {
+                total += counters.get(i);
+            }
+
+            return total;
+        }
+
+        private boolean markIdle() {
+            boolean idle = !used;
+            used = false;
+
+            return idle;
+        }
+
+        private int stripe() {
+            return (int) (Thread.currentThread().getId() % counters.length());
+        }
+
+    }
+
+}
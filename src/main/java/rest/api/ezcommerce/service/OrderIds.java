@@ -0,0 +1,39 @@
+package rest.api.ezcommerce.service;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/*
+ * Public order identifiers are version 7 UUIDs (RFC 9562): 48 bits of Unix millis,
+ * then random bits. New ids sort after older ones, so inserts land on the right edge
+ * of the order_id index. The random part comes from ThreadLocalRandom rather than the
+ * shared SecureRandom behind UUID.randomUUID; lookups are always scoped to the owner,
+ * so the id only has to be unique, not unguessable.
+ */
+final class OrderIds {
+
+    private OrderIds() {
+    }
+
+    static UUID next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long msb = (System.currentTimeMillis() << 16) | 0x7000L | (random.nextLong() & 0x0FFFL);
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+
+        return new UUID(msb, lsb);
+    }
+
+    // a path segment that is not a UUID cannot name an order
+    static UUID parse(String orderId) {
+        try {
+            return UUID.fromString(orderId);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found");
+        }
+    }
+
+}
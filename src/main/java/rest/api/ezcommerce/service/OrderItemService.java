@@ -1,10 +1,14 @@
 package rest.api.ezcommerce.service;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
@@ -15,11 +19,14 @@ import rest.api.ezcommerce.entity.ProductEntity;
 import rest.api.ezcommerce.entity.UserEntity;
 import rest.api.ezcommerce.mapper.ResponseMapper;
 import rest.api.ezcommerce.model.OrderItemResponse;
+import rest.api.ezcommerce.model.ProductResponse;
+import rest.api.ezcommerce.model.RegisterOrderItemBatchRequest;
 import rest.api.ezcommerce.model.RegisterOrderItemRequest;
 import rest.api.ezcommerce.repository.OrderItemRepository;
 import rest.api.ezcommerce.repository.OrderRepository;
 import rest.api.ezcommerce.repository.ProductRepository;
 import rest.api.ezcommerce.repository.UserRepository;
+import rest.api.ezcommerce.security.UserPrincipal;
 
 @Service
 public class OrderItemService {
@@ -47,14 +54,14 @@ public class OrderItemService {
         this.orderItemRepository = orderItemRepository;
     }
 
+    @RetryOnConflict
     @Transactional
-    public OrderItemResponse register(Authentication authentication, RegisterOrderItemRequest request, String strOrderId) {
+    public OrderItemResponse register(UserPrincipal principal, RegisterOrderItemRequest request, String strOrderId) {
         validationService.validate(request);
 
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        UserEntity user = userRepository.getReferenceById(principal.getId());
 
-        OrderEntity order = orderRepository.findByUserEntityAndOrderId(user, strOrderId)
+        OrderEntity order = orderRepository.findByUserEntityAndOrderId(user, OrderIds.parse(strOrderId))
                             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found"));                                 
 
         ProductEntity product = productRepository.findFirstById(request.getIdProduct())
@@ -67,19 +74,74 @@ public class OrderItemService {
         item.setAmount(request.getAmount());
         orderItemRepository.save(item);
 
+        order.setTotalAmount(orderItemRepository.sumAmountByOrderEntity(order));
+
         return ResponseMapper.ToOrderItemResponseMapper(item);
     }
 
+    /*
+     * Adds many items to an order in one transaction: the products are looked up with a
+     * single IN query, the items go out as one JDBC batch, and the order total is
+     * recomputed from all of its items before commit.
+     */
+    @RetryOnConflict
     @Transactional
-    public List<OrderItemResponse> get(Authentication authentication, String strOrderId) {
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+    public List<OrderItemResponse> registerBatch(UserPrincipal principal, RegisterOrderItemBatchRequest request, String strOrderId) {
+        validationService.validate(request);
 
-                    OrderEntity order = orderRepository.findByUserEntityAndOrderId(user, strOrderId)
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found"));
+        UserEntity user = userRepository.getReferenceById(principal.getId());
 
-        List<OrderItemEntity> orders = orderItemRepository.findAllByOrderEntity(order);
+        OrderEntity order = orderRepository.findByUserEntityAndOrderId(user, OrderIds.parse(strOrderId))
+                            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found"));
+
+        Set<Integer> productIds = request.getItems().stream()
+                                    .map(RegisterOrderItemRequest::getIdProduct)
+                                    .collect(Collectors.toSet());
+
+        Map<Integer, ProductResponse> products = productRepository.findAllResponsesByIdIn(productIds).stream()
+                                    .collect(Collectors.toMap(ProductResponse::getId, Function.identity()));
+
+        if (products.size() != productIds.size()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found");
+        }
+
+        List<OrderItemEntity> items = new ArrayList<>(request.getItems().size());
+
+        for (RegisterOrderItemRequest itemRequest : request.getItems()) {
+            OrderItemEntity item = new OrderItemEntity();
+            item.setOrderEntity(order);
+            item.setProductEntity(productRepository.getReferenceById(itemRequest.getIdProduct()));
+            item.setQuantity(itemRequest.getQuantity());
+            item.setAmount(itemRequest.getAmount());
+            items.add(item);
+        }
+
+        orderItemRepository.saveAll(items);
+
+        order.setTotalAmount(orderItemRepository.sumAmountByOrderEntity(order));
+
+        return items.stream()
+                    .map(item -> {
+                        ProductResponse product = products.get(item.getProductEntity().getId());
+
+                        return OrderItemResponse.builder()
+                                    .id(item.getId())
+                                    .orderId(order.getOrderId())
+                                    .productId(product.getId())
+                                    .productName(product.getName())
+                                    .productPrice(product.getPrice())
+                                    .quantity(item.getQuantity())
+                                    .amount(item.getAmount())
+                                    .build();
+                    })
+                    .toList();
+    }
 
-        return ResponseMapper.ToOrderItemListResponseMapper(orders);
+    // same single-query read as the order detail, without the header
+    @Transactional(readOnly = true)
+    public List<OrderItemResponse> get(UserPrincipal principal, String strOrderId) {
+        return orderRepository.findDetailByUserIdAndOrderId(principal.getId(), OrderIds.parse(strOrderId))
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found"))
+                    .getItems();
     }
 }
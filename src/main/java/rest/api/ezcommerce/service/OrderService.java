@@ -1,26 +1,40 @@
 package rest.api.ezcommerce.service;
 
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
 import java.util.Objects;
-import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 import org.springframework.web.server.ResponseStatusException;
 
 import rest.api.ezcommerce.entity.AddressEntity;
 import rest.api.ezcommerce.entity.OrderEntity;
 import rest.api.ezcommerce.entity.UserEntity;
 import rest.api.ezcommerce.mapper.ResponseMapper;
+import rest.api.ezcommerce.model.OrderDetailResponse;
 import rest.api.ezcommerce.model.OrderResponse;
 import rest.api.ezcommerce.model.RegisterOrderRequest;
+import rest.api.ezcommerce.model.SearchOrderRequest;
 import rest.api.ezcommerce.model.UpdateOrderRequest;
 import rest.api.ezcommerce.repository.AddressRepository;
 import rest.api.ezcommerce.repository.OrderRepository;
 import rest.api.ezcommerce.repository.UserRepository;
+import rest.api.ezcommerce.security.UserPrincipal;
 
 @Service
 public class OrderService {
@@ -45,17 +59,16 @@ public class OrderService {
     }
 
     @Transactional
-    public OrderResponse register(Authentication authentication, RegisterOrderRequest request) {
+    public OrderResponse register(UserPrincipal principal, RegisterOrderRequest request) {
         validationService.validate(request);
 
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        UserEntity user = userRepository.getReferenceById(principal.getId());
 
         AddressEntity address = addressRepository.findByUserEntityAndId(user, request.getAddressId())
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Address not found"));
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(OrderIds.next());
         order.setTotalAmount(request.getTotalAmount());
         order.setStatus(request.getStatus());
         order.setRemark(request.getRemark());
@@ -67,34 +80,113 @@ public class OrderService {
     }
 
     @Transactional(readOnly = true)
-    public OrderResponse get(Authentication authentication, String orderId) {                
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+    public OrderResponse get(UserPrincipal principal, String orderId) {                
+        UserEntity user = userRepository.getReferenceById(principal.getId());
 
-        OrderEntity order = orderRepository.findByUserEntityAndOrderId(user, orderId)
+        OrderEntity order = orderRepository.findByUserEntityAndOrderId(user, OrderIds.parse(orderId))
                             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found"));;
 
         return ResponseMapper.ToOrderResponseMapper(order);
     }
 
+    // header and items together for the order page, a single query whatever the item count
     @Transactional(readOnly = true)
-    public List<OrderResponse> list(Authentication authentication) {
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+    public OrderDetailResponse detail(UserPrincipal principal, String orderId) {
+        return orderRepository.findDetailByUserIdAndOrderId(principal.getId(), OrderIds.parse(orderId))
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found"));
+    }
+
+    /*
+     * Newest orders first unless asc is asked for. Pages by keyset on (created_at, id)
+     * carried in the cursor rather than by offset, and reads only the orders columns.
+     */
+    @Transactional(readOnly = true)
+    public Window<OrderResponse> list(UserPrincipal principal, SearchOrderRequest request) {
+        validationService.validate(request);
+
+        Sort.Direction direction = parseDirection(request.getSort());
+        Date from = parseDate(request.getFrom(), 0);
+        Date to = parseDate(request.getTo(), 1);
+        String status = StringUtils.hasText(request.getStatus()) ? request.getStatus() : null;
+
+        return orderRepository.scrollByUserId(principal.getId(), status, from, to,
+                    direction, decodeCursor(request.getCursor()), request.getSize());
+    }
 
-        List<OrderEntity> orders = orderRepository.findAllByUserEntity(user);
+    public String nextCursor(Window<OrderResponse> window) {
+        if (!window.hasNext() || window.isEmpty()) {
+            return null;
+        }
+
+        KeysetScrollPosition position = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+        Date createdAt = (Date) position.getKeys().get(OrderRepository.CREATED_AT_KEY);
 
-        return ResponseMapper.ToOrderResponseListMapper(orders);
+        // Timestamp.toInstant keeps the microseconds a plain Date would drop
+        String key = createdAt.toInstant() + "," + position.getKeys().get(OrderRepository.ID_KEY);
+
+        return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(key.getBytes(StandardCharsets.UTF_8));
     }
 
+    private KeysetScrollPosition decodeCursor(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return ScrollPosition.keyset();
+        }
+
+        try {
+            String[] key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",");
+
+            if (key.length != 2) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
+            }
+
+            return ScrollPosition.forward(Map.of(
+                        OrderRepository.CREATED_AT_KEY, Timestamp.from(Instant.parse(key[0])),
+                        OrderRepository.ID_KEY, Integer.valueOf(key[1])));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
+        }
+    }
+
+    private Sort.Direction parseDirection(String sort) {
+        if (!StringUtils.hasText(sort)) {
+            return Sort.Direction.DESC;
+        }
+
+        try {
+            return Sort.Direction.fromString(sort);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
+        }
+    }
+
+    // start of the given day plus offsetDays, so "to" becomes an exclusive bound on the next day
+    private Date parseDate(String date, int offsetDays) {
+        if (!StringUtils.hasText(date)) {
+            return null;
+        }
+
+        try {
+            return Date.from(LocalDate.parse(date).plusDays(offsetDays)
+                        .atStartOfDay(ZoneId.systemDefault()).toInstant());
+        } catch (DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
+        }
+    }
+
+    // expectedVersion comes from If-Match, null updates whatever version is current
+    @RetryOnConflict
     @Transactional
-    public OrderResponse update(Authentication authentication, UpdateOrderRequest request,  String orderId) {
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+    public OrderResponse update(UserPrincipal principal, UpdateOrderRequest request,  String orderId, Long expectedVersion) {
+        UserEntity user = userRepository.getReferenceById(principal.getId());
 
-        OrderEntity order = orderRepository.findByUserEntityAndOrderId(user, orderId)
+        OrderEntity order = orderRepository.findByUserEntityAndOrderId(user, OrderIds.parse(orderId))
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found"));
 
+        if (Objects.nonNull(expectedVersion) && !expectedVersion.equals(order.getVersion())) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Order was modified");
+        }
+
         if (Objects.nonNull(request.getTotalAmount())) {
             order.setTotalAmount(request.getTotalAmount());
         }
@@ -107,6 +199,8 @@ public class OrderService {
             order.setRemark(request.getRemark());
         }
 
+        orderRepository.saveAndFlush(order);
+
         return ResponseMapper.ToOrderResponseMapper(order);
     }
 
@@ -0,0 +1,293 @@
+package rest.api.ezcommerce.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DatabindException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+
+import jakarta.validation.ConstraintViolationException;
+import lombok.extern.slf4j.Slf4j;
+import rest.api.ezcommerce.entity.CategoryEntity;
+import rest.api.ezcommerce.entity.ProductEntity;
+import rest.api.ezcommerce.entity.UserEntity;
+import rest.api.ezcommerce.model.ImportProductError;
+import rest.api.ezcommerce.model.ImportProductRequest;
+import rest.api.ezcommerce.model.ImportProductResponse;
+import rest.api.ezcommerce.repository.CategoryRepository;
+import rest.api.ezcommerce.repository.ProductRepository;
+import rest.api.ezcommerce.repository.UserRepository;
+import rest.api.ezcommerce.security.UserPrincipal;
+
+/*
+ * Bulk product import. Rows are read one at a time from the request body and
+ * collected into chunks; each chunk resolves its categories in one query, is checked
+ * against the names the user already has, and is inserted in its own transaction
+ * through Hibernate's JDBC batching. A bad row is reported and skipped, it never
+ * fails the rest of the upload.
+ */
+@Slf4j
+@Service
+public class ProductImportService {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ValidationService validationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final CsvMapper csvMapper = CsvMapper.builder()
+                                            .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                                            .enable(CsvParser.Feature.TRIM_SPACES)
+                                            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                                            .build();
+
+    @Value("${product.import.chunk-size:1000}")
+    private Integer chunkSize;
+
+    @Value("${product.import.max-errors:1000}")
+    private Integer maxErrors;
+
+    public ProductImportService(UserRepository userRepository, CategoryRepository categoryRepository,
+            ProductRepository productRepository, ValidationService validationService,
+            ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.categoryRepository = categoryRepository;
+        this.productRepository = productRepository;
+        this.validationService = validationService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public ImportProductResponse importProducts(UserPrincipal principal, InputStream input, String format) throws IOException {
+        // every chunk inserts through a user reference, check once that the user is still there
+        if (!userRepository.existsById(principal.getId())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+        }
+
+        ImportJob job = new ImportJob(principal.getId(), productRepository.findNamesByUserId(principal.getId()));
+        List<PendingRow> chunk = new ArrayList<>(chunkSize);
+
+        try (MappingIterator<ImportProductRequest> rows = reader(format).readValues(input)) {
+            while (true) {
+                long row = job.total + 1;
+                ImportProductRequest request;
+
+                try {
+                    if (!rows.hasNextValue()) {
+                        break;
+                    }
+
+                    request = rows.nextValue();
+                } catch (DatabindException e) {
+                    job.total++;
+                    job.reject(row, "Malformed row: " + e.getOriginalMessage());
+                    continue;
+                } catch (JsonProcessingException e) {
+                    // broken syntax, nothing after this point can be trusted
+                    job.total++;
+                    job.reject(row, "Malformed input: " + e.getOriginalMessage());
+                    break;
+                }
+
+                job.total++;
+
+                try {
+                    validationService.validate(request);
+                } catch (ConstraintViolationException e) {
+                    job.reject(row, e.getMessage());
+                    continue;
+                }
+
+                chunk.add(new PendingRow(row, request));
+
+                if (chunk.size() >= chunkSize) {
+                    write(job, chunk);
+                    chunk.clear();
+                }
+            }
+        }
+
+        write(job, chunk);
+
+        log.info("Product import for user {} finished, {} imported and {} rejected of {} rows",
+                    principal.getId(), job.imported, job.failed, job.total);
+
+        job.errors.sort(Comparator.comparing(ImportProductError::getRow));
+
+        return ImportProductResponse.builder()
+                    .total(job.total)
+                    .imported(job.imported)
+                    .failed(job.failed)
+                    .errors(job.errors)
+                    .build();
+    }
+
+    private ObjectReader reader(String format) {
+        if ("csv".equals(format)) {
+            return csvMapper.readerFor(ImportProductRequest.class)
+                        .with(CsvSchema.emptySchema().withHeader());
+        }
+
+        if ("ndjson".equals(format)) {
+            return objectMapper.readerFor(ImportProductRequest.class);
+        }
+
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
+    }
+
+    private void write(ImportJob job, List<PendingRow> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        resolveCategories(job, chunk);
+
+        List<PendingRow> accepted = new ArrayList<>(chunk.size());
+
+        for (PendingRow pending : chunk) {
+            ImportProductRequest request = pending.request();
+
+            if (!job.categoryIds.contains(request.getCategoryId())) {
+                job.reject(pending.row(), "Category not found");
+            } else if (!job.names.add(request.getName())) {
+                job.reject(pending.row(), "Product already registered");
+            } else {
+                accepted.add(pending);
+            }
+        }
+
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> productRepository.saveAll(toEntities(job, accepted)));
+            job.imported += accepted.size();
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Product import chunk of {} rows failed", accepted.size(), e);
+
+            for (PendingRow pending : accepted) {
+                job.names.remove(pending.request().getName());
+                job.reject(pending.row(), "Insert failed");
+            }
+        }
+    }
+
+    // one query per chunk, only for category ids this upload has not seen yet
+    private void resolveCategories(ImportJob job, List<PendingRow> chunk) {
+        Set<Integer> unseen = new HashSet<>();
+
+        for (PendingRow pending : chunk) {
+            Integer categoryId = pending.request().getCategoryId();
+
+            if (!job.categoryIds.contains(categoryId) && !job.missingCategoryIds.contains(categoryId)) {
+                unseen.add(categoryId);
+            }
+        }
+
+        if (unseen.isEmpty()) {
+            return;
+        }
+
+        List<Integer> found = categoryRepository.findIdsByUserIdAndIdIn(job.userId, unseen);
+
+        job.categoryIds.addAll(found);
+        unseen.removeAll(found);
+        job.missingCategoryIds.addAll(unseen);
+    }
+
+    // references are proxies created once per chunk, inserting never loads the user or a category
+    private List<ProductEntity> toEntities(ImportJob job, List<PendingRow> rows) {
+        UserEntity user = userRepository.getReferenceById(job.userId);
+        Map<Integer, CategoryEntity> categories = new HashMap<>();
+        List<ProductEntity> products = new ArrayList<>(rows.size());
+
+        for (PendingRow pending : rows) {
+            ImportProductRequest request = pending.request();
+
+            ProductEntity product = new ProductEntity();
+            product.setName(request.getName());
+            product.setDescription(request.getDescription());
+            product.setPrice(request.getPrice());
+            product.setStock(request.getStock());
+            product.setCategoryEntity(categories.computeIfAbsent(request.getCategoryId(), categoryRepository::getReferenceById));
+            product.setUserEntity(user);
+            products.add(product);
+        }
+
+        return products;
+    }
+
+    private record PendingRow(long row, ImportProductRequest request) {
+    }
+
+    private class ImportJob {
+
+        private final Integer userId;
+
+        private final Set<String> names;
+
+        private final Set<Integer> categoryIds = new HashSet<>();
+
+        private final Set<Integer> missingCategoryIds = new HashSet<>();
+
+        private final List<ImportProductError> errors = new ArrayList<>();
+
+        private long total;
+
+        private long imported;
+
+        private long failed;
+
+        private ImportJob(Integer userId, Set<String> names) {
+            this.userId = userId;
+            this.names = new HashSet<>(names);
+        }
+
+        private void reject(long row, String message) {
+            failed++;
+
+            if (errors.size() < maxErrors) {
+                errors.add(new ImportProductError(row, message));
+            }
+        }
+
+    }
+
+}
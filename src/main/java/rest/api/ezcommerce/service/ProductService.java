@@ -1,23 +1,32 @@
 package rest.api.ezcommerce.service;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import jakarta.persistence.criteria.Predicate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
 import lombok.extern.slf4j.Slf4j;
 import rest.api.ezcommerce.entity.CategoryEntity;
 import rest.api.ezcommerce.entity.ProductEntity;
@@ -29,7 +38,10 @@ import rest.api.ezcommerce.model.SearchProductRequest;
 import rest.api.ezcommerce.model.UpdateProductRequest;
 import rest.api.ezcommerce.repository.CategoryRepository;
 import rest.api.ezcommerce.repository.ProductRepository;
+import rest.api.ezcommerce.repository.StockReservationRepository;
 import rest.api.ezcommerce.repository.UserRepository;
+import rest.api.ezcommerce.search.ProductSearchEngine;
+import rest.api.ezcommerce.security.UserPrincipal;
 
 @Slf4j
 @Service
@@ -47,16 +59,39 @@ public class ProductService {
     @Autowired
     private ValidationService validationService;
 
+    @Autowired
+    private ProductSearchEngine productSearchEngine;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private HotStockPool hotStockPool;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    private static final String ID_KEY = "id";
+
+    @Value("${product.export.fetch-size:500}")
+    private Integer exportFetchSize;
+
     public ProductService(UserRepository userRepository, CategoryRepository categoryRepository,
-            ProductRepository productRepository, ValidationService validationService) {
+            ProductRepository productRepository, ValidationService validationService,
+            ProductSearchEngine productSearchEngine, ObjectMapper objectMapper, HotStockPool hotStockPool,
+            StockReservationRepository stockReservationRepository) {
         this.userRepository = userRepository;
         this.categoryRepository = categoryRepository;
         this.productRepository = productRepository;
         this.validationService = validationService;
+        this.productSearchEngine = productSearchEngine;
+        this.objectMapper = objectMapper;
+        this.hotStockPool = hotStockPool;
+        this.stockReservationRepository = stockReservationRepository;
     }
 
     @Transactional
-    public ProductResponse register(Authentication authentication, RegisterProductRequest request, String strCategoryId) {
+    public ProductResponse register(UserPrincipal principal, RegisterProductRequest request, String strCategoryId) {
         Integer categoryId = 0;
 
         try {
@@ -67,8 +102,7 @@ public class ProductService {
 
         validationService.validate(request);
 
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        UserEntity user = userRepository.getReferenceById(principal.getId());
 
         if (productRepository.findByUserEntityAndName(user, request.getName()).isPresent()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Product already registered");
@@ -91,7 +125,7 @@ public class ProductService {
     }
 
     @Transactional(readOnly = true)
-    public ProductResponse get(Authentication authentication, String strCategoryId, String strProductId) {
+    public ProductResponse get(UserPrincipal principal, String strCategoryId, String strProductId) {
         Integer categoryId = 0;
         Integer productId = 0;
 
@@ -102,8 +136,7 @@ public class ProductService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
         }
 
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        UserEntity user = userRepository.getReferenceById(principal.getId());
 
         CategoryEntity category = categoryRepository.findFirstByUserEntityAndId(user, categoryId)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Category not found"));
@@ -115,24 +148,57 @@ public class ProductService {
     }
 
     @Transactional(readOnly = true)
-    public List<ProductResponse> list(Authentication authentication) {
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
-
-        List<ProductEntity> products = productRepository.findAllByUserEntity(user);
-
-        return ResponseMapper.ToProductResponseListMapper(products);
+    public List<ProductResponse> list(UserPrincipal principal) {
+        return productRepository.findAllResponsesByUserId(principal.getId());
     }
 
+    // projected straight into the response in one query, no entity or category loads per row
     @Transactional(readOnly = true)
     public List<ProductResponse> listAll() {
-        List<ProductEntity> products = productRepository.findAll();
-
-        return ResponseMapper.ToProductResponseListMapper(products);
+        return productRepository.findAllResponses();
     }
 
+    /*
+     * Writes every product to the output as it is read from the cursor, either one JSON
+     * document per line (NDJSON) or as a single JSON array, so memory stays flat
+     * regardless of catalog size.
+     */
     @Transactional(readOnly = true)
-    public ProductResponse update(Authentication authentication, UpdateProductRequest request, String strCategoryId, String strProductId) {
+    public void export(OutputStream output, boolean ndjson) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(ProductResponse.class)
+                                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (Stream<ProductResponse> products = productRepository.streamAll(exportFetchSize);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            if (!ndjson) {
+                generator.writeStartArray();
+            }
+
+            Iterator<ProductResponse> iterator = products.iterator();
+
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+
+                if (ndjson) {
+                    generator.writeRaw('\n');
+                }
+            }
+
+            if (!ndjson) {
+                generator.writeEndArray();
+            }
+        }
+    }
+
+    // expectedVersion comes from If-Match, null updates whatever version is current
+    @RetryOnConflict
+    @Transactional
+    public ProductResponse update(UserPrincipal principal, UpdateProductRequest request, String strCategoryId, String strProductId,
+                                    Long expectedVersion) {
         Integer categoryId = 0;
         Integer productId = 0;        
 
@@ -143,8 +209,7 @@ public class ProductService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
         }
 
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        UserEntity user = userRepository.getReferenceById(principal.getId());
 
         CategoryEntity category = categoryRepository.findFirstByUserEntityAndId(user, categoryId)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Category not found"));        
@@ -152,6 +217,10 @@ public class ProductService {
         ProductEntity product = productRepository.findFirstByCategoryEntityAndId(category, productId)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Category not found"));        
 
+        if (Objects.nonNull(expectedVersion) && !expectedVersion.equals(product.getVersion())) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Product was modified");
+        }
+
         List<ProductEntity> products = productRepository.findAllByUserEntityAndAndName(user, request.getName());
         log.info("PRODUCT SIZE : ", products.size());
         if (products.size() >= 1) {
@@ -170,15 +239,26 @@ public class ProductService {
             product.setPrice(request.getPrice());
         }
 
-        if (Objects.nonNull(request.getStock())) {
+        if (Objects.nonNull(request.getStock()) && !request.getStock().equals(product.getStock())) {
+            // pooled and reserved units come back to the row later and would land on top of the new figure
+            if (hotStockPool.isHot(product.getId())) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Product stock is pooled, disable the hot pool first");
+            }
+
+            if (stockReservationRepository.existsByProductEntityId(product.getId())) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Product stock is held by reservations");
+            }
+
             product.setStock(request.getStock());
         }
 
+        productRepository.saveAndFlush(product);
+
         return ResponseMapper.ToProductResponseMapper(product);
     }
 
     @Transactional
-    public void delete(Authentication authentication, String strCategoryId, String strProductId) {
+    public void delete(UserPrincipal principal, String strCategoryId, String strProductId) {
         Integer categoryId = 0;
         Integer productId = 0;
 
@@ -189,8 +269,7 @@ public class ProductService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
         }
 
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        UserEntity user = userRepository.getReferenceById(principal.getId());
 
         CategoryEntity category = categoryRepository.findFirstByUserEntityAndId(user, categoryId)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Category not found"));
@@ -205,37 +284,61 @@ public class ProductService {
         }                    
     }
 
-    @SuppressWarnings("null")
     @Transactional(readOnly = true)    
     public Page<ProductResponse> search(SearchProductRequest request) {   
-        
-        Specification<ProductEntity> specification = (root, query, builder) -> {
-            List<Predicate> predicates = new ArrayList<>();            
+        return productSearchEngine.search(request);
+    }
 
-            if (Objects.nonNull(request.getName())) {
-                predicates.add(builder.or(
-                    builder.like(root.get("name"), "%"+request.getName()+"%")                    
-                ));
-            }
-            
-            if (Objects.nonNull(request.getDescription())) {
-                predicates.add(builder.or(                    
-                    builder.like(root.get("description"), "%"+request.getDescription()+"%")
-                ));
-            }
+    /*
+     * Keyset variant of search: seeks past the id carried in the cursor instead of
+     * skipping rows with OFFSET, and issues no count query.
+     */
+    @Transactional(readOnly = true)
+    public Window<ProductResponse> scroll(SearchProductRequest request) {
+        if (request.getSize() < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
+        }
 
-            return query.where(predicates.toArray(new Predicate[]{})).getRestriction();
-        };
+        return productSearchEngine.scroll(request, decodeCursor(request.getCursor()));
+    }
 
-        Pageable pageable = PageRequest.of(request.getPage(), request.getSize());
-        Page<ProductEntity> products = productRepository.findAll(specification, pageable);
-        List<ProductResponse> productResponses = products
-                                                    .getContent()
-                                                    .stream()
-                                                    .map(product -> ResponseMapper.ToProductResponseMapper(product))
-                                                    .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public long count(SearchProductRequest request) {
+        return productSearchEngine.count(request);
+    }
 
-        return new PageImpl<>(productResponses, pageable, products.getTotalElements());
+    @Transactional(readOnly = true)
+    public Map<String, Long> categoryFacets(SearchProductRequest request) {
+        return productSearchEngine.categoryFacets(request);
+    }
+
+    public void rebuildSearchIndex() {
+        productSearchEngine.rebuild();
+    }
+
+    public String nextCursor(Window<ProductResponse> window) {
+        if (!window.hasNext() || window.isEmpty()) {
+            return null;
+        }
+
+        KeysetScrollPosition position = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+
+        return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(String.valueOf(position.getKeys().get(ID_KEY)).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private KeysetScrollPosition decodeCursor(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return ScrollPosition.keyset();
+        }
+
+        try {
+            Integer lastId = Integer.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+
+            return ScrollPosition.forward(Map.of(ID_KEY, lastId));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
+        }
     }
 
     /*
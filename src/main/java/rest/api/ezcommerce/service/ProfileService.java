@@ -4,7 +4,6 @@ import java.util.Objects;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
@@ -17,6 +16,7 @@ import rest.api.ezcommerce.model.RegisterProfileRequest;
 import rest.api.ezcommerce.model.UpdateProfileRequest;
 import rest.api.ezcommerce.repository.ProfileRepository;
 import rest.api.ezcommerce.repository.UserRepository;
+import rest.api.ezcommerce.security.UserPrincipal;
 
 @Service
 public class ProfileService {
@@ -38,11 +38,10 @@ public class ProfileService {
     }
 
     @Transactional
-    public ProfileResponse register(Authentication authentication, RegisterProfileRequest request) {
+    public ProfileResponse register(UserPrincipal principal, RegisterProfileRequest request) {
         validationService.validate(request);
 
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        UserEntity user = userRepository.getReferenceById(principal.getId());
 
         ProfileEntity profile = new ProfileEntity();
         profile.setUserEntity(user);
@@ -55,10 +54,9 @@ public class ProfileService {
     }
 
     @Transactional(readOnly = true)
-    public ProfileResponse get(Authentication authentication) {
+    public ProfileResponse get(UserPrincipal principal) {
 
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        UserEntity user = userRepository.getReferenceById(principal.getId());
     
         ProfileEntity profile = profileRepository.findFirstByUserEntity(user)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Profile not found"));
@@ -67,10 +65,9 @@ public class ProfileService {
     }
 
     @Transactional
-    public ProfileResponse update(Authentication authentication, UpdateProfileRequest request) {
+    public ProfileResponse update(UserPrincipal principal, UpdateProfileRequest request) {
 
-        UserEntity user = userRepository.findByEmail(authentication.getName())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        UserEntity user = userRepository.getReferenceById(principal.getId());
     
         ProfileEntity profile = profileRepository.findFirstByUserEntity(user)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Profile not found"));
@@ -0,0 +1,28 @@
+package rest.api.ezcommerce.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
+
+/*
+ * Re-runs a whole transactional service call when its flush hits a stale @Version. Only
+ * for calls that re-read everything they write and touch nothing outside the database,
+ * so a rolled back attempt leaves no trace. The retry wraps the transaction, each
+ * attempt starts a fresh one.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Retryable(
+    retryFor = ObjectOptimisticLockingFailureException.class,
+    maxAttemptsExpression = "${optimistic-lock.retry.max-attempts:5}",
+    backoff = @Backoff(delayExpression = "${optimistic-lock.retry.delay:10}", multiplier = 2, maxDelay = 200, random = true)
+)
+public @interface RetryOnConflict {
+}
@@ -0,0 +1,284 @@
+package rest.api.ezcommerce.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import lombok.extern.slf4j.Slf4j;
+import rest.api.ezcommerce.entity.StockReservationEntity;
+import rest.api.ezcommerce.entity.UserEntity;
+import rest.api.ezcommerce.mapper.ResponseMapper;
+import rest.api.ezcommerce.model.ReserveStockRequest;
+import rest.api.ezcommerce.model.StockReservationResponse;
+import rest.api.ezcommerce.repository.ProductRepository;
+import rest.api.ezcommerce.repository.StockReservationRepository;
+import rest.api.ezcommerce.repository.UserRepository;
+import rest.api.ezcommerce.search.ProductChangedEvent;
+import rest.api.ezcommerce.security.UserPrincipal;
+
+/*
+ * Holds stock for a buyer between adding to the cart and paying. Stock only ever moves
+ * through conditional updates on the products row, or through HotStockPool for products
+ * marked hot, so no path reads the stock and writes it back. Every reservation carries
+ * an expiry and a sweeper returns abandoned ones.
+ */
+@Slf4j
+@Service
+public class StockReservationService {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private HotStockPool hotStockPool;
+
+    @Autowired
+    private ValidationService validationService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${stock.reservation.ttl:900}")
+    private Long ttl;
+
+    @Value("${stock.reservation.sweep-batch:500}")
+    private Integer sweepBatch;
+
+    public StockReservationService(UserRepository userRepository, ProductRepository productRepository,
+            StockReservationRepository stockReservationRepository, HotStockPool hotStockPool,
+            ValidationService validationService, ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.productRepository = productRepository;
+        this.stockReservationRepository = stockReservationRepository;
+        this.hotStockPool = hotStockPool;
+        this.validationService = validationService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // not @Transactional: a hot pool may need to lease, which must happen before this thread holds a connection
+    public StockReservationResponse reserve(UserPrincipal principal, String strProductId, ReserveStockRequest request) {
+        Integer productId = 0;
+
+        try {
+            productId = Integer.parseInt(strProductId);
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
+        }
+
+        validationService.validate(request);
+
+        Integer id = productId;
+        Integer quantity = request.getQuantity();
+
+        if (hotStockPool.isHot(id)) {
+            if (!hotStockPool.take(id, quantity)) {
+                throw unavailable(id);
+            }
+
+            try {
+                return transactionTemplate.execute(status -> save(principal, id, quantity));
+            } catch (RuntimeException e) {
+                hotStockPool.give(id, quantity);
+                throw e;
+            }
+        }
+
+        return transactionTemplate.execute(status -> {
+            if (productRepository.decrementStock(id, quantity) == 0) {
+                throw unavailable(id);
+            }
+
+            eventPublisher.publishEvent(new ProductChangedEvent(id, false));
+
+            return save(principal, id, quantity);
+        });
+    }
+
+    @Transactional
+    public void release(UserPrincipal principal, String strReservationId) {
+        Integer reservationId = 0;
+
+        try {
+            reservationId = Integer.parseInt(strReservationId);
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
+        }
+
+        UserEntity user = userRepository.getReferenceById(principal.getId());
+
+        StockReservationEntity reservation = stockReservationRepository.findFirstByUserEntityAndId(user, reservationId)
+                                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Reservation not found"));
+
+        // the sweeper may have expired it in the meantime, only one of us puts the stock back
+        if (stockReservationRepository.deleteReservation(reservation.getId()) == 1) {
+            restore(reservation.getProductEntity().getId(), reservation.getQuantity());
+        }
+    }
+
+    public void setHot(String strProductId, boolean hot) {
+        Integer productId = 0;
+
+        try {
+            productId = Integer.parseInt(strProductId);
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request");
+        }
+
+        if (!productRepository.existsById(productId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found");
+        }
+
+        if (hot) {
+            hotStockPool.enable(productId);
+        } else {
+            hotStockPool.disable(productId);
+        }
+    }
+
+    /*
+     * Removes the caller's live reservations on the given products and returns the
+     * quantity they held per product. The rows are locked first so a concurrent release
+     * or sweep cannot return the same units. Must run inside the caller's transaction.
+     */
+    @Transactional
+    public Map<Integer, Long> consume(UserEntity user, Collection<Integer> productIds) {
+        List<StockReservationEntity> reservations = stockReservationRepository
+                    .lockActiveByUserEntityAndProductIds(user, productIds, System.currentTimeMillis());
+
+        Map<Integer, Long> reserved = new HashMap<>();
+
+        for (StockReservationEntity reservation : reservations) {
+            reserved.merge(reservation.getProductEntity().getId(), reservation.getQuantity().longValue(), Long::sum);
+        }
+
+        stockReservationRepository.deleteAllInBatch(reservations);
+
+        return reserved;
+    }
+
+    /*
+     * Takes stock inside the caller's transaction. Hot products are served from what
+     * their pool already leased and fall back to the row, since leasing here would
+     * need a second connection.
+     */
+    public boolean take(Integer productId, int quantity) {
+        if (hotStockPool.isHot(productId) && hotStockPool.takeLeased(productId, quantity)) {
+            afterCompletion(productId, quantity, TransactionSynchronization.STATUS_ROLLED_BACK);
+            return true;
+        }
+
+        if (productRepository.decrementStock(productId, quantity) == 0) {
+            return false;
+        }
+
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, false));
+        return true;
+    }
+
+    public void restore(Integer productId, int quantity) {
+        if (hotStockPool.isHot(productId)) {
+            afterCompletion(productId, quantity, TransactionSynchronization.STATUS_COMMITTED);
+            return;
+        }
+
+        productRepository.incrementStock(productId, quantity);
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, false));
+    }
+
+    @Scheduled(fixedDelayString = "${stock.reservation.sweep-interval:30000}")
+    public void expire() {
+        long now = System.currentTimeMillis();
+        int released = 0;
+        int batch;
+
+        do {
+            Integer count = transactionTemplate.execute(status -> {
+                List<StockReservationEntity> expired = stockReservationRepository.findExpired(now, Limit.of(sweepBatch));
+                Map<Integer, Integer> quantities = new HashMap<>();
+
+                for (StockReservationEntity reservation : expired) {
+                    if (stockReservationRepository.deleteReservation(reservation.getId()) == 1) {
+                        quantities.merge(reservation.getProductEntity().getId(), reservation.getQuantity(), Integer::sum);
+                    }
+                }
+
+                // one update per product, however many reservations it had
+                quantities.forEach(this::restore);
+
+                return expired.size();
+            });
+
+            batch = count == null ? 0 : count;
+            released += batch;
+        } while (batch == sweepBatch);
+
+        if (released > 0) {
+            log.info("Released {} expired stock reservations", released);
+        }
+    }
+
+    private StockReservationResponse save(UserPrincipal principal, Integer productId, Integer quantity) {
+        StockReservationEntity reservation = new StockReservationEntity();
+        reservation.setProductEntity(productRepository.getReferenceById(productId));
+        reservation.setUserEntity(userRepository.getReferenceById(principal.getId()));
+        reservation.setQuantity(quantity);
+        reservation.setExpiresAt(System.currentTimeMillis() + ttl * 1000);
+        stockReservationRepository.save(reservation);
+
+        return ResponseMapper.ToStockReservationResponseMapper(reservation);
+    }
+
+    private ResponseStatusException unavailable(Integer productId) {
+        if (!productRepository.existsById(productId)) {
+            return new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found");
+        }
+
+        return new ResponseStatusException(HttpStatus.CONFLICT, "Insufficient stock for product " + productId);
+    }
+
+    // pool counters are not transactional, so they only move once the outcome is known
+    private void afterCompletion(Integer productId, int quantity, int onStatus) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (onStatus == TransactionSynchronization.STATUS_COMMITTED) {
+                hotStockPool.give(productId, quantity);
+            }
+
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == onStatus) {
+                    hotStockPool.give(productId, quantity);
+                }
+            }
+        });
+    }
+
+}
@@ -5,7 +5,6 @@ import java.util.Objects;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -20,6 +19,7 @@ import rest.api.ezcommerce.model.UpdateUserRequest;
 import rest.api.ezcommerce.model.UserResponse;
 import rest.api.ezcommerce.repository.RoleRepository;
 import rest.api.ezcommerce.repository.UserRepository;
+import rest.api.ezcommerce.security.UserPrincipal;
 
 @Service
 @Slf4j
@@ -66,20 +66,20 @@ public class UserService {
     }
 
     @Transactional(readOnly = true)
-    public UserResponse get(Authentication authentication) {
+    public UserResponse get(UserPrincipal principal) {
 
-        log.info("CURRENT NAME {}", authentication.getName());
+        log.info("CURRENT NAME {}", principal.getUsername());
 
-        UserEntity user = userRepository.findByEmail(authentication.getName()).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));                    
+        UserEntity user = userRepository.findById(principal.getId()).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));                    
 
         return ResponseMapper.ToUserResponseMapper(user);
     }
 
     @Transactional
-    public UserResponse update(Authentication authentication, UpdateUserRequest request) {
+    public UserResponse update(UserPrincipal principal, UpdateUserRequest request) {
         validationService.validate(request);
 
-        UserEntity user = userRepository.findByEmail(authentication.getName())
+        UserEntity user = userRepository.findById(principal.getId())
                             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
             
         if (Objects.nonNull(request.getPassword())) {
@@ -0,0 +1,132 @@
+-- Schema as Hibernate created it under ddl-auto=update before the migrations were
+-- introduced. Databases that already hold these tables are baselined at this version
+-- (spring.flyway.baseline-on-migrate) and start from V2, so this file must keep
+-- describing that schema; every later change goes in a new version.
+
+create table roles (
+    id bigint generated by default as identity,
+    name varchar(64) not null unique,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    primary key (id)
+);
+
+create table users (
+    id integer generated by default as identity,
+    email varchar(64) not null unique,
+    password varchar(255),
+    token varchar(255),
+    token_expired_at bigint,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    primary key (id)
+);
+
+create table users_roles (
+    user_id integer not null,
+    role_id bigint not null
+);
+
+create table profiles (
+    id integer generated by default as identity,
+    user_id integer unique,
+    firstname varchar(255),
+    lastname varchar(255),
+    phone_number varchar(255),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    primary key (id)
+);
+
+create table addresses (
+    id integer generated by default as identity,
+    user_id integer not null,
+    title varchar(255) not null unique,
+    address varchar(255),
+    city varchar(255),
+    country varchar(255),
+    postal_code varchar(255),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    primary key (id)
+);
+
+create table categories (
+    id integer generated by default as identity,
+    user_id integer not null,
+    name varchar(255) not null unique,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    primary key (id)
+);
+
+create table products (
+    id integer generated by default as identity,
+    user_id integer not null,
+    category_id integer not null,
+    name varchar(255),
+    description varchar(255),
+    price float(53),
+    stock integer,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    primary key (id)
+);
+
+create table carts (
+    id integer generated by default as identity,
+    user_id integer unique,
+    total_item integer,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    primary key (id)
+);
+
+create table cart_items (
+    id integer generated by default as identity,
+    cart_id integer not null,
+    product_id integer not null,
+    quantity integer,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    primary key (id)
+);
+
+create table orders (
+    id integer generated by default as identity,
+    order_id varchar(255),
+    user_id integer not null,
+    address_id integer not null,
+    total_amount float(53),
+    status varchar(255),
+    remark varchar(255),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    primary key (id)
+);
+
+create table order_items (
+    id integer generated by default as identity,
+    order_id integer not null,
+    product_id integer not null,
+    quantity integer,
+    amount float(53),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    primary key (id)
+);
+
+alter table users_roles add constraint FK2o0jvgh89lemvvo17cbqvdxaa foreign key (user_id) references users;
+alter table users_roles add constraint FKj6m8fwv7oqv74fcehir1a9ffy foreign key (role_id) references roles;
+alter table profiles add constraint FK410q61iev7klncmpqfuo85ivh foreign key (user_id) references users;
+alter table addresses add constraint FK1fa36y2oqhao3wgg2rw1pi459 foreign key (user_id) references users;
+alter table categories add constraint FKghuylkwuedgl2qahxjt8g41kb foreign key (user_id) references users;
+alter table products add constraint FKdb050tk37qryv15hd932626th foreign key (user_id) references users;
+alter table products add constraint FKog2rp4qthbtt2lfyhfo32lsw9 foreign key (category_id) references categories;
+alter table carts add constraint FKb5o626f86h46m4s7ms6ginnop foreign key (user_id) references users;
+alter table cart_items add constraint FKpcttvuq4mxppo8sxggjtn5i2c foreign key (cart_id) references carts;
+alter table cart_items add constraint FK1re40cjegsfvw58xrkdp6bac6 foreign key (product_id) references products;
+alter table orders add constraint FK32ql8ubntj5uh44ph9659tiih foreign key (user_id) references users;
+alter table orders add constraint FKhlglkvf5i60dv6dn397ethgpt foreign key (address_id) references addresses;
+alter table order_items add constraint FKbioxgbv59vetrxe0ejfubep1w foreign key (order_id) references orders;
+alter table order_items add constraint FKocimc7dtr037rh4ls4l95nlfi foreign key (product_id) references products;
@@ -0,0 +1,51 @@
+-- In-place changes that used to run before Hibernate on every start-up, while the
+-- schema was managed by ddl-auto=update. A database that ran them under such a build
+-- may already have their result, so each step checks first.
+DO $$
+DECLARE
+    target text;
+BEGIN
+    -- tokens carry jti and roles claims and outgrow varchar(255)
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'users' AND column_name = 'token' AND data_type = 'character varying') THEN
+        ALTER TABLE users ALTER COLUMN token TYPE text;
+    END IF;
+
+    -- public order ids were UUID strings in varchar; native uuid takes 16 bytes and
+    -- compares as a number. Every stored value came from UUID.toString, so the cast holds.
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'orders' AND column_name = 'order_id' AND data_type = 'character varying') THEN
+        ALTER TABLE orders ALTER COLUMN order_id TYPE uuid USING order_id::uuid;
+    END IF;
+
+    -- identity ids move to <table>_seq sequences stepping by the allocation size (50)
+    -- so Hibernate can batch inserts. Existing ids stay as they are; the sequence is
+    -- set to the current maximum and the pooled optimizer hands out ids above it.
+    FOREACH target IN ARRAY ARRAY['addresses', 'carts', 'cart_items', 'categories', 'orders',
+                                  'order_items', 'products', 'profiles', 'users'] LOOP
+        IF EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_name = target AND column_name = 'id' AND is_identity = 'YES') THEN
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY', target);
+            EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I START WITH 1 INCREMENT BY 50', target || '_seq');
+            EXECUTE format('SELECT setval(%L, max(id)) FROM %I HAVING max(id) IS NOT NULL', target || '_seq', target);
+        END IF;
+    END LOOP;
+
+    -- a cart holds one line per product, enforced by uk_cart_items_cart_product. Before
+    -- adding the constraint, fold duplicate lines into the oldest one.
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_cart_items_cart_product') THEN
+        UPDATE cart_items c SET quantity = d.total
+        FROM (SELECT min(id) AS keep, sum(quantity) AS total
+              FROM cart_items GROUP BY cart_id, product_id HAVING count(*) > 1) d
+        WHERE c.id = d.keep;
+
+        DELETE FROM cart_items c USING cart_items k
+        WHERE k.cart_id = c.cart_id AND k.product_id = c.product_id AND k.id < c.id;
+
+        ALTER TABLE cart_items ADD CONSTRAINT uk_cart_items_cart_product UNIQUE (cart_id, product_id);
+    END IF;
+
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_orders_order_id') THEN
+        ALTER TABLE orders ADD CONSTRAINT uk_orders_order_id UNIQUE (order_id);
+    END IF;
+END $$;
@@ -0,0 +1,47 @@
+-- Tables and columns added on top of the baseline schema. A database that ran a build
+-- with ddl-auto=update after these were introduced already has some of them, hence
+-- the if-not-exists guards.
+
+-- optimistic locking (@Version) on the rows edited through If-Match
+alter table addresses add column if not exists version bigint default 0;
+alter table products add column if not exists version bigint default 0;
+alter table carts add column if not exists version bigint default 0;
+alter table orders add column if not exists version bigint default 0;
+
+-- carts.subtotal is maintained incrementally; seed it from the lines already in the cart
+alter table carts add column if not exists subtotal float(53) default 0;
+
+update carts c set subtotal = t.subtotal
+from (select ci.cart_id, sum(ci.quantity * p.price) as subtotal
+      from cart_items ci join products p on p.id = ci.product_id
+      group by ci.cart_id) t
+where c.id = t.cart_id;
+
+create sequence if not exists stock_reservations_seq start with 1 increment by 50;
+
+create table if not exists stock_reservations (
+    id integer not null,
+    user_id integer not null,
+    product_id integer not null,
+    quantity integer not null,
+    expires_at bigint not null,
+    created_at timestamp(6),
+    primary key (id),
+    constraint FKfk30u9q7gbasa8n0qcihpmdfu foreign key (user_id) references users,
+    constraint FKbvnv40iyf8tf31cs26ejqk5vl foreign key (product_id) references products
+);
+
+create sequence if not exists revoked_tokens_seq start with 1 increment by 50;
+
+create table if not exists revoked_tokens (
+    id integer not null,
+    jti varchar(64) not null unique,
+    expires_at bigint not null,
+    created_at timestamp(6),
+    primary key (id)
+);
+
+insert into roles (name, created_at, updated_at) values
+    ('ROLE_USER', now(), now()),
+    ('ROLE_ADMIN', now(), now())
+on conflict (name) do nothing;
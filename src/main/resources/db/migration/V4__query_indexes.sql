@@ -0,0 +1,37 @@
+-- Indexes behind the repository queries. Postgres does not index foreign keys on its
+-- own, so every per-owner lookup (findAllByUserEntity, findAllByCartEntity, ...) and
+-- every cascade check on delete would otherwise scan the child table. Columns already
+-- leading a unique constraint (carts.user_id, profiles.user_id, cart_items.cart_id)
+-- are covered and left out. IndexVerifier fails start-up when one of these is missing.
+
+-- findFirstByToken runs on every authenticated request; tokens are long and only
+-- compared for equality, which a hash index serves without storing them in a b-tree
+create index if not exists users_token_idx on users using hash (token);
+
+create index if not exists users_roles_user_id_idx on users_roles (user_id);
+create index if not exists users_roles_role_id_idx on users_roles (role_id);
+
+create index if not exists addresses_user_id_idx on addresses (user_id);
+
+create index if not exists categories_user_id_idx on categories (user_id);
+
+-- findByUserEntityAndName, findNamesByUserId and the per-user product lists
+create index if not exists products_user_id_name_idx on products (user_id, name);
+create index if not exists products_category_id_idx on products (category_id);
+
+create index if not exists cart_items_product_id_idx on cart_items (product_id);
+
+create index if not exists orders_address_id_idx on orders (address_id);
+-- keyset pages of a user's order history
+create index if not exists idx_orders_user_created on orders (user_id, created_at, id);
+
+create index if not exists order_items_order_id_idx on order_items (order_id);
+create index if not exists order_items_product_id_idx on order_items (product_id);
+
+create index if not exists stock_reservations_product_id_idx on stock_reservations (product_id);
+-- the expiry sweep and the per-user reservation lookup
+create index if not exists stock_reservations_expires_at_idx on stock_reservations (expires_at);
+create index if not exists stock_reservations_user_product_idx on stock_reservations (user_id, product_id);
+
+-- the revocation sync and purge both range over expires_at
+create index if not exists revoked_tokens_expires_at_idx on revoked_tokens (expires_at);
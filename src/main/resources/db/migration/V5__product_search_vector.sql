@@ -0,0 +1,10 @@
+-- Full-text search column and index behind PostgresProductSearchEngine. Adding a stored
+-- generated column rewrites products under an exclusive lock, so it runs here once
+-- rather than from the application on start-up.
+ALTER TABLE products ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('simple', coalesce(name, '')), 'A') ||
+        setweight(to_tsvector('simple', coalesce(description, '')), 'B')
+    ) STORED;
+
+CREATE INDEX IF NOT EXISTS products_search_vector_idx ON products USING GIN (search_vector);
@@ -0,0 +1,10 @@
+-- The price each cart line was last added at. carts.subtotal moves by deltas computed
+-- from it, so seed it from the current prices and recount the subtotals to match.
+alter table cart_items add column if not exists unit_price float(53);
+
+update cart_items ci set unit_price = p.price
+from products p
+where p.id = ci.product_id and ci.unit_price is null;
+
+update carts c set subtotal = coalesce((select sum(ci.quantity * ci.unit_price)
+                                        from cart_items ci where ci.cart_id = c.id), 0);
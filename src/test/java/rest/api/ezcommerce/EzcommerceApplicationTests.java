@@ -1,13 +1,28 @@
 package rest.api.ezcommerce;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import rest.api.ezcommerce.repository.IndexVerifier;
+
 @SpringBootTest
 class EzcommerceApplicationTests {
 
+	@Autowired
+	private IndexVerifier indexVerifier;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void migrationsCreateExpectedIndexes() {
+		assertEquals(List.of(), indexVerifier.missingIndexes());
+	}
+
 }
@@ -13,6 +13,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -33,6 +34,7 @@ import rest.api.ezcommerce.model.UpdateAddressRequest;
 import rest.api.ezcommerce.model.WebResponse;
 import rest.api.ezcommerce.repository.AddressRepository;
 import rest.api.ezcommerce.repository.RoleRepository;
+import rest.api.ezcommerce.repository.StockReservationRepository;
 import rest.api.ezcommerce.repository.UserRepository;
 import rest.api.ezcommerce.security.JwtUtil;
 import rest.api.ezcommerce.security.SecurityConstants;
@@ -48,6 +50,9 @@ public class AddressControllerTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
     @Autowired
     private RoleRepository roleRepository;
 
@@ -81,6 +86,7 @@ public class AddressControllerTest {
     @BeforeEach
     void setUp() {                
 
+        stockReservationRepository.deleteAll();
         addressRepository.deleteAll();
         userRepository.deleteAll();
 
@@ -1151,6 +1157,63 @@ public class AddressControllerTest {
         });
     }
 
+    @Test
+    void testUpdateAddressIfMatchStale() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        AddressEntity addr = new AddressEntity();
+        addr.setTitle(title);
+        addr.setAddress(address);
+        addr.setCountry(country);
+        addr.setCity(city);
+        addr.setPostalCode(postalCode);
+        addr.setUserEntity(user);
+        addressRepository.save(addr);
+
+        UpdateAddressRequest request = new UpdateAddressRequest();
+        request.setCity(city + "updated");
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        mockMvc.perform(
+                get("/api/addresses/" + addr.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk(),
+                header().string(HttpHeaders.ETAG, "\"0\"")
+        );
+
+        mockMvc.perform(
+                patch("/api/addresses/" + addr.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)
+                        .header(HttpHeaders.IF_MATCH, "\"7\"")
+        ).andExpectAll(
+                status().isPreconditionFailed()
+        ).andDo(result -> {
+                WebResponse<AddressResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(false, response.getStatus());
+        });
+
+        assertEquals(city, addressRepository.findById(addr.getId()).orElseThrow().getCity());
+    }
+
     @Test
     void testUpdateAddressDuplicate() throws Exception {
         UserEntity user = userRepository.findByEmail(email).orElse(null);
@@ -28,9 +28,11 @@ import rest.api.ezcommerce.model.LoginUserRequest;
 import rest.api.ezcommerce.model.TokenResponse;
 import rest.api.ezcommerce.model.WebResponse;
 import rest.api.ezcommerce.repository.RoleRepository;
+import rest.api.ezcommerce.repository.StockReservationRepository;
 import rest.api.ezcommerce.repository.UserRepository;
 import rest.api.ezcommerce.security.JwtUtil;
 import rest.api.ezcommerce.security.SecurityConstants;
+import rest.api.ezcommerce.security.TokenRevocationStore;
 
 @EnableWebMvc
 @SpringBootTest
@@ -43,6 +45,9 @@ public class AuthControllerTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
     @Autowired
     private RoleRepository roleRepository;
 
@@ -58,6 +63,9 @@ public class AuthControllerTest {
     @Autowired
     private SecurityConstants securityConstants;
 
+    @Autowired
+    private TokenRevocationStore revocationStore;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -67,6 +75,7 @@ public class AuthControllerTest {
     @BeforeEach
     void setUp() {                
 
+        stockReservationRepository.deleteAll();
         userRepository.deleteAll();
 
         RoleEntity role = roleRepository.findByName("ROLE_USER").orElse(null);
@@ -154,6 +163,48 @@ public class AuthControllerTest {
         });
     }
 
+    @Test
+    void testLogoutRevokesToken() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+        
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+        
+        mockMvc.perform(
+            delete("/api/auth/logout")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)   
+                        .header("Authorization", mockBearerToken)                                            
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        assertEquals(true, revocationStore.isRevoked(jwtUtil.parseToken(mockToken).getId()));
+
+        mockMvc.perform(
+            get("/api/users")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Authorization", mockBearerToken)                                            
+        ).andExpectAll(
+                status().isUnauthorized()
+        ).andDo(result -> {
+                WebResponse<TokenResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(false, response.getStatus());
+        });
+    }
+
     @Test
     void testLogoutInvalidToken() throws Exception {
         UserEntity user = userRepository.findByEmail(email).orElse(null);
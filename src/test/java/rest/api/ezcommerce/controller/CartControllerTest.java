@@ -29,6 +29,7 @@ import rest.api.ezcommerce.model.CartResponse;
 import rest.api.ezcommerce.model.WebResponse;
 import rest.api.ezcommerce.repository.CartRepository;
 import rest.api.ezcommerce.repository.RoleRepository;
+import rest.api.ezcommerce.repository.StockReservationRepository;
 import rest.api.ezcommerce.repository.UserRepository;
 import rest.api.ezcommerce.security.JwtUtil;
 import rest.api.ezcommerce.security.SecurityConstants;
@@ -44,6 +45,9 @@ public class CartControllerTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
     @Autowired
     private RoleRepository roleRepository;
 
@@ -71,6 +75,7 @@ public class CartControllerTest {
     @BeforeEach
     void setUp() {                
                 
+        stockReservationRepository.deleteAll();
         cartRepository.deleteAll();          
         userRepository.deleteAll();
 
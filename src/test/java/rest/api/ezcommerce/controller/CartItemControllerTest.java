@@ -9,6 +9,7 @@ import java.util.Collections;
 import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -18,12 +19,15 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import rest.api.ezcommerce.cart.CachedCartStore;
 import rest.api.ezcommerce.entity.CartEntity;
 import rest.api.ezcommerce.entity.CartItemEntity;
 import rest.api.ezcommerce.entity.CategoryEntity;
@@ -31,16 +35,22 @@ import rest.api.ezcommerce.entity.ProductEntity;
 import rest.api.ezcommerce.entity.RoleEntity;
 import rest.api.ezcommerce.entity.UserEntity;
 import rest.api.ezcommerce.model.CartItemResponse;
+import rest.api.ezcommerce.model.CartSummaryResponse;
 import rest.api.ezcommerce.model.RegisterCartItemRequest;
+import rest.api.ezcommerce.model.SyncCartItemRequest;
+import rest.api.ezcommerce.model.SyncCartItemsRequest;
+import rest.api.ezcommerce.model.UpdateCartItemRequest;
 import rest.api.ezcommerce.model.WebResponse;
 import rest.api.ezcommerce.repository.CartItemRepository;
 import rest.api.ezcommerce.repository.CartRepository;
 import rest.api.ezcommerce.repository.CategoryRepository;
 import rest.api.ezcommerce.repository.ProductRepository;
 import rest.api.ezcommerce.repository.RoleRepository;
+import rest.api.ezcommerce.repository.StockReservationRepository;
 import rest.api.ezcommerce.repository.UserRepository;
 import rest.api.ezcommerce.security.JwtUtil;
 import rest.api.ezcommerce.security.SecurityConstants;
+import rest.api.ezcommerce.service.CartService;
 
 @EnableWebMvc
 @SpringBootTest
@@ -53,6 +63,9 @@ public class CartItemControllerTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
     @Autowired
     private RoleRepository roleRepository;
 
@@ -68,6 +81,9 @@ public class CartItemControllerTest {
     @Autowired
     private CartItemRepository cartItemRepository;
 
+    @Autowired
+    private CartService cartService;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
@@ -97,6 +113,7 @@ public class CartItemControllerTest {
     @BeforeEach
     void setUp() {                
         
+        stockReservationRepository.deleteAll();
         cartItemRepository.deleteAll();
         cartRepository.deleteAll();  
         productRepository.deleteAll();              
@@ -481,6 +498,7 @@ public class CartItemControllerTest {
         item.setProductEntity(product);
         item.setCartEntity(cart);
         item.setQuantity(productQuantity);
+        item.setUnitPrice(productPrice);
         cartItemRepository.save(item);       
         
         Authentication authentication = authenticationManager.authenticate(
@@ -538,6 +556,7 @@ public class CartItemControllerTest {
         item.setProductEntity(product);
         item.setCartEntity(cart);
         item.setQuantity(productQuantity);
+        item.setUnitPrice(productPrice);
         cartItemRepository.save(item);       
         
         Authentication authentication = authenticationManager.authenticate(
@@ -595,6 +614,7 @@ public class CartItemControllerTest {
         item.setProductEntity(product);
         item.setCartEntity(cart);
         item.setQuantity(productQuantity);
+        item.setUnitPrice(productPrice);
         cartItemRepository.save(item);       
         
         Authentication authentication = authenticationManager.authenticate(
@@ -652,6 +672,7 @@ public class CartItemControllerTest {
         item.setProductEntity(product);
         item.setCartEntity(cart);
         item.setQuantity(productQuantity);
+        item.setUnitPrice(productPrice);
         cartItemRepository.save(item);       
         
         Authentication authentication = authenticationManager.authenticate(
@@ -711,6 +732,7 @@ public class CartItemControllerTest {
         item.setProductEntity(product);
         item.setCartEntity(cart);
         item.setQuantity(productQuantity);
+        item.setUnitPrice(productPrice);
         cartItemRepository.save(item);       
         
         Authentication authentication = authenticationManager.authenticate(
@@ -768,6 +790,7 @@ public class CartItemControllerTest {
         item.setProductEntity(product);
         item.setCartEntity(cart);
         item.setQuantity(productQuantity);
+        item.setUnitPrice(productPrice);
         cartItemRepository.save(item);       
         
         Authentication authentication = authenticationManager.authenticate(
@@ -825,6 +848,7 @@ public class CartItemControllerTest {
         item.setProductEntity(product);
         item.setCartEntity(cart);
         item.setQuantity(productQuantity);
+        item.setUnitPrice(productPrice);
         cartItemRepository.save(item);       
         
         Authentication authentication = authenticationManager.authenticate(
@@ -882,6 +906,7 @@ public class CartItemControllerTest {
         item.setProductEntity(product);
         item.setCartEntity(cart);
         item.setQuantity(productQuantity);
+        item.setUnitPrice(productPrice);
         cartItemRepository.save(item);       
         
         Authentication authentication = authenticationManager.authenticate(
@@ -939,6 +964,7 @@ public class CartItemControllerTest {
         item.setProductEntity(product);
         item.setCartEntity(cart);
         item.setQuantity(productQuantity);
+        item.setUnitPrice(productPrice);
         cartItemRepository.save(item);       
         
         Authentication authentication = authenticationManager.authenticate(
@@ -996,6 +1022,7 @@ public class CartItemControllerTest {
         item.setProductEntity(product);
         item.setCartEntity(cart);
         item.setQuantity(productQuantity);
+        item.setUnitPrice(productPrice);
         cartItemRepository.save(item);       
         
         Authentication authentication = authenticationManager.authenticate(
@@ -1053,6 +1080,7 @@ public class CartItemControllerTest {
         item.setProductEntity(product);
         item.setCartEntity(cart);
         item.setQuantity(productQuantity);
+        item.setUnitPrice(productPrice);
         cartItemRepository.save(item);       
         
         Authentication authentication = authenticationManager.authenticate(
@@ -1112,6 +1140,7 @@ public class CartItemControllerTest {
         item.setProductEntity(product);
         item.setCartEntity(cart);
         item.setQuantity(productQuantity);
+        item.setUnitPrice(productPrice);
         cartItemRepository.save(item);       
         
         Authentication authentication = authenticationManager.authenticate(
@@ -1141,4 +1170,993 @@ public class CartItemControllerTest {
             assertEquals(false, response.getStatus());            
         });
     }
+
+    @Test
+    void testCartSummaryTracksItems() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        ProductEntity product = new ProductEntity();
+        product.setName(productName);
+        product.setDescription(productDescription);
+        product.setPrice(productPrice);
+        product.setStock(productStock);
+        product.setCategoryEntity(category);
+        product.setUserEntity(user);
+        productRepository.save(product);
+
+        ProductEntity other = new ProductEntity();
+        other.setName("DJI Gimbal");
+        other.setDescription(productDescription);
+        other.setPrice(10.0);
+        other.setStock(productStock);
+        other.setCategoryEntity(category);
+        other.setUserEntity(user);
+        productRepository.save(other);
+
+        CartEntity cart = new CartEntity();
+        cart.setTotalItems(0);
+        cart.setSubtotal(0.0);
+        cart.setUserEntity(user);
+        cartRepository.save(cart);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        Integer[] itemIds = new Integer[2];
+        Integer[] productIds = { product.getId(), other.getId() };
+        Integer[] quantities = { productQuantity, 2 };
+
+        for (int i = 0; i < quantities.length; i++) {
+            RegisterCartItemRequest request = new RegisterCartItemRequest();
+            request.setIdProduct(productIds[i]);
+            request.setQuantity(quantities[i]);
+
+            int index = i;
+
+            mockMvc.perform(
+                    post("/api/carts/items")
+                            .accept(MediaType.APPLICATION_JSON)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request))
+                            .header("Authorization", mockBearerToken)
+            ).andExpectAll(
+                    status().isOk()
+            ).andDo(result -> {
+                    WebResponse<CartItemResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+                });
+
+                itemIds[index] = response.getData().getId();
+            });
+        }
+
+        mockMvc.perform(
+                delete("/api/carts/items/" + itemIds[0])
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        mockMvc.perform(
+                get("/api/carts/summary")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+                WebResponse<CartSummaryResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(true, response.getStatus());
+            assertEquals(cart.getId(), response.getData().getId());
+            assertEquals(2, response.getData().getTotalItems());
+            assertEquals(20.0, response.getData().getSubtotal());
+        });
+    }
+
+    @Test
+    void testReconcileRepairsDriftedCartTotals() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        ProductEntity product = new ProductEntity();
+        product.setName(productName);
+        product.setDescription(productDescription);
+        product.setPrice(productPrice);
+        product.setStock(productStock);
+        product.setCategoryEntity(category);
+        product.setUserEntity(user);
+        productRepository.save(product);
+
+        // stored totals that do not match the single item below
+        CartEntity cart = new CartEntity();
+        cart.setTotalItems(productQuantity + 4);
+        cart.setSubtotal(1.0);
+        cart.setUserEntity(user);
+        cartRepository.save(cart);
+
+        CartItemEntity item = new CartItemEntity();
+        item.setProductEntity(product);
+        item.setCartEntity(cart);
+        item.setQuantity(productQuantity);
+        item.setUnitPrice(productPrice);
+        cartItemRepository.save(item);
+
+        assertEquals(1, cartService.reconcile());
+        assertEquals(0, cartService.reconcile());
+
+        CartEntity repaired = cartRepository.findById(cart.getId()).orElse(null);
+
+        assertEquals(productQuantity, repaired.getTotalItems());
+        assertEquals(productPrice * productQuantity, repaired.getSubtotal());
+    }
+
+    // lines keep the price they were added at, so a product price change alone is not drift
+    @Test
+    void testReconcileIgnoresPriceChange() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        ProductEntity product = new ProductEntity();
+        product.setName(productName);
+        product.setDescription(productDescription);
+        product.setPrice(productPrice);
+        product.setStock(productStock);
+        product.setCategoryEntity(category);
+        product.setUserEntity(user);
+        productRepository.save(product);
+
+        CartEntity cart = new CartEntity();
+        cart.setTotalItems(productQuantity);
+        cart.setSubtotal(productPrice * productQuantity);
+        cart.setUserEntity(user);
+        cartRepository.save(cart);
+
+        CartItemEntity item = new CartItemEntity();
+        item.setProductEntity(product);
+        item.setCartEntity(cart);
+        item.setQuantity(productQuantity);
+        item.setUnitPrice(productPrice);
+        cartItemRepository.save(item);
+
+        assertEquals(0, cartService.reconcile());
+
+        product.setPrice(productPrice * 2);
+        productRepository.save(product);
+
+        assertEquals(0, cartService.reconcile());
+
+        assertEquals(productPrice, cartItemRepository.findById(item.getId()).orElse(null).getUnitPrice());
+        assertEquals(productPrice * productQuantity, cartRepository.findById(cart.getId()).orElse(null).getSubtotal());
+    }
+
+    // the line is worth what it was added at, whatever the product costs by the time it leaves the cart
+    @Test
+    void testRemoveCartItemAfterPriceChange() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        ProductEntity product = new ProductEntity();
+        product.setName(productName);
+        product.setDescription(productDescription);
+        product.setPrice(productPrice);
+        product.setStock(productStock);
+        product.setCategoryEntity(category);
+        product.setUserEntity(user);
+        productRepository.save(product);
+
+        CartEntity cart = new CartEntity();
+        cart.setTotalItems(0);
+        cart.setSubtotal(0.0);
+        cart.setUserEntity(user);
+        cartRepository.save(cart);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        RegisterCartItemRequest request = new RegisterCartItemRequest();
+        request.setIdProduct(product.getId());
+        request.setQuantity(productQuantity);
+
+        MvcResult added = mockMvc.perform(
+                post("/api/carts/items")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk()
+        ).andReturn();
+
+        WebResponse<CartItemResponse> response = objectMapper.readValue(added.getResponse().getContentAsString(), new TypeReference<>() {
+        });
+
+        assertEquals(productPrice * productQuantity, cartRepository.findById(cart.getId()).orElse(null).getSubtotal());
+
+        product.setPrice(productPrice * 2);
+        productRepository.save(product);
+
+        mockMvc.perform(
+                delete("/api/carts/items/" + response.getData().getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        CartEntity emptied = cartRepository.findById(cart.getId()).orElse(null);
+
+        assertEquals(0, emptied.getTotalItems());
+        assertEquals(0.0, emptied.getSubtotal());
+    }
+
+    @Test
+    void testRegisterCartItemMergesLine() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        ProductEntity product = new ProductEntity();
+        product.setName(productName);
+        product.setDescription(productDescription);
+        product.setPrice(productPrice);
+        product.setStock(productStock);
+        product.setCategoryEntity(category);
+        product.setUserEntity(user);
+        productRepository.save(product);
+
+        CartEntity cart = new CartEntity();
+        cart.setTotalItems(productQuantity);
+        cart.setSubtotal(productPrice * productQuantity);
+        cart.setUserEntity(user);
+        cartRepository.save(cart);
+
+        CartItemEntity item = new CartItemEntity();
+        item.setProductEntity(product);
+        item.setCartEntity(cart);
+        item.setQuantity(productQuantity);
+        item.setUnitPrice(productPrice);
+        cartItemRepository.save(item);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        RegisterCartItemRequest request = new RegisterCartItemRequest();
+        request.setIdProduct(product.getId());
+        request.setQuantity(2);
+
+        mockMvc.perform(
+                post("/api/carts/items")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+                WebResponse<CartItemResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(true, response.getStatus());
+            assertEquals(item.getId(), response.getData().getId());
+            assertEquals(productQuantity + 2, response.getData().getQuantity());
+        });
+
+        assertEquals(1, cartItemRepository.findAllByCartEntity(cart).size());
+        assertEquals(productQuantity + 2, cartRepository.findById(cart.getId()).orElse(null).getTotalItems());
+    }
+
+    @Test
+    void testUpdateCartItemQuantity() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        ProductEntity product = new ProductEntity();
+        product.setName(productName);
+        product.setDescription(productDescription);
+        product.setPrice(productPrice);
+        product.setStock(productStock);
+        product.setCategoryEntity(category);
+        product.setUserEntity(user);
+        productRepository.save(product);
+
+        CartEntity cart = new CartEntity();
+        cart.setTotalItems(productQuantity);
+        cart.setSubtotal(productPrice * productQuantity);
+        cart.setUserEntity(user);
+        cartRepository.save(cart);
+
+        CartItemEntity item = new CartItemEntity();
+        item.setProductEntity(product);
+        item.setCartEntity(cart);
+        item.setQuantity(productQuantity);
+        item.setUnitPrice(productPrice);
+        cartItemRepository.save(item);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        UpdateCartItemRequest request = new UpdateCartItemRequest();
+        request.setQuantity(2);
+
+        mockMvc.perform(
+                patch("/api/carts/items/" + item.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+                WebResponse<CartItemResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(true, response.getStatus());
+            assertEquals(item.getId(), response.getData().getId());
+            assertEquals(2, response.getData().getQuantity());
+        });
+
+        CartEntity updated = cartRepository.findById(cart.getId()).orElse(null);
+
+        assertEquals(2, updated.getTotalItems());
+        assertEquals(productPrice * 2, updated.getSubtotal());
+    }
+
+    @Test
+    void testUpdateCartItemQuantityZero() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        ProductEntity product = new ProductEntity();
+        product.setName(productName);
+        product.setDescription(productDescription);
+        product.setPrice(productPrice);
+        product.setStock(productStock);
+        product.setCategoryEntity(category);
+        product.setUserEntity(user);
+        productRepository.save(product);
+
+        CartEntity cart = new CartEntity();
+        cart.setTotalItems(productQuantity);
+        cart.setSubtotal(productPrice * productQuantity);
+        cart.setUserEntity(user);
+        cartRepository.save(cart);
+
+        CartItemEntity item = new CartItemEntity();
+        item.setProductEntity(product);
+        item.setCartEntity(cart);
+        item.setQuantity(productQuantity);
+        item.setUnitPrice(productPrice);
+        cartItemRepository.save(item);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        UpdateCartItemRequest request = new UpdateCartItemRequest();
+        request.setQuantity(0);
+
+        mockMvc.perform(
+                patch("/api/carts/items/" + item.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isBadRequest()
+        ).andDo(result -> {
+                WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(false, response.getStatus());
+        });
+    }
+
+    @Test
+    void testSyncCartItems() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        ProductEntity product = new ProductEntity();
+        product.setName(productName);
+        product.setDescription(productDescription);
+        product.setPrice(productPrice);
+        product.setStock(productStock);
+        product.setCategoryEntity(category);
+        product.setUserEntity(user);
+        productRepository.save(product);
+
+        CartEntity cart = new CartEntity();
+        cart.setTotalItems(productQuantity);
+        cart.setSubtotal(productPrice * productQuantity);
+        cart.setUserEntity(user);
+        cartRepository.save(cart);
+
+        CartItemEntity item = new CartItemEntity();
+        item.setProductEntity(product);
+        item.setCartEntity(cart);
+        item.setQuantity(productQuantity);
+        item.setUnitPrice(productPrice);
+        cartItemRepository.save(item);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        ProductEntity other = new ProductEntity();
+        other.setName("DJI Gimbal");
+        other.setDescription(productDescription);
+        other.setPrice(10.0);
+        other.setStock(productStock);
+        other.setCategoryEntity(category);
+        other.setUserEntity(user);
+        productRepository.save(other);
+
+        SyncCartItemsRequest request = new SyncCartItemsRequest();
+        request.setItems(List.of(new SyncCartItemRequest(product.getId(), 0), new SyncCartItemRequest(other.getId(), 3)));
+
+        mockMvc.perform(
+                put("/api/carts/items")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+                WebResponse<List<CartItemResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(true, response.getStatus());
+            assertEquals(1, response.getData().size());
+            assertEquals(other.getName(), response.getData().get(0).getProductName());
+            assertEquals(3, response.getData().get(0).getQuantity());
+        });
+
+        CartEntity synced = cartRepository.findById(cart.getId()).orElse(null);
+
+        assertEquals(3, synced.getTotalItems());
+        assertEquals(30.0, synced.getSubtotal());
+    }
+
+    @Test
+    void testSyncCartItemsDuplicateProduct() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        ProductEntity product = new ProductEntity();
+        product.setName(productName);
+        product.setDescription(productDescription);
+        product.setPrice(productPrice);
+        product.setStock(productStock);
+        product.setCategoryEntity(category);
+        product.setUserEntity(user);
+        productRepository.save(product);
+
+        CartEntity cart = new CartEntity();
+        cart.setTotalItems(productQuantity);
+        cart.setSubtotal(productPrice * productQuantity);
+        cart.setUserEntity(user);
+        cartRepository.save(cart);
+
+        CartItemEntity item = new CartItemEntity();
+        item.setProductEntity(product);
+        item.setCartEntity(cart);
+        item.setQuantity(productQuantity);
+        item.setUnitPrice(productPrice);
+        cartItemRepository.save(item);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        SyncCartItemsRequest request = new SyncCartItemsRequest();
+        request.setItems(List.of(new SyncCartItemRequest(product.getId(), 1), new SyncCartItemRequest(product.getId(), 2)));
+
+        mockMvc.perform(
+                put("/api/carts/items")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isBadRequest()
+        ).andDo(result -> {
+                WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(false, response.getStatus());
+        });
+
+        assertEquals(productQuantity, cartItemRepository.findById(item.getId()).orElse(null).getQuantity());
+    }
+
+    // the flush interval is long enough that only the explicit flush() calls below write to the database
+    @Nested
+    @TestPropertySource(properties = {
+        "cart.cache.enabled=true",
+        "cart.cache.flush-interval=3600000",
+        "cart.cache.journal.path=target/cart-journal"
+    })
+    class WriteBehind {
+
+        // fields of the enclosing instance are wired from the default context, these come from this one
+        @Autowired
+        private MockMvc mockMvc;
+
+        @Autowired
+        private UserRepository userRepository;
+
+        @Autowired
+        private CategoryRepository categoryRepository;
+
+        @Autowired
+        private ProductRepository productRepository;
+
+        @Autowired
+        private CartRepository cartRepository;
+
+        @Autowired
+        private CartItemRepository cartItemRepository;
+
+        @Autowired
+        private AuthenticationManager authenticationManager;
+
+        @Autowired
+        private JwtUtil jwtUtil;
+
+        @Autowired
+        private SecurityConstants securityConstants;
+
+        @Autowired
+        private ObjectMapper objectMapper;
+
+        @Autowired
+        private CachedCartStore cartStore;
+
+        @Autowired
+        private CartService cartService;
+
+        @Test
+        void testReadsServedBeforeFlush() throws Exception {
+            UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+            CategoryEntity category = new CategoryEntity();
+            category.setName(categoryToys);
+            category.setUserEntity(user);
+            categoryRepository.save(category);
+
+            ProductEntity product = new ProductEntity();
+            product.setName(productName);
+            product.setDescription(productDescription);
+            product.setPrice(productPrice);
+            product.setStock(productStock);
+            product.setCategoryEntity(category);
+            product.setUserEntity(user);
+            productRepository.save(product);
+
+            CartEntity cart = new CartEntity();
+            cart.setTotalItems(0);
+            cart.setSubtotal(0.0);
+            cart.setUserEntity(user);
+            cartRepository.save(cart);
+
+            Authentication authentication = authenticationManager.authenticate(
+                                                new UsernamePasswordAuthenticationToken(
+                                                    email, password)
+                                                );
+
+            String mockToken = jwtUtil.generateToken(authentication);
+
+            user.setToken(mockToken);
+            user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+            userRepository.save(user);
+
+            String mockBearerToken = "Bearer " + mockToken;
+
+            RegisterCartItemRequest request = new RegisterCartItemRequest();
+            request.setIdProduct(product.getId());
+            request.setQuantity(productQuantity);
+
+            Integer[] itemId = new Integer[1];
+
+            mockMvc.perform(
+                    post("/api/carts/items")
+                            .accept(MediaType.APPLICATION_JSON)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request))
+                            .header("Authorization", mockBearerToken)
+            ).andExpectAll(
+                    status().isOk()
+            ).andDo(result -> {
+                    WebResponse<CartItemResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+                });
+
+                itemId[0] = response.getData().getId();
+            });
+
+            assertEquals(0, cartItemRepository.findAllByCartEntity(cart).size());
+
+            mockMvc.perform(
+                    get("/api/carts/items")
+                            .accept(MediaType.APPLICATION_JSON)
+                            .header("Authorization", mockBearerToken)
+            ).andExpectAll(
+                    status().isOk()
+            ).andDo(result -> {
+                    WebResponse<List<CartItemResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+                });
+
+                assertEquals(1, response.getData().size());
+                assertEquals(itemId[0], response.getData().get(0).getId());
+                assertEquals(productQuantity, response.getData().get(0).getQuantity());
+            });
+
+            mockMvc.perform(
+                    get("/api/carts/summary")
+                            .accept(MediaType.APPLICATION_JSON)
+                            .header("Authorization", mockBearerToken)
+            ).andExpectAll(
+                    status().isOk()
+            ).andDo(result -> {
+                    WebResponse<CartSummaryResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+                });
+
+                assertEquals(productQuantity, response.getData().getTotalItems());
+                assertEquals(productPrice * productQuantity, response.getData().getSubtotal());
+            });
+
+            cartStore.flush();
+
+            List<CartItemEntity> items = cartItemRepository.findAllByCartEntity(cart);
+
+            assertEquals(1, items.size());
+            assertEquals(itemId[0], items.get(0).getId());
+            assertEquals(productQuantity, cartRepository.findById(cart.getId()).orElse(null).getTotalItems());
+        }
+
+        @Test
+        void testChangesCoalescedOnFlush() throws Exception {
+            UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+            CategoryEntity category = new CategoryEntity();
+            category.setName(categoryToys);
+            category.setUserEntity(user);
+            categoryRepository.save(category);
+
+            ProductEntity product = new ProductEntity();
+            product.setName(productName);
+            product.setDescription(productDescription);
+            product.setPrice(productPrice);
+            product.setStock(productStock);
+            product.setCategoryEntity(category);
+            product.setUserEntity(user);
+            productRepository.save(product);
+
+            CartEntity cart = new CartEntity();
+            cart.setTotalItems(0);
+            cart.setSubtotal(0.0);
+            cart.setUserEntity(user);
+            cartRepository.save(cart);
+
+            Authentication authentication = authenticationManager.authenticate(
+                                                new UsernamePasswordAuthenticationToken(
+                                                    email, password)
+                                                );
+
+            String mockToken = jwtUtil.generateToken(authentication);
+
+            user.setToken(mockToken);
+            user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+            userRepository.save(user);
+
+            String mockBearerToken = "Bearer " + mockToken;
+
+            RegisterCartItemRequest request = new RegisterCartItemRequest();
+            request.setIdProduct(product.getId());
+            request.setQuantity(productQuantity);
+
+            Integer[] itemId = new Integer[1];
+
+            mockMvc.perform(
+                    post("/api/carts/items")
+                            .accept(MediaType.APPLICATION_JSON)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request))
+                            .header("Authorization", mockBearerToken)
+            ).andExpectAll(
+                    status().isOk()
+            ).andDo(result -> {
+                    WebResponse<CartItemResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+                });
+
+                itemId[0] = response.getData().getId();
+            });
+
+            for (Integer quantity : List.of(2, 3)) {
+                UpdateCartItemRequest update = new UpdateCartItemRequest();
+                update.setQuantity(quantity);
+
+                mockMvc.perform(
+                        patch("/api/carts/items/" + itemId[0])
+                                .accept(MediaType.APPLICATION_JSON)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(update))
+                                .header("Authorization", mockBearerToken)
+                ).andExpectAll(
+                        status().isOk()
+                );
+            }
+
+            cartStore.flush();
+
+            List<CartItemEntity> items = cartItemRepository.findAllByCartEntity(cart);
+            CartEntity flushed = cartRepository.findById(cart.getId()).orElse(null);
+
+            assertEquals(1, items.size());
+            assertEquals(3, items.get(0).getQuantity());
+            assertEquals(3, flushed.getTotalItems());
+            assertEquals(productPrice * 3, flushed.getSubtotal());
+
+            mockMvc.perform(
+                    delete("/api/carts/items/" + itemId[0])
+                            .accept(MediaType.APPLICATION_JSON)
+                            .header("Authorization", mockBearerToken)
+            ).andExpectAll(
+                    status().isOk()
+            );
+
+            cartStore.flush();
+
+            assertEquals(0, cartItemRepository.findAllByCartEntity(cart).size());
+        }
+
+        @Test
+        void testJournalReplaysUnflushedChanges() throws Exception {
+            UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+            CategoryEntity category = new CategoryEntity();
+            category.setName(categoryToys);
+            category.setUserEntity(user);
+            categoryRepository.save(category);
+
+            ProductEntity product = new ProductEntity();
+            product.setName(productName);
+            product.setDescription(productDescription);
+            product.setPrice(productPrice);
+            product.setStock(productStock);
+            product.setCategoryEntity(category);
+            product.setUserEntity(user);
+            productRepository.save(product);
+
+            CartEntity cart = new CartEntity();
+            cart.setTotalItems(0);
+            cart.setSubtotal(0.0);
+            cart.setUserEntity(user);
+            cartRepository.save(cart);
+
+            Authentication authentication = authenticationManager.authenticate(
+                                                new UsernamePasswordAuthenticationToken(
+                                                    email, password)
+                                                );
+
+            String mockToken = jwtUtil.generateToken(authentication);
+
+            user.setToken(mockToken);
+            user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+            userRepository.save(user);
+
+            String mockBearerToken = "Bearer " + mockToken;
+
+            RegisterCartItemRequest request = new RegisterCartItemRequest();
+            request.setIdProduct(product.getId());
+            request.setQuantity(productQuantity);
+
+            Integer[] itemId = new Integer[1];
+
+            mockMvc.perform(
+                    post("/api/carts/items")
+                            .accept(MediaType.APPLICATION_JSON)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request))
+                            .header("Authorization", mockBearerToken)
+            ).andExpectAll(
+                    status().isOk()
+            ).andDo(result -> {
+                    WebResponse<CartItemResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+                });
+
+                itemId[0] = response.getData().getId();
+            });
+
+            assertEquals(0, cartItemRepository.findAllByCartEntity(cart).size());
+
+            // what a restart does with the journal left behind by a crash
+            cartStore.recover();
+
+            List<CartItemEntity> items = cartItemRepository.findAllByCartEntity(cart);
+
+            assertEquals(1, items.size());
+            assertEquals(itemId[0], items.get(0).getId());
+            assertEquals(productQuantity, items.get(0).getQuantity());
+            assertEquals(productQuantity, cartRepository.findById(cart.getId()).orElse(null).getTotalItems());
+        }
+
+        @Test
+        void testReconcileLeavesCachedCartsAlone() throws Exception {
+            UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+            CategoryEntity category = new CategoryEntity();
+            category.setName(categoryToys);
+            category.setUserEntity(user);
+            categoryRepository.save(category);
+
+            ProductEntity product = new ProductEntity();
+            product.setName(productName);
+            product.setDescription(productDescription);
+            product.setPrice(productPrice);
+            product.setStock(productStock);
+            product.setCategoryEntity(category);
+            product.setUserEntity(user);
+            productRepository.save(product);
+
+            CartEntity cart = new CartEntity();
+            cart.setTotalItems(0);
+            cart.setSubtotal(0.0);
+            cart.setUserEntity(user);
+            cartRepository.save(cart);
+
+            Authentication authentication = authenticationManager.authenticate(
+                                                new UsernamePasswordAuthenticationToken(
+                                                    email, password)
+                                                );
+
+            String mockToken = jwtUtil.generateToken(authentication);
+
+            user.setToken(mockToken);
+            user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+            userRepository.save(user);
+
+            String mockBearerToken = "Bearer " + mockToken;
+
+            RegisterCartItemRequest request = new RegisterCartItemRequest();
+            request.setIdProduct(product.getId());
+            request.setQuantity(productQuantity);
+
+            mockMvc.perform(
+                    post("/api/carts/items")
+                            .accept(MediaType.APPLICATION_JSON)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request))
+                            .header("Authorization", mockBearerToken)
+            ).andExpectAll(
+                    status().isOk()
+            );
+
+            cartStore.flush();
+
+            CartEntity stored = cartRepository.findById(cart.getId()).orElse(null);
+            stored.setSubtotal(0.0);
+            cartRepository.save(stored);
+
+            assertEquals(0, cartService.reconcile());
+            assertEquals(0.0, cartRepository.findById(cart.getId()).orElse(null).getSubtotal());
+
+            mockMvc.perform(
+                    get("/api/carts/summary")
+                            .accept(MediaType.APPLICATION_JSON)
+                            .header("Authorization", mockBearerToken)
+            ).andExpectAll(
+                    status().isOk()
+            ).andDo(result -> {
+                    WebResponse<CartSummaryResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+                });
+
+                assertEquals(productPrice * productQuantity, response.getData().getSubtotal());
+            });
+        }
+    }
 }
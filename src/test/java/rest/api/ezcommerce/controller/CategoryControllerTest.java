@@ -35,6 +35,7 @@ import rest.api.ezcommerce.model.WebResponse;
 import rest.api.ezcommerce.repository.CategoryRepository;
 import rest.api.ezcommerce.repository.ProductRepository;
 import rest.api.ezcommerce.repository.RoleRepository;
+import rest.api.ezcommerce.repository.StockReservationRepository;
 import rest.api.ezcommerce.repository.UserRepository;
 import rest.api.ezcommerce.security.JwtUtil;
 import rest.api.ezcommerce.security.SecurityConstants;
@@ -50,6 +51,9 @@ public class CategoryControllerTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
     @Autowired
     private RoleRepository roleRepository;
 
@@ -89,6 +93,7 @@ public class CategoryControllerTest {
     @BeforeEach
     void setUp() {                
 
+        stockReservationRepository.deleteAll();
         productRepository.deleteAll();
         categoryRepository.deleteAll();
         userRepository.deleteAll();
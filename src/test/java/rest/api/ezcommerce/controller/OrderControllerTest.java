@@ -1,11 +1,14 @@
 package rest.api.ezcommerce.controller;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
@@ -15,6 +18,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -27,22 +31,36 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import rest.api.ezcommerce.entity.AddressEntity;
+import rest.api.ezcommerce.entity.CartEntity;
+import rest.api.ezcommerce.entity.CartItemEntity;
+import rest.api.ezcommerce.entity.CategoryEntity;
 import rest.api.ezcommerce.entity.OrderEntity;
+import rest.api.ezcommerce.entity.OrderItemEntity;
+import rest.api.ezcommerce.entity.ProductEntity;
 import rest.api.ezcommerce.entity.RoleEntity;
 import rest.api.ezcommerce.entity.UserEntity;
+import rest.api.ezcommerce.model.CheckoutRequest;
+import rest.api.ezcommerce.model.OrderDetailResponse;
 import rest.api.ezcommerce.model.OrderResponse;
 import rest.api.ezcommerce.model.RegisterOrderRequest;
+import rest.api.ezcommerce.model.ReserveStockRequest;
 import rest.api.ezcommerce.model.UpdateOrderRequest;
 import rest.api.ezcommerce.model.WebResponse;
 import rest.api.ezcommerce.repository.AddressRepository;
+import rest.api.ezcommerce.repository.CartItemRepository;
+import rest.api.ezcommerce.repository.CartRepository;
 import rest.api.ezcommerce.repository.CategoryRepository;
 import rest.api.ezcommerce.repository.OrderItemRepository;
 import rest.api.ezcommerce.repository.OrderRepository;
 import rest.api.ezcommerce.repository.ProductRepository;
 import rest.api.ezcommerce.repository.RoleRepository;
+import rest.api.ezcommerce.repository.StockReservationRepository;
 import rest.api.ezcommerce.repository.UserRepository;
 import rest.api.ezcommerce.security.JwtUtil;
 import rest.api.ezcommerce.security.SecurityConstants;
+import rest.api.ezcommerce.support.QueryPlanChecker;
+import rest.api.ezcommerce.support.SqlStatementCounter;
+import rest.api.ezcommerce.support.SqlStatements;
 
 @EnableWebMvc
 @SpringBootTest
@@ -55,6 +73,9 @@ public class OrderControllerTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
     @Autowired
     private RoleRepository roleRepository;
 
@@ -73,6 +94,12 @@ public class OrderControllerTest {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
@@ -88,6 +115,12 @@ public class OrderControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private SqlStatementCounter sqlStatementCounter;
+
+    @Autowired
+    private QueryPlanChecker queryPlanChecker;
+
     private final String email = "test@gmail.com";
     private final String password = "rahasia";
 
@@ -101,11 +134,20 @@ public class OrderControllerTest {
     private final String city = "Bandung";
     private final String postalCode = "40254";
 
+    private final String categoryToys = "Toys";
+    private final String productName = "DJI Drone";
+    private final String productDescription = "DJI Drone 2K24";
+    private final Double productPrice = 25.0;
+    private final Integer productStock = 10;
+
     @BeforeEach
     void setUp() {                
         
+        stockReservationRepository.deleteAll();
         orderItemRepository.deleteAll();
         orderRepository.deleteAll();
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
         addressRepository.deleteAll();
         productRepository.deleteAll();
         categoryRepository.deleteAll();
@@ -167,11 +209,423 @@ public class OrderControllerTest {
 
             assertEquals(true, response.getStatus());
             assertNotNull(response.getData().getId());
-            assertFalse(response.getData().getOrderId().isBlank());
+            assertNotNull(response.getData().getOrderId());
+            assertEquals(7, response.getData().getOrderId().version());
+            assertEquals(2, response.getData().getOrderId().variant());
             assertEquals(request.getStatus(), response.getData().getStatus());
             assertEquals(request.getRemark(), response.getData().getRemark());
             assertEquals(request.getTotalAmount(), response.getData().getTotalAmount());
+
+            // the leading 48 bits are the creation time in millis
+            long millis = response.getData().getOrderId().getMostSignificantBits() >>> 16;
+            assertTrue(Math.abs(System.currentTimeMillis() - millis) < 60_000);
+        });
+    }
+
+    @Test
+    void testCheckoutSuccess() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        AddressEntity addr = new AddressEntity();
+        addr.setTitle(title);
+        addr.setAddress(address);
+        addr.setCountry(country);
+        addr.setCity(city);
+        addr.setPostalCode(postalCode);
+        addr.setUserEntity(user);
+        addressRepository.save(addr);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        List<ProductEntity> products = new ArrayList<>();
+
+        for (int i = 0; i < 2; i++) {
+            ProductEntity product = new ProductEntity();
+            product.setName(productName + i);
+            product.setDescription(productDescription);
+            product.setPrice(productPrice * (i + 1));
+            product.setStock(productStock);
+            product.setCategoryEntity(category);
+            product.setUserEntity(user);
+            productRepository.save(product);
+            products.add(product);
+        }
+
+        CartEntity cart = new CartEntity();
+        cart.setUserEntity(user);
+        cart.setTotalItems(0);
+        cartRepository.save(cart);
+
+        CartItemEntity item0 = new CartItemEntity();
+        item0.setCartEntity(cart);
+        item0.setProductEntity(products.get(0));
+        item0.setQuantity(3);
+        cartItemRepository.save(item0);
+
+        CartItemEntity item1 = new CartItemEntity();
+        item1.setCartEntity(cart);
+        item1.setProductEntity(products.get(1));
+        item1.setQuantity(2);
+        cartItemRepository.save(item1);
+
+        CheckoutRequest request = new CheckoutRequest(addr.getId(), orderRemark);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        mockMvc.perform(
+                post("/api/orders/checkout")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+                WebResponse<OrderResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(true, response.getStatus());
+            assertNotNull(response.getData().getOrderId());
+            assertEquals(orderStatus, response.getData().getStatus());
+            assertEquals(orderRemark, response.getData().getRemark());
+            assertEquals(productPrice * 3 + productPrice * 2 * 2, response.getData().getTotalAmount());
+
+            OrderEntity order = orderRepository.findByOrderId(response.getData().getOrderId()).orElseThrow();
+            assertEquals(2, orderItemRepository.findAllByOrderEntity(order).size());
         });
+
+        assertEquals(productStock - 3, productRepository.findById(products.get(0).getId()).orElseThrow().getStock());
+        assertEquals(productStock - 2, productRepository.findById(products.get(1).getId()).orElseThrow().getStock());
+        assertEquals(0, cartItemRepository.findAllByCartEntity(cart).size());
+    }
+
+    // the order charges what the cart shows, the price each line was added at
+    @Test
+    void testCheckoutChargesCartPrice() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        AddressEntity addr = new AddressEntity();
+        addr.setTitle(title);
+        addr.setAddress(address);
+        addr.setCountry(country);
+        addr.setCity(city);
+        addr.setPostalCode(postalCode);
+        addr.setUserEntity(user);
+        addressRepository.save(addr);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        ProductEntity product = new ProductEntity();
+        product.setName(productName);
+        product.setDescription(productDescription);
+        product.setPrice(productPrice * 2);
+        product.setStock(productStock);
+        product.setCategoryEntity(category);
+        product.setUserEntity(user);
+        productRepository.save(product);
+
+        CartEntity cart = new CartEntity();
+        cart.setUserEntity(user);
+        cart.setTotalItems(3);
+        cart.setSubtotal(productPrice * 3);
+        cartRepository.save(cart);
+
+        CartItemEntity item = new CartItemEntity();
+        item.setCartEntity(cart);
+        item.setProductEntity(product);
+        item.setQuantity(3);
+        item.setUnitPrice(productPrice);
+        cartItemRepository.save(item);
+
+        CheckoutRequest request = new CheckoutRequest(addr.getId(), orderRemark);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        mockMvc.perform(
+                post("/api/orders/checkout")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+                WebResponse<OrderResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(productPrice * 3, response.getData().getTotalAmount());
+        });
+    }
+
+    @Test
+    void testCheckoutInsufficientStock() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        AddressEntity addr = new AddressEntity();
+        addr.setTitle(title);
+        addr.setAddress(address);
+        addr.setCountry(country);
+        addr.setCity(city);
+        addr.setPostalCode(postalCode);
+        addr.setUserEntity(user);
+        addressRepository.save(addr);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        List<ProductEntity> products = new ArrayList<>();
+
+        for (int i = 0; i < 2; i++) {
+            ProductEntity product = new ProductEntity();
+            product.setName(productName + i);
+            product.setDescription(productDescription);
+            product.setPrice(productPrice * (i + 1));
+            product.setStock(productStock);
+            product.setCategoryEntity(category);
+            product.setUserEntity(user);
+            productRepository.save(product);
+            products.add(product);
+        }
+
+        CartEntity cart = new CartEntity();
+        cart.setUserEntity(user);
+        cart.setTotalItems(0);
+        cartRepository.save(cart);
+
+        CartItemEntity item0 = new CartItemEntity();
+        item0.setCartEntity(cart);
+        item0.setProductEntity(products.get(0));
+        item0.setQuantity(3);
+        cartItemRepository.save(item0);
+
+        CartItemEntity item1 = new CartItemEntity();
+        item1.setCartEntity(cart);
+        item1.setProductEntity(products.get(1));
+        item1.setQuantity(11);
+        cartItemRepository.save(item1);
+
+        CheckoutRequest request = new CheckoutRequest(addr.getId(), orderRemark);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        mockMvc.perform(
+                post("/api/orders/checkout")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isConflict()
+        ).andDo(result -> {
+                WebResponse<OrderResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(false, response.getStatus());
+        });
+
+        assertEquals(productStock, productRepository.findById(products.get(0).getId()).orElseThrow().getStock());
+        assertEquals(productStock, productRepository.findById(products.get(1).getId()).orElseThrow().getStock());
+        assertEquals(2, cartItemRepository.findAllByCartEntity(cart).size());
+        assertEquals(0, orderRepository.findAllByUserEntity(user).size());
+    }
+
+    @Test
+    void testCheckoutEmptyCart() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        AddressEntity addr = new AddressEntity();
+        addr.setTitle(title);
+        addr.setAddress(address);
+        addr.setCountry(country);
+        addr.setCity(city);
+        addr.setPostalCode(postalCode);
+        addr.setUserEntity(user);
+        addressRepository.save(addr);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        List<ProductEntity> products = new ArrayList<>();
+
+        for (int i = 0; i < 2; i++) {
+            ProductEntity product = new ProductEntity();
+            product.setName(productName + i);
+            product.setDescription(productDescription);
+            product.setPrice(productPrice * (i + 1));
+            product.setStock(productStock);
+            product.setCategoryEntity(category);
+            product.setUserEntity(user);
+            productRepository.save(product);
+            products.add(product);
+        }
+
+        CartEntity cart = new CartEntity();
+        cart.setUserEntity(user);
+        cart.setTotalItems(0);
+        cartRepository.save(cart);
+
+        CheckoutRequest request = new CheckoutRequest(addr.getId(), orderRemark);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        mockMvc.perform(
+                post("/api/orders/checkout")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isBadRequest()
+        ).andDo(result -> {
+                WebResponse<OrderResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(false, response.getStatus());
+        });
+    }
+
+    @Test
+    void testCheckoutConsumesReservation() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        AddressEntity addr = new AddressEntity();
+        addr.setTitle(title);
+        addr.setAddress(address);
+        addr.setCountry(country);
+        addr.setCity(city);
+        addr.setPostalCode(postalCode);
+        addr.setUserEntity(user);
+        addressRepository.save(addr);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        List<ProductEntity> products = new ArrayList<>();
+
+        for (int i = 0; i < 2; i++) {
+            ProductEntity product = new ProductEntity();
+            product.setName(productName + i);
+            product.setDescription(productDescription);
+            product.setPrice(productPrice * (i + 1));
+            product.setStock(productStock);
+            product.setCategoryEntity(category);
+            product.setUserEntity(user);
+            productRepository.save(product);
+            products.add(product);
+        }
+
+        CartEntity cart = new CartEntity();
+        cart.setUserEntity(user);
+        cart.setTotalItems(0);
+        cartRepository.save(cart);
+
+        CartItemEntity item0 = new CartItemEntity();
+        item0.setCartEntity(cart);
+        item0.setProductEntity(products.get(0));
+        item0.setQuantity(3);
+        cartItemRepository.save(item0);
+
+        CartItemEntity item1 = new CartItemEntity();
+        item1.setCartEntity(cart);
+        item1.setProductEntity(products.get(1));
+        item1.setQuantity(2);
+        cartItemRepository.save(item1);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        mockMvc.perform(
+                post("/api/products/" + products.get(0).getId() + "/reservations")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ReserveStockRequest(5)))
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        CheckoutRequest request = new CheckoutRequest(addr.getId(), orderRemark);
+
+        mockMvc.perform(
+                post("/api/orders/checkout")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        // 3 of the 5 reserved units were sold, the other 2 went back on the shelf
+        assertEquals(productStock - 3, productRepository.findById(products.get(0).getId()).orElseThrow().getStock());
+        assertEquals(productStock - 2, productRepository.findById(products.get(1).getId()).orElseThrow().getStock());
+        assertEquals(0, stockReservationRepository.count());
     }
 
     @Test
@@ -430,7 +884,7 @@ public class OrderControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(orderAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -484,7 +938,7 @@ public class OrderControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(orderAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -534,7 +988,7 @@ public class OrderControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(orderAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -584,7 +1038,7 @@ public class OrderControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(orderAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -634,7 +1088,7 @@ public class OrderControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(orderAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -686,7 +1140,7 @@ public class OrderControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(orderAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -722,6 +1176,60 @@ public class OrderControllerTest {
         });
     }
 
+    @Test
+    void testGetOrderDetailSingleQuery() throws Exception {
+        String mockBearerToken = saveOrders(2, orderStatus);
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+        List<OrderEntity> orders = orderRepository.findAllByUserEntity(user);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        for (int i = 0; i < 5; i++) {
+            ProductEntity product = new ProductEntity();
+            product.setName(productName + i);
+            product.setDescription(productDescription);
+            product.setPrice(productPrice);
+            product.setStock(productStock);
+            product.setCategoryEntity(category);
+            product.setUserEntity(user);
+            productRepository.save(product);
+
+            // one item on the first order, four on the second
+            OrderItemEntity item = new OrderItemEntity();
+            item.setOrderEntity(orders.get(i == 0 ? 0 : 1));
+            item.setProductEntity(product);
+            item.setQuantity(i + 1);
+            item.setAmount(productPrice * (i + 1));
+            orderItemRepository.save(item);
+        }
+
+        // the first authenticated request loads the user details, keep it out of the comparison
+        captureDetail(mockBearerToken, orders.get(0).getOrderId(), 1);
+
+        SqlStatements few = captureDetail(mockBearerToken, orders.get(0).getOrderId(), 1);
+        SqlStatements many = captureDetail(mockBearerToken, orders.get(1).getOrderId(), 4);
+
+        assertEquals(few.count(), many.count(), many.toString());
+        assertEquals(1, many.touching("order_items").count(), many.toString());
+        assertEquals(List.of(), queryPlanChecker.sequentialScans(many, 0));
+    }
+
+    @Test
+    void testGetOrderDetailNotFound() throws Exception {
+        String mockBearerToken = saveOrders(1, orderStatus);
+
+        mockMvc.perform(
+                get("/api/orders/" + UUID.randomUUID() + "/detail")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isNotFound()
+        );
+    }
+
     @Test
     void testGetOrderListSuccess() throws Exception {
         UserEntity user = userRepository.findByEmail(email).orElse(null);
@@ -736,7 +1244,7 @@ public class OrderControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(orderAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -772,6 +1280,143 @@ public class OrderControllerTest {
         });
     }
 
+    @Test
+    void testGetOrderListKeysetPages() throws Exception {
+        String mockBearerToken = saveOrders(5, orderStatus);
+
+        List<Integer> seen = new ArrayList<>();
+        String cursor = "";
+        int pages = 0;
+
+        do {
+            String body = mockMvc.perform(
+                    get("/api/orders")
+                            .param("size", "2")
+                            .param("cursor", cursor)
+                            .accept(MediaType.APPLICATION_JSON)
+                            .header("Authorization", mockBearerToken)
+            ).andExpectAll(
+                    status().isOk()
+            ).andReturn().getResponse().getContentAsString();
+
+            WebResponse<List<OrderResponse>> response = objectMapper.readValue(body, new TypeReference<>() {
+            });
+
+            assertTrue(response.getData().size() <= 2);
+            response.getData().forEach(order -> seen.add(order.getId()));
+            cursor = response.getPaging().getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(5, seen.size());
+        assertEquals(5, seen.stream().distinct().count());
+
+        // orders are saved in id order, so newest first means descending ids
+        List<Integer> expected = new ArrayList<>(seen);
+        expected.sort(Collections.reverseOrder());
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void testGetOrderListFilters() throws Exception {
+        saveOrders(3, orderStatus);
+        String mockBearerToken = saveOrders(2, "Paid");
+
+        mockMvc.perform(
+                get("/api/orders")
+                        .param("status", "Paid")
+                        .param("sort", "asc")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<OrderResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(2, response.getData().size());
+            assertTrue(response.getData().get(0).getId() < response.getData().get(1).getId());
+            response.getData().forEach(order -> assertEquals("Paid", order.getStatus()));
+            assertNull(response.getPaging().getNextCursor());
+        });
+
+        LocalDate today = LocalDate.now();
+
+        mockMvc.perform(
+                get("/api/orders")
+                        .param("from", today.toString())
+                        .param("to", today.toString())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<OrderResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(5, response.getData().size());
+        });
+
+        mockMvc.perform(
+                get("/api/orders")
+                        .param("from", today.plusDays(1).toString())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<OrderResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(0, response.getData().size());
+        });
+    }
+
+    @Test
+    void testGetOrderListBadCursor() throws Exception {
+        String mockBearerToken = saveOrders(1, orderStatus);
+
+        mockMvc.perform(
+                get("/api/orders")
+                        .param("cursor", "not-a-cursor")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isBadRequest()
+        );
+
+        mockMvc.perform(
+                get("/api/orders")
+                        .param("from", "yesterday")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isBadRequest()
+        );
+    }
+
+    @Test
+    void testGetOrderListUsesIndex() throws Exception {
+        String mockBearerToken = saveOrders(3, orderStatus);
+
+        SqlStatements statements = sqlStatementCounter.capture(() -> mockMvc.perform(
+                get("/api/orders")
+                        .param("status", orderStatus)
+                        .param("from", LocalDate.now().toString())
+                        .param("size", "2")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk()
+        ));
+
+        SqlStatements orders = statements.touching("orders");
+
+        assertEquals(1, orders.count(), statements.toString());
+        assertEquals(List.of(), queryPlanChecker.sequentialScans(orders, 0));
+    }
+
     @Test
     void testGetOrderListInvalidToken() throws Exception {
         UserEntity user = userRepository.findByEmail(email).orElse(null);
@@ -786,7 +1431,7 @@ public class OrderControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(orderAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -836,7 +1481,7 @@ public class OrderControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(orderAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -886,7 +1531,7 @@ public class OrderControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(orderAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -938,7 +1583,7 @@ public class OrderControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(orderAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -988,7 +1633,7 @@ public class OrderControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(orderAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -1033,6 +1678,78 @@ public class OrderControllerTest {
         });
     }
 
+    @Test
+    void testUpdateOrderIfMatchStale() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        AddressEntity addr = new AddressEntity();
+        addr.setTitle(title);
+        addr.setAddress(address);
+        addr.setCountry(country);
+        addr.setCity(city);
+        addr.setPostalCode(postalCode);
+        addr.setUserEntity(user);
+        addressRepository.save(addr);
+
+        OrderEntity order = new OrderEntity();
+        order.setOrderId(UUID.randomUUID());
+        order.setTotalAmount(orderAmount);
+        order.setStatus(orderStatus);
+        order.setRemark(orderRemark);
+        order.setUserEntity(user);
+        order.setAddressEntity(addr);
+        orderRepository.save(order);
+
+        UpdateOrderRequest request = new UpdateOrderRequest();
+        request.setStatus(orderStatus + " updated");
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        mockMvc.perform(
+                patch("/api/orders/" + order.getOrderId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+        ).andExpectAll(
+                status().isOk(),
+                header().string(HttpHeaders.ETAG, "\"1\"")
+        );
+
+        // replaying the same precondition must not overwrite the first write
+        request.setStatus(orderStatus + " overwritten");
+
+        mockMvc.perform(
+                patch("/api/orders/" + order.getOrderId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+        ).andExpectAll(
+                status().isPreconditionFailed()
+        ).andDo(result -> {
+                WebResponse<OrderResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(false, response.getStatus());
+        });
+
+        assertEquals(orderStatus + " updated", orderRepository.findById(order.getId()).orElseThrow().getStatus());
+    }
+
     @Test
     void testUpdateOrderInvalidToken() throws Exception {
         UserEntity user = userRepository.findByEmail(email).orElse(null);
@@ -1047,7 +1764,7 @@ public class OrderControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(orderAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -1103,7 +1820,7 @@ public class OrderControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(orderAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -1159,7 +1876,7 @@ public class OrderControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(orderAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -1215,7 +1932,7 @@ public class OrderControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(orderAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -1273,7 +1990,7 @@ public class OrderControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(orderAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -1314,4 +2031,62 @@ public class OrderControllerTest {
             assertEquals(false, response.getStatus());
         });
     }
+
+    // saves count orders for the test user and returns a bearer token for them
+    private String saveOrders(int count, String status) {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        AddressEntity addr = addressRepository.findByTitle(title).orElse(null);
+
+        if (addr == null) {
+            addr = new AddressEntity();
+            addr.setTitle(title);
+            addr.setAddress(address);
+            addr.setCountry(country);
+            addr.setCity(city);
+            addr.setPostalCode(postalCode);
+            addr.setUserEntity(user);
+            addressRepository.save(addr);
+        }
+
+        for (int i = 0; i < count; i++) {
+            OrderEntity order = new OrderEntity();
+            order.setOrderId(UUID.randomUUID());
+            order.setTotalAmount(orderAmount);
+            order.setStatus(status);
+            order.setRemark(orderRemark);
+            order.setUserEntity(user);
+            order.setAddressEntity(addr);
+            orderRepository.save(order);
+        }
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        return "Bearer " + mockToken;
+    }
+
+    private SqlStatements captureDetail(String bearerToken, UUID orderId, int expectedItems) throws Exception {
+        return sqlStatementCounter.capture(() -> mockMvc.perform(
+                    get("/api/orders/" + orderId + "/detail")
+                            .accept(MediaType.APPLICATION_JSON)
+                            .header("Authorization", bearerToken)
+            ).andExpectAll(
+                    status().isOk()
+            ).andDo(result -> {
+                    WebResponse<OrderDetailResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+                });
+                assertEquals(orderId, response.getData().getOrderId());
+                assertEquals(expectedItems, response.getData().getItems().size());
+                response.getData().getItems().forEach(item -> assertNotNull(item.getProductName()));
+            }));
+    }
 }
@@ -1,10 +1,12 @@
 package rest.api.ezcommerce.controller;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
@@ -33,6 +35,7 @@ import rest.api.ezcommerce.entity.ProductEntity;
 import rest.api.ezcommerce.entity.RoleEntity;
 import rest.api.ezcommerce.entity.UserEntity;
 import rest.api.ezcommerce.model.OrderItemResponse;
+import rest.api.ezcommerce.model.RegisterOrderItemBatchRequest;
 import rest.api.ezcommerce.model.RegisterOrderItemRequest;
 import rest.api.ezcommerce.model.WebResponse;
 import rest.api.ezcommerce.repository.AddressRepository;
@@ -41,6 +44,7 @@ import rest.api.ezcommerce.repository.OrderItemRepository;
 import rest.api.ezcommerce.repository.OrderRepository;
 import rest.api.ezcommerce.repository.ProductRepository;
 import rest.api.ezcommerce.repository.RoleRepository;
+import rest.api.ezcommerce.repository.StockReservationRepository;
 import rest.api.ezcommerce.repository.UserRepository;
 import rest.api.ezcommerce.security.JwtUtil;
 import rest.api.ezcommerce.security.SecurityConstants;
@@ -56,6 +60,9 @@ public class OrderItemControllerTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
     @Autowired
     private RoleRepository roleRepository;
 
@@ -114,6 +121,7 @@ public class OrderItemControllerTest {
     @BeforeEach
     void setUp() {                
         
+        stockReservationRepository.deleteAll();
         orderItemRepository.deleteAll();
         orderRepository.deleteAll();
         addressRepository.deleteAll();
@@ -159,7 +167,7 @@ public class OrderItemControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(productAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -208,6 +216,243 @@ public class OrderItemControllerTest {
         });
     }
 
+    @Test
+    void testRegisterOrderItemUpdatesOrderTotal() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        ProductEntity product = new ProductEntity();
+        product.setName(productName);
+        product.setDescription(productDescription);
+        product.setPrice(productPrice);
+        product.setStock(productStock);
+        product.setCategoryEntity(category);
+        product.setUserEntity(user);
+        productRepository.save(product);
+
+        AddressEntity addr = new AddressEntity();
+        addr.setTitle(title);
+        addr.setAddress(address);
+        addr.setCountry(country);
+        addr.setCity(city);
+        addr.setPostalCode(postalCode);
+        addr.setUserEntity(user);
+        addressRepository.save(addr);
+
+        OrderEntity order = new OrderEntity();
+        order.setOrderId(UUID.randomUUID());
+        order.setTotalAmount(0.0);
+        order.setStatus(orderStatus);
+        order.setRemark(orderRemark);
+        order.setUserEntity(user);
+        order.setAddressEntity(addr);
+        orderRepository.save(order);
+
+        RegisterOrderItemRequest request = new RegisterOrderItemRequest();
+        request.setIdProduct(product.getId());
+        request.setQuantity(productQuantity);
+        request.setAmount(productAmount);
+        
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(
+                    post("/api/orders/" + order.getOrderId() + "/items")
+                            .accept(MediaType.APPLICATION_JSON)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request))
+                            .header("Authorization", mockBearerToken)
+            ).andExpectAll(
+                    status().isOk()
+            );
+        }
+
+        assertEquals(productAmount * 2, orderRepository.findById(order.getId()).orElseThrow().getTotalAmount());
+    }
+
+    @Test
+    void testRegisterOrderItemBatchSuccess() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        List<ProductEntity> products = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            ProductEntity product = new ProductEntity();
+            product.setName(productName + i);
+            product.setDescription(productDescription);
+            product.setPrice(productPrice);
+            product.setStock(productStock);
+            product.setCategoryEntity(category);
+            product.setUserEntity(user);
+            productRepository.save(product);
+            products.add(product);
+        }
+
+        AddressEntity addr = new AddressEntity();
+        addr.setTitle(title);
+        addr.setAddress(address);
+        addr.setCountry(country);
+        addr.setCity(city);
+        addr.setPostalCode(postalCode);
+        addr.setUserEntity(user);
+        addressRepository.save(addr);
+
+        OrderEntity order = new OrderEntity();
+        order.setOrderId(UUID.randomUUID());
+        order.setTotalAmount(0.0);
+        order.setStatus(orderStatus);
+        order.setRemark(orderRemark);
+        order.setUserEntity(user);
+        order.setAddressEntity(addr);
+        orderRepository.save(order);
+
+        List<RegisterOrderItemRequest> items = new ArrayList<>();
+
+        for (ProductEntity product : products) {
+            items.add(new RegisterOrderItemRequest(product.getId(), productQuantity, productAmount));
+        }
+
+        RegisterOrderItemBatchRequest request = new RegisterOrderItemBatchRequest(items);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        mockMvc.perform(
+                post("/api/orders/" + order.getOrderId() + "/items/batch")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+                WebResponse<List<OrderItemResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(true, response.getStatus());
+            assertEquals(3, response.getData().size());
+
+            for (int i = 0; i < 3; i++) {
+                assertNotNull(response.getData().get(i).getId());
+                assertEquals(order.getOrderId(), response.getData().get(i).getOrderId());
+                assertEquals(products.get(i).getId(), response.getData().get(i).getProductId());
+                assertEquals(products.get(i).getName(), response.getData().get(i).getProductName());
+                assertEquals(productPrice, response.getData().get(i).getProductPrice());
+            }
+        });
+
+        assertEquals(3, orderItemRepository.findAllByOrderEntity(order).size());
+        assertEquals(productAmount * 3, orderRepository.findById(order.getId()).orElseThrow().getTotalAmount());
+    }
+
+    @Test
+    void testRegisterOrderItemBatchProductNotFound() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        List<ProductEntity> products = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            ProductEntity product = new ProductEntity();
+            product.setName(productName + i);
+            product.setDescription(productDescription);
+            product.setPrice(productPrice);
+            product.setStock(productStock);
+            product.setCategoryEntity(category);
+            product.setUserEntity(user);
+            productRepository.save(product);
+            products.add(product);
+        }
+
+        AddressEntity addr = new AddressEntity();
+        addr.setTitle(title);
+        addr.setAddress(address);
+        addr.setCountry(country);
+        addr.setCity(city);
+        addr.setPostalCode(postalCode);
+        addr.setUserEntity(user);
+        addressRepository.save(addr);
+
+        OrderEntity order = new OrderEntity();
+        order.setOrderId(UUID.randomUUID());
+        order.setTotalAmount(0.0);
+        order.setStatus(orderStatus);
+        order.setRemark(orderRemark);
+        order.setUserEntity(user);
+        order.setAddressEntity(addr);
+        orderRepository.save(order);
+
+        List<RegisterOrderItemRequest> items = new ArrayList<>();
+        items.add(new RegisterOrderItemRequest(products.get(0).getId(), productQuantity, productAmount));
+        items.add(new RegisterOrderItemRequest(products.get(2).getId() + 1000, productQuantity, productAmount));
+
+        RegisterOrderItemBatchRequest request = new RegisterOrderItemBatchRequest(items);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        mockMvc.perform(
+                post("/api/orders/" + order.getOrderId() + "/items/batch")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isNotFound()
+        ).andDo(result -> {
+                WebResponse<List<OrderItemResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(false, response.getStatus());
+        });
+
+        assertEquals(0, orderItemRepository.findAllByOrderEntity(order).size());
+    }
+
     @Test
     void testRegisterOrderItemBlank() throws Exception {
         UserEntity user = userRepository.findByEmail(email).orElse(null);
@@ -236,7 +481,7 @@ public class OrderItemControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(productAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -307,7 +552,7 @@ public class OrderItemControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(productAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -378,7 +623,7 @@ public class OrderItemControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(productAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -448,7 +693,7 @@ public class OrderItemControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(productAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -518,7 +763,7 @@ public class OrderItemControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(productAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -590,7 +835,7 @@ public class OrderItemControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(productAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -660,7 +905,7 @@ public class OrderItemControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(productAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -731,7 +976,7 @@ public class OrderItemControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(productAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -802,7 +1047,7 @@ public class OrderItemControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(productAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -873,7 +1118,7 @@ public class OrderItemControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(productAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -944,7 +1189,7 @@ public class OrderItemControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(productAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -1017,7 +1262,7 @@ public class OrderItemControllerTest {
         addressRepository.save(addr);
 
         OrderEntity order = new OrderEntity();
-        order.setOrderId(UUID.randomUUID().toString());
+        order.setOrderId(UUID.randomUUID());
         order.setTotalAmount(productAmount);
         order.setStatus(orderStatus);
         order.setRemark(orderRemark);
@@ -2,22 +2,35 @@ package rest.api.ezcommerce.controller;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -27,16 +40,26 @@ import rest.api.ezcommerce.entity.CategoryEntity;
 import rest.api.ezcommerce.entity.ProductEntity;
 import rest.api.ezcommerce.entity.RoleEntity;
 import rest.api.ezcommerce.entity.UserEntity;
+import rest.api.ezcommerce.model.ImportProductError;
+import rest.api.ezcommerce.model.ImportProductRequest;
+import rest.api.ezcommerce.model.ImportProductResponse;
 import rest.api.ezcommerce.model.ProductResponse;
 import rest.api.ezcommerce.model.RegisterProductRequest;
+import rest.api.ezcommerce.model.ReserveStockRequest;
+import rest.api.ezcommerce.model.SearchProductRequest;
+import rest.api.ezcommerce.model.UpdateCategoryRequest;
 import rest.api.ezcommerce.model.UpdateProductRequest;
 import rest.api.ezcommerce.model.WebResponse;
 import rest.api.ezcommerce.repository.CategoryRepository;
 import rest.api.ezcommerce.repository.ProductRepository;
 import rest.api.ezcommerce.repository.RoleRepository;
+import rest.api.ezcommerce.repository.StockReservationRepository;
 import rest.api.ezcommerce.repository.UserRepository;
+import rest.api.ezcommerce.search.LuceneProductSearchEngine;
 import rest.api.ezcommerce.security.JwtUtil;
 import rest.api.ezcommerce.security.SecurityConstants;
+import rest.api.ezcommerce.service.HotStockPool;
+import rest.api.ezcommerce.support.SqlStatementCounter;
 
 @EnableWebMvc
 @SpringBootTest
@@ -49,6 +72,9 @@ public class ProductControllerTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
     @Autowired
     private RoleRepository roleRepository;
 
@@ -73,11 +99,14 @@ public class ProductControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private SqlStatementCounter sqlStatementCounter;
+
     private final String email = "test@gmail.com";
     private final String password = "rahasia";
 
     private final String categoryToys = "Toys";
-    //private final String categoryGoods = "Goods";
+    private final String categoryGoods = "Goods";
     //private final String categorySouvenir = "Souvenirs";
 
     private final String productName = "DJI Drone";
@@ -88,6 +117,7 @@ public class ProductControllerTest {
     @BeforeEach
     void setUp() {                
 
+        stockReservationRepository.deleteAll();
         productRepository.deleteAll();  
         categoryRepository.deleteAll();
         userRepository.deleteAll();
@@ -1345,7 +1375,73 @@ public class ProductControllerTest {
     }
 
     @Test
-    void testUpdateProductSuccess() throws Exception {
+    void testListProductsStatementCountIsConstant() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        saveProductsInOwnCategories(user, 2);
+
+        // first call warms the user cache, which is not part of what is measured
+        countStatements(mockBearerToken, "/api/products", 2);
+
+        long listAllFew = countStatements(mockBearerToken, "/api/products", 2);
+        long listByUserFew = countStatements(mockBearerToken, "/api/products/list", 2);
+
+        saveProductsInOwnCategories(user, 20);
+
+        assertEquals(listAllFew, countStatements(mockBearerToken, "/api/products", 22));
+        assertEquals(listByUserFew, countStatements(mockBearerToken, "/api/products/list", 22));
+    }
+
+    // one category per product, so a per-row category load would show up in the count
+    private void saveProductsInOwnCategories(UserEntity user, int count) {
+        int offset = (int) categoryRepository.count();
+
+        for (int i = 0; i < count; i++) {
+            CategoryEntity category = new CategoryEntity();
+            category.setName(categoryToys + (offset + i));
+            category.setUserEntity(user);
+            categoryRepository.save(category);
+
+            ProductEntity product = new ProductEntity();
+            product.setName(productName + (offset + i));
+            product.setDescription(productDescription);
+            product.setPrice(productPrice);
+            product.setStock(productStock);
+            product.setCategoryEntity(category);
+            product.setUserEntity(user);
+            productRepository.save(product);
+        }
+    }
+
+    private long countStatements(String bearerToken, String path, int expectedSize) throws Exception {
+        return sqlStatementCounter.capture(() -> mockMvc.perform(
+                    get(path)
+                            .accept(MediaType.APPLICATION_JSON)
+                            .header("Authorization", bearerToken)
+            ).andExpectAll(
+                    status().isOk()
+            ).andDo(result -> {
+                    WebResponse<List<ProductResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+                });
+                assertEquals(expectedSize, response.getData().size());
+            })).count();
+    }
+
+    @Test
+    void testExportProductsNdjson() throws Exception {
         UserEntity user = userRepository.findByEmail(email).orElse(null);
 
         CategoryEntity category = new CategoryEntity();
@@ -1362,12 +1458,6 @@ public class ProductControllerTest {
         product.setUserEntity(user);
         productRepository.save(product);
 
-        UpdateProductRequest request = new UpdateProductRequest();
-        request.setName(productName + " updated");
-        request.setDescription(productDescription + " updated");
-        request.setPrice(productPrice + 5);
-        request.setStock(productStock + 10);
-
         Authentication authentication = authenticationManager.authenticate(
                                             new UsernamePasswordAuthenticationToken(
                                                 email, password)
@@ -1381,28 +1471,32 @@ public class ProductControllerTest {
 
         String mockBearerToken = "Bearer " + mockToken;
 
-        mockMvc.perform(
-                patch("/api/categories/" + category.getId() + "/products/" + product.getId())
-                        .accept(MediaType.APPLICATION_JSON)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(objectMapper.writeValueAsString(request))
+        MvcResult exportResult = mockMvc.perform(
+                get("/api/products/export")
                         .header("Authorization", mockBearerToken)                        
         ).andExpectAll(
-                status().isOk()
+                request().asyncStarted()
+        ).andReturn();
+
+        mockMvc.perform(
+                asyncDispatch(exportResult)
+        ).andExpectAll(
+                status().isOk(),
+                content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
         ).andDo(result -> {
-                WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
-            });
+            String[] lines = result.getResponse().getContentAsString().split("\n");
 
-            assertEquals(true, response.getStatus());
-            assertEquals(request.getName(), response.getData().getName());
-            assertEquals(request.getDescription(), response.getData().getDescription());
-            assertEquals(request.getPrice(), response.getData().getPrice());
-            assertEquals(request.getStock(), response.getData().getStock());
+            assertEquals(1, lines.length);
+
+            ProductResponse response = objectMapper.readValue(lines[0], ProductResponse.class);
+
+            assertEquals(productName, response.getName());
+            assertEquals(categoryToys, response.getCategory());
         });
     }
 
     @Test
-    void testUpdateProductDuplicate() throws Exception {
+    void testExportProductsJsonArray() throws Exception {
         UserEntity user = userRepository.findByEmail(email).orElse(null);
 
         CategoryEntity category = new CategoryEntity();
@@ -1419,21 +1513,6 @@ public class ProductControllerTest {
         product.setUserEntity(user);
         productRepository.save(product);
 
-        ProductEntity toys = new ProductEntity();
-        toys.setName("Unicycle");
-        toys.setDescription("Unicycle");
-        toys.setPrice(productPrice);
-        toys.setStock(productStock);
-        toys.setCategoryEntity(category);
-        toys.setUserEntity(user);
-        productRepository.save(toys);
-
-        UpdateProductRequest request = new UpdateProductRequest();
-        request.setName("Unicycle");
-        request.setDescription(productDescription + " updated");
-        request.setPrice(productPrice + 5);
-        request.setStock(productStock + 10);
-
         Authentication authentication = authenticationManager.authenticate(
                                             new UsernamePasswordAuthenticationToken(
                                                 email, password)
@@ -1447,24 +1526,30 @@ public class ProductControllerTest {
 
         String mockBearerToken = "Bearer " + mockToken;
 
-        mockMvc.perform(
-                patch("/api/categories/" + category.getId() + "/products/" + product.getId())
-                        .accept(MediaType.APPLICATION_JSON)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(objectMapper.writeValueAsString(request))
+        MvcResult exportResult = mockMvc.perform(
+                get("/api/products/export")
+                        .param("format", "json")
                         .header("Authorization", mockBearerToken)                        
         ).andExpectAll(
-                status().isBadRequest()
+                request().asyncStarted()
+        ).andReturn();
+
+        mockMvc.perform(
+                asyncDispatch(exportResult)
+        ).andExpectAll(
+                status().isOk(),
+                content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
         ).andDo(result -> {
-                WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+                List<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
             });
 
-            assertEquals(false, response.getStatus());        
+            assertEquals(1, response.size());
+            assertEquals(productName, response.get(0).getName());
         });
     }
 
     @Test
-    void testUpdateProductInvalidToken() throws Exception {
+    void testExportProductsBadFormat() throws Exception {
         UserEntity user = userRepository.findByEmail(email).orElse(null);
 
         CategoryEntity category = new CategoryEntity();
@@ -1481,12 +1566,6 @@ public class ProductControllerTest {
         product.setUserEntity(user);
         productRepository.save(product);
 
-        UpdateProductRequest request = new UpdateProductRequest();
-        request.setName(productName + " updated");
-        request.setDescription(productDescription + " updated");
-        request.setPrice(productPrice + 5);
-        request.setStock(productStock + 10);
-
         Authentication authentication = authenticationManager.authenticate(
                                             new UsernamePasswordAuthenticationToken(
                                                 email, password)
@@ -1498,26 +1577,19 @@ public class ProductControllerTest {
         user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
         userRepository.save(user);
 
-        String mockBearerToken = "Bearer " + mockToken + "a";
+        String mockBearerToken = "Bearer " + mockToken;
 
         mockMvc.perform(
-                patch("/api/categories/" + category.getId() + "/products/" + product.getId())
-                        .accept(MediaType.APPLICATION_JSON)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(objectMapper.writeValueAsString(request))
+                get("/api/products/export")
+                        .param("format", "xml")
                         .header("Authorization", mockBearerToken)                        
         ).andExpectAll(
-                status().isUnauthorized()
-        ).andDo(result -> {
-                WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
-            });
-
-            assertEquals(false, response.getStatus());            
-        });
+                status().isBadRequest()
+        );
     }
 
     @Test
-    void testUpdateProductTokenExpired() throws Exception {
+    void testImportProductsCsv() throws Exception {
         UserEntity user = userRepository.findByEmail(email).orElse(null);
 
         CategoryEntity category = new CategoryEntity();
@@ -1525,20 +1597,14 @@ public class ProductControllerTest {
         category.setUserEntity(user);
         categoryRepository.save(category);
 
-        ProductEntity product = new ProductEntity();
-        product.setName(productName);
-        product.setDescription(productDescription);
-        product.setPrice(productPrice);
-        product.setStock(productStock);
-        product.setCategoryEntity(category);
-        product.setUserEntity(user);
-        productRepository.save(product);
-
-        UpdateProductRequest request = new UpdateProductRequest();
-        request.setName(productName + " updated");
-        request.setDescription(productDescription + " updated");
-        request.setPrice(productPrice + 5);
-        request.setStock(productStock + 10);
+        ProductEntity existing = new ProductEntity();
+        existing.setName(productName);
+        existing.setDescription(productDescription);
+        existing.setPrice(productPrice);
+        existing.setStock(productStock);
+        existing.setCategoryEntity(category);
+        existing.setUserEntity(user);
+        productRepository.save(existing);
 
         Authentication authentication = authenticationManager.authenticate(
                                             new UsernamePasswordAuthenticationToken(
@@ -1548,29 +1614,50 @@ public class ProductControllerTest {
         String mockToken = jwtUtil.generateToken(authentication);
 
         user.setToken(mockToken);
-        user.setTokenExpiredAt(System.currentTimeMillis() - securityConstants.getJwtExpiration());
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
         userRepository.save(user);
 
         String mockBearerToken = "Bearer " + mockToken;
 
+        StringBuilder csv = new StringBuilder("categoryId,name,description,price,stock\n");
+
+        for (int i = 0; i < 3; i++) {
+            csv.append(category.getId()).append(",Lego Set ").append(i).append(",\"Bricks, 500 pieces\",19.5,4\n");
+        }
+
+        csv.append(category.getId()).append(",Lego Set 0,Duplicate in file,19.5,4\n");
+        csv.append(category.getId()).append(",").append(productName).append(",Already registered,19.5,4\n");
+        csv.append(category.getId() + 1000).append(",Puzzle,Unknown category,9.0,1\n");
+        csv.append(category.getId()).append(",Kite,Bad price,cheap,1\n");
+        csv.append(category.getId()).append(",,Missing name,9.0,1\n");
+
         mockMvc.perform(
-                patch("/api/categories/" + category.getId() + "/products/" + product.getId())
+                post("/api/products/import")
                         .accept(MediaType.APPLICATION_JSON)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(objectMapper.writeValueAsString(request))
-                        .header("Authorization", mockBearerToken)                        
+                        .contentType("text/csv")
+                        .content(csv.toString())
+                        .header("Authorization", mockBearerToken)
         ).andExpectAll(
-                status().isUnauthorized()
+                status().isOk()
         ).andDo(result -> {
-                WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+                WebResponse<ImportProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
             });
 
-            assertEquals(false, response.getStatus());            
+            assertEquals(true, response.getStatus());
+            assertEquals(8L, response.getData().getTotal());
+            assertEquals(3L, response.getData().getImported());
+            assertEquals(5L, response.getData().getFailed());
+            assertEquals(List.of(4L, 5L, 6L, 7L, 8L), response.getData().getErrors().stream().map(ImportProductError::getRow).toList());
+            assertEquals("Product already registered", response.getData().getErrors().get(0).getMessage());
+            assertEquals("Category not found", response.getData().getErrors().get(2).getMessage());
         });
+
+        assertEquals(4, productRepository.findNamesByUserId(user.getId()).size());
+        assertEquals("Bricks, 500 pieces", productRepository.findByUserEntityAndName(user, "Lego Set 1").orElseThrow().getDescription());
     }
 
     @Test
-    void testUpdateProductNoToken() throws Exception {
+    void testImportProductsNdjson() throws Exception {
         UserEntity user = userRepository.findByEmail(email).orElse(null);
 
         CategoryEntity category = new CategoryEntity();
@@ -1578,21 +1665,6 @@ public class ProductControllerTest {
         category.setUserEntity(user);
         categoryRepository.save(category);
 
-        ProductEntity product = new ProductEntity();
-        product.setName(productName);
-        product.setDescription(productDescription);
-        product.setPrice(productPrice);
-        product.setStock(productStock);
-        product.setCategoryEntity(category);
-        product.setUserEntity(user);
-        productRepository.save(product);
-
-        UpdateProductRequest request = new UpdateProductRequest();
-        request.setName(productName + " updated");
-        request.setDescription(productDescription + " updated");
-        request.setPrice(productPrice + 5);
-        request.setStock(productStock + 10);
-
         Authentication authentication = authenticationManager.authenticate(
                                             new UsernamePasswordAuthenticationToken(
                                                 email, password)
@@ -1604,30 +1676,46 @@ public class ProductControllerTest {
         user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
         userRepository.save(user);
 
+        String mockBearerToken = "Bearer " + mockToken;
+
+        StringBuilder ndjson = new StringBuilder();
+
+        for (int i = 0; i < 25; i++) {
+            ImportProductRequest request = ImportProductRequest.builder()
+                                            .categoryId(category.getId())
+                                            .name(productName + i)
+                                            .description(productDescription)
+                                            .price(productPrice)
+                                            .stock(productStock)
+                                            .build();
+
+            ndjson.append(objectMapper.writeValueAsString(request)).append('\n');
+        }
+
         mockMvc.perform(
-                patch("/api/categories/" + category.getId() + "/products/" + product.getId())
+                post("/api/products/import")
                         .accept(MediaType.APPLICATION_JSON)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(objectMapper.writeValueAsString(request))                                               
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ndjson.toString())
+                        .header("Authorization", mockBearerToken)
         ).andExpectAll(
-                status().isUnauthorized()
+                status().isOk()
         ).andDo(result -> {
-                WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+                WebResponse<ImportProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
             });
 
-            assertEquals(false, response.getStatus());            
+            assertEquals(true, response.getStatus());
+            assertEquals(25L, response.getData().getImported());
+            assertEquals(0L, response.getData().getFailed());
         });
+
+        assertEquals(25, productRepository.findAllResponsesByUserId(user.getId()).size());
     }
 
     @Test
-    void testUpdateProductBadRole() throws Exception {
+    void testUpdateProductSuccess() throws Exception {
         UserEntity user = userRepository.findByEmail(email).orElse(null);
 
-        RoleEntity role = roleRepository.findByName("ROLE_NOT_FOUND").orElse(null);
-        
-        user.setRoles(Collections.singletonList(role));          
-        userRepository.save(user);
-
         CategoryEntity category = new CategoryEntity();
         category.setName(categoryToys);
         category.setUserEntity(user);
@@ -1668,17 +1756,21 @@ public class ProductControllerTest {
                         .content(objectMapper.writeValueAsString(request))
                         .header("Authorization", mockBearerToken)                        
         ).andExpectAll(
-                status().isForbidden()
+                status().isOk()
         ).andDo(result -> {
                 WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
             });
 
-            assertEquals(false, response.getStatus());            
+            assertEquals(true, response.getStatus());
+            assertEquals(request.getName(), response.getData().getName());
+            assertEquals(request.getDescription(), response.getData().getDescription());
+            assertEquals(request.getPrice(), response.getData().getPrice());
+            assertEquals(request.getStock(), response.getData().getStock());
         });
     }
 
     @Test
-    void testDeleteProductSuccess() throws Exception {
+    void testUpdateProductIfMatchCurrent() throws Exception {
         UserEntity user = userRepository.findByEmail(email).orElse(null);
 
         CategoryEntity category = new CategoryEntity();
@@ -1695,6 +1787,9 @@ public class ProductControllerTest {
         product.setUserEntity(user);
         productRepository.save(product);
 
+        UpdateProductRequest request = new UpdateProductRequest();
+        request.setStock(productStock + 10);
+
         Authentication authentication = authenticationManager.authenticate(
                                             new UsernamePasswordAuthenticationToken(
                                                 email, password)
@@ -1709,22 +1804,38 @@ public class ProductControllerTest {
         String mockBearerToken = "Bearer " + mockToken;
 
         mockMvc.perform(
-                delete("/api/categories/" + category.getId() + "/products/" + product.getId())
+                get("/api/categories/" + category.getId() + "/products/" + product.getId())
                         .accept(MediaType.APPLICATION_JSON)
-                        .contentType(MediaType.APPLICATION_JSON)                        
-                        .header("Authorization", mockBearerToken)                        
+                        .header("Authorization", mockBearerToken)
         ).andExpectAll(
-                status().isOk()
+                status().isOk(),
+                header().string(HttpHeaders.ETAG, "\"0\"")
+        );
+
+        mockMvc.perform(
+                patch("/api/categories/" + category.getId() + "/products/" + product.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+        ).andExpectAll(
+                status().isOk(),
+                header().string(HttpHeaders.ETAG, "\"1\"")
         ).andDo(result -> {
-                WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+                WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
             });
 
             assertEquals(true, response.getStatus());
+            assertEquals(request.getStock(), response.getData().getStock());
+            assertEquals(1L, response.getData().getVersion());
         });
+
+        assertEquals(request.getStock(), productRepository.findById(product.getId()).orElseThrow().getStock());
     }
 
     @Test
-    void testDeleteProductInvalidToken() throws Exception {
+    void testUpdateProductIfMatchStale() throws Exception {
         UserEntity user = userRepository.findByEmail(email).orElse(null);
 
         CategoryEntity category = new CategoryEntity();
@@ -1741,6 +1852,15 @@ public class ProductControllerTest {
         product.setUserEntity(user);
         productRepository.save(product);
 
+        // a checkout took stock after the client read the product
+        productRepository.findById(product.getId()).ifPresent(p -> {
+            p.setStock(productStock - 1);
+            productRepository.save(p);
+        });
+
+        UpdateProductRequest request = new UpdateProductRequest();
+        request.setStock(productStock + 10);
+
         Authentication authentication = authenticationManager.authenticate(
                                             new UsernamePasswordAuthenticationToken(
                                                 email, password)
@@ -1752,25 +1872,29 @@ public class ProductControllerTest {
         user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
         userRepository.save(user);
 
-        String mockBearerToken = "Bearer " + mockToken + "a";
+        String mockBearerToken = "Bearer " + mockToken;
 
         mockMvc.perform(
-                delete("/api/categories/" + category.getId() + "/products/" + product.getId())
+                patch("/api/categories/" + category.getId() + "/products/" + product.getId())
                         .accept(MediaType.APPLICATION_JSON)
-                        .contentType(MediaType.APPLICATION_JSON)                        
-                        .header("Authorization", mockBearerToken)                        
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
         ).andExpectAll(
-                status().isUnauthorized()
+                status().isPreconditionFailed()
         ).andDo(result -> {
                 WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
             });
 
             assertEquals(false, response.getStatus());
         });
+
+        assertEquals(productStock - 1, productRepository.findById(product.getId()).orElseThrow().getStock());
     }
 
     @Test
-    void testDeleteProductTokenExpired() throws Exception {
+    void testUpdateProductConcurrentWithoutIfMatch() throws Exception {
         UserEntity user = userRepository.findByEmail(email).orElse(null);
 
         CategoryEntity category = new CategoryEntity();
@@ -1795,28 +1919,49 @@ public class ProductControllerTest {
         String mockToken = jwtUtil.generateToken(authentication);
 
         user.setToken(mockToken);
-        user.setTokenExpiredAt(System.currentTimeMillis() - securityConstants.getJwtExpiration());
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
         userRepository.save(user);
 
         String mockBearerToken = "Bearer " + mockToken;
 
-        mockMvc.perform(
-                delete("/api/categories/" + category.getId() + "/products/" + product.getId())
-                        .accept(MediaType.APPLICATION_JSON)
-                        .contentType(MediaType.APPLICATION_JSON)                        
-                        .header("Authorization", mockBearerToken)                        
-        ).andExpectAll(
-                status().isUnauthorized()
-        ).andDo(result -> {
-                WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
-            });
+        // fewer writers than optimistic-lock.retry.max-attempts, so every one of them gets its turn
+        int writers = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> statuses = new ArrayList<>();
 
-            assertEquals(false, response.getStatus());
-        });
+        for (int i = 0; i < writers; i++) {
+            UpdateProductRequest request = new UpdateProductRequest();
+            request.setDescription(productDescription + " " + i);
+            String body = objectMapper.writeValueAsString(request);
+
+            statuses.add(executor.submit(() -> {
+                start.await();
+
+                return mockMvc.perform(
+                        patch("/api/categories/" + category.getId() + "/products/" + product.getId())
+                                .accept(MediaType.APPLICATION_JSON)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(body)
+                                .header("Authorization", mockBearerToken)
+                ).andReturn().getResponse().getStatus();
+            }));
+        }
+
+        start.countDown();
+
+        // conflicting writes are retried server side, none of them is lost or rejected
+        for (Future<Integer> status : statuses) {
+            assertEquals(200, status.get(60, TimeUnit.SECONDS));
+        }
+
+        executor.shutdown();
+
+        assertEquals(writers, productRepository.findById(product.getId()).orElseThrow().getVersion());
     }
 
     @Test
-    void testDeleteProductNoToken() throws Exception {
+    void testUpdateProductDuplicate() throws Exception {
         UserEntity user = userRepository.findByEmail(email).orElse(null);
 
         CategoryEntity category = new CategoryEntity();
@@ -1833,58 +1978,624 @@ public class ProductControllerTest {
         product.setUserEntity(user);
         productRepository.save(product);
 
-        Authentication authentication = authenticationManager.authenticate(
-                                            new UsernamePasswordAuthenticationToken(
-                                                email, password)
-                                            );
-
-        String mockToken = jwtUtil.generateToken(authentication);
+        ProductEntity toys = new ProductEntity();
+        toys.setName("Unicycle");
+        toys.setDescription("Unicycle");
+        toys.setPrice(productPrice);
+        toys.setStock(productStock);
+        toys.setCategoryEntity(category);
+        toys.setUserEntity(user);
+        productRepository.save(toys);
+
+        UpdateProductRequest request = new UpdateProductRequest();
+        request.setName("Unicycle");
+        request.setDescription(productDescription + " updated");
+        request.setPrice(productPrice + 5);
+        request.setStock(productStock + 10);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        mockMvc.perform(
+                patch("/api/categories/" + category.getId() + "/products/" + product.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)                        
+        ).andExpectAll(
+                status().isBadRequest()
+        ).andDo(result -> {
+                WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(false, response.getStatus());        
+        });
+    }
+
+    @Test
+    void testUpdateProductInvalidToken() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        ProductEntity product = new ProductEntity();
+        product.setName(productName);
+        product.setDescription(productDescription);
+        product.setPrice(productPrice);
+        product.setStock(productStock);
+        product.setCategoryEntity(category);
+        product.setUserEntity(user);
+        productRepository.save(product);
+
+        UpdateProductRequest request = new UpdateProductRequest();
+        request.setName(productName + " updated");
+        request.setDescription(productDescription + " updated");
+        request.setPrice(productPrice + 5);
+        request.setStock(productStock + 10);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken + "a";
+
+        mockMvc.perform(
+                patch("/api/categories/" + category.getId() + "/products/" + product.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)                        
+        ).andExpectAll(
+                status().isUnauthorized()
+        ).andDo(result -> {
+                WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(false, response.getStatus());            
+        });
+    }
+
+    @Test
+    void testUpdateProductTokenExpired() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        ProductEntity product = new ProductEntity();
+        product.setName(productName);
+        product.setDescription(productDescription);
+        product.setPrice(productPrice);
+        product.setStock(productStock);
+        product.setCategoryEntity(category);
+        product.setUserEntity(user);
+        productRepository.save(product);
+
+        UpdateProductRequest request = new UpdateProductRequest();
+        request.setName(productName + " updated");
+        request.setDescription(productDescription + " updated");
+        request.setPrice(productPrice + 5);
+        request.setStock(productStock + 10);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() - securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        mockMvc.perform(
+                patch("/api/categories/" + category.getId() + "/products/" + product.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)                        
+        ).andExpectAll(
+                status().isUnauthorized()
+        ).andDo(result -> {
+                WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(false, response.getStatus());            
+        });
+    }
+
+    @Test
+    void testUpdateProductNoToken() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        ProductEntity product = new ProductEntity();
+        product.setName(productName);
+        product.setDescription(productDescription);
+        product.setPrice(productPrice);
+        product.setStock(productStock);
+        product.setCategoryEntity(category);
+        product.setUserEntity(user);
+        productRepository.save(product);
+
+        UpdateProductRequest request = new UpdateProductRequest();
+        request.setName(productName + " updated");
+        request.setDescription(productDescription + " updated");
+        request.setPrice(productPrice + 5);
+        request.setStock(productStock + 10);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        mockMvc.perform(
+                patch("/api/categories/" + category.getId() + "/products/" + product.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))                                               
+        ).andExpectAll(
+                status().isUnauthorized()
+        ).andDo(result -> {
+                WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(false, response.getStatus());            
+        });
+    }
+
+    @Test
+    void testUpdateProductBadRole() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        RoleEntity role = roleRepository.findByName("ROLE_NOT_FOUND").orElse(null);
+        
+        user.setRoles(Collections.singletonList(role));          
+        userRepository.save(user);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        ProductEntity product = new ProductEntity();
+        product.setName(productName);
+        product.setDescription(productDescription);
+        product.setPrice(productPrice);
+        product.setStock(productStock);
+        product.setCategoryEntity(category);
+        product.setUserEntity(user);
+        productRepository.save(product);
+
+        UpdateProductRequest request = new UpdateProductRequest();
+        request.setName(productName + " updated");
+        request.setDescription(productDescription + " updated");
+        request.setPrice(productPrice + 5);
+        request.setStock(productStock + 10);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        mockMvc.perform(
+                patch("/api/categories/" + category.getId() + "/products/" + product.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)                        
+        ).andExpectAll(
+                status().isForbidden()
+        ).andDo(result -> {
+                WebResponse<ProductResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(false, response.getStatus());            
+        });
+    }
+
+    @Test
+    void testDeleteProductSuccess() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        ProductEntity product = new ProductEntity();
+        product.setName(productName);
+        product.setDescription(productDescription);
+        product.setPrice(productPrice);
+        product.setStock(productStock);
+        product.setCategoryEntity(category);
+        product.setUserEntity(user);
+        productRepository.save(product);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        mockMvc.perform(
+                delete("/api/categories/" + category.getId() + "/products/" + product.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)                        
+                        .header("Authorization", mockBearerToken)                        
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+                WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(true, response.getStatus());
+        });
+    }
+
+    @Test
+    void testDeleteProductInvalidToken() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        ProductEntity product = new ProductEntity();
+        product.setName(productName);
+        product.setDescription(productDescription);
+        product.setPrice(productPrice);
+        product.setStock(productStock);
+        product.setCategoryEntity(category);
+        product.setUserEntity(user);
+        productRepository.save(product);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken + "a";
+
+        mockMvc.perform(
+                delete("/api/categories/" + category.getId() + "/products/" + product.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)                        
+                        .header("Authorization", mockBearerToken)                        
+        ).andExpectAll(
+                status().isUnauthorized()
+        ).andDo(result -> {
+                WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(false, response.getStatus());
+        });
+    }
+
+    @Test
+    void testDeleteProductTokenExpired() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        ProductEntity product = new ProductEntity();
+        product.setName(productName);
+        product.setDescription(productDescription);
+        product.setPrice(productPrice);
+        product.setStock(productStock);
+        product.setCategoryEntity(category);
+        product.setUserEntity(user);
+        productRepository.save(product);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() - securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        mockMvc.perform(
+                delete("/api/categories/" + category.getId() + "/products/" + product.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)                        
+                        .header("Authorization", mockBearerToken)                        
+        ).andExpectAll(
+                status().isUnauthorized()
+        ).andDo(result -> {
+                WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(false, response.getStatus());
+        });
+    }
+
+    @Test
+    void testDeleteProductNoToken() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        ProductEntity product = new ProductEntity();
+        product.setName(productName);
+        product.setDescription(productDescription);
+        product.setPrice(productPrice);
+        product.setStock(productStock);
+        product.setCategoryEntity(category);
+        product.setUserEntity(user);
+        productRepository.save(product);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        mockMvc.perform(
+                delete("/api/categories/" + category.getId() + "/products/" + product.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)                                             
+        ).andExpectAll(
+                status().isUnauthorized()
+        ).andDo(result -> {
+                WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(false, response.getStatus());
+        });
+    }
+
+    @Test
+    void testDeleteProductBadRole() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        RoleEntity role = roleRepository.findByName("ROLE_NOT_FOUND").orElse(null);
+        
+        user.setRoles(Collections.singletonList(role));          
+        userRepository.save(user);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        ProductEntity product = new ProductEntity();
+        product.setName(productName);
+        product.setDescription(productDescription);
+        product.setPrice(productPrice);
+        product.setStock(productStock);
+        product.setCategoryEntity(category);
+        product.setUserEntity(user);
+        productRepository.save(product);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        mockMvc.perform(
+                delete("/api/categories/" + category.getId() + "/products/" + product.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)                        
+                        .header("Authorization", mockBearerToken)                        
+        ).andExpectAll(
+                status().isForbidden()
+        ).andDo(result -> {
+                WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(false, response.getStatus());
+        });
+    }
+
+    @Test
+    void testSearchProductsByName() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        for (int i = 0; i < 100; i++) {
+            ProductEntity product = new ProductEntity();
+            product.setName(productName + i);
+            product.setDescription(productDescription + i);
+            product.setPrice(productPrice);
+            product.setStock(productStock);
+            product.setCategoryEntity(category);
+            product.setUserEntity(user);
+            productRepository.save(product);
+        }        
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );        
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        mockMvc.perform(
+                get("/api/products/search")
+                        .queryParam("name", "Drone")                                            
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)                        
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {                
+                WebResponse<List<ProductResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertEquals(true, response.getStatus());
+            assertEquals(10, response.getData().size());
+            assertEquals(10, response.getPaging().getTotalPage());
+            assertEquals(0, response.getPaging().getCurrentPage());
+            assertEquals(10, response.getPaging().getSize());
+        });
+    }
+
+    @Test
+    void testSearchProductsByDescription() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        for (int i = 0; i < 100; i++) {
+            ProductEntity product = new ProductEntity();
+            product.setName(productName + i);
+            product.setDescription(productDescription + i);
+            product.setPrice(productPrice);
+            product.setStock(productStock);
+            product.setCategoryEntity(category);
+            product.setUserEntity(user);
+            productRepository.save(product);
+        }        
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );        
+
+        String mockToken = jwtUtil.generateToken(authentication);
 
         user.setToken(mockToken);
         user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
         userRepository.save(user);
 
+        String mockBearerToken = "Bearer " + mockToken;
+
         mockMvc.perform(
-                delete("/api/categories/" + category.getId() + "/products/" + product.getId())
+                get("/api/products/search")
+                        .queryParam("description", "Drone")                                            
                         .accept(MediaType.APPLICATION_JSON)
-                        .contentType(MediaType.APPLICATION_JSON)                                             
+                        .contentType(MediaType.APPLICATION_JSON)                        
+                        .header("Authorization", mockBearerToken)
         ).andExpectAll(
-                status().isUnauthorized()
-        ).andDo(result -> {
-                WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+                status().isOk()
+        ).andDo(result -> {                
+                WebResponse<List<ProductResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
             });
-
-            assertEquals(false, response.getStatus());
+            assertEquals(true, response.getStatus());
+            assertEquals(10, response.getData().size());
+            assertEquals(10, response.getPaging().getTotalPage());
+            assertEquals(0, response.getPaging().getCurrentPage());
+            assertEquals(10, response.getPaging().getSize());
         });
     }
 
     @Test
-    void testDeleteProductBadRole() throws Exception {
+    void testSearchProductsSuccess() throws Exception {
         UserEntity user = userRepository.findByEmail(email).orElse(null);
 
-        RoleEntity role = roleRepository.findByName("ROLE_NOT_FOUND").orElse(null);
-        
-        user.setRoles(Collections.singletonList(role));          
-        userRepository.save(user);
-
         CategoryEntity category = new CategoryEntity();
         category.setName(categoryToys);
         category.setUserEntity(user);
         categoryRepository.save(category);
 
-        ProductEntity product = new ProductEntity();
-        product.setName(productName);
-        product.setDescription(productDescription);
-        product.setPrice(productPrice);
-        product.setStock(productStock);
-        product.setCategoryEntity(category);
-        product.setUserEntity(user);
-        productRepository.save(product);
+        for (int i = 0; i < 100; i++) {
+            ProductEntity product = new ProductEntity();
+            product.setName(productName + i);
+            product.setDescription(productDescription + i);
+            product.setPrice(productPrice);
+            product.setStock(productStock);
+            product.setCategoryEntity(category);
+            product.setUserEntity(user);
+            productRepository.save(product);
+        }        
 
         Authentication authentication = authenticationManager.authenticate(
                                             new UsernamePasswordAuthenticationToken(
                                                 email, password)
-                                            );
+                                            );        
 
         String mockToken = jwtUtil.generateToken(authentication);
 
@@ -1895,22 +2606,44 @@ public class ProductControllerTest {
         String mockBearerToken = "Bearer " + mockToken;
 
         mockMvc.perform(
-                delete("/api/categories/" + category.getId() + "/products/" + product.getId())
+                get("/api/products/search")
+                        .queryParam("name", "Drone")                                            
                         .accept(MediaType.APPLICATION_JSON)
                         .contentType(MediaType.APPLICATION_JSON)                        
-                        .header("Authorization", mockBearerToken)                        
+                        .header("Authorization", mockBearerToken)
         ).andExpectAll(
-                status().isForbidden()
-        ).andDo(result -> {
-                WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+                status().isOk()
+        ).andDo(result -> {                
+                WebResponse<List<ProductResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
             });
+            assertEquals(true, response.getStatus());
+            assertEquals(10, response.getData().size());
+            assertEquals(10, response.getPaging().getTotalPage());
+            assertEquals(0, response.getPaging().getCurrentPage());
+            assertEquals(10, response.getPaging().getSize());
+        });
 
-            assertEquals(false, response.getStatus());
+        mockMvc.perform(
+                get("/api/products/search")
+                        .queryParam("description", "Drone")                                            
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)                        
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {                
+                WebResponse<List<ProductResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertEquals(true, response.getStatus());
+            assertEquals(10, response.getData().size());
+            assertEquals(10, response.getPaging().getTotalPage());
+            assertEquals(0, response.getPaging().getCurrentPage());
+            assertEquals(10, response.getPaging().getSize());
         });
     }
 
     @Test
-    void testSearchProductsByName() throws Exception {
+    void testSearchProductsByNamePrefix() throws Exception {
         UserEntity user = userRepository.findByEmail(email).orElse(null);
 
         CategoryEntity category = new CategoryEntity();
@@ -1918,7 +2651,7 @@ public class ProductControllerTest {
         category.setUserEntity(user);
         categoryRepository.save(category);
 
-        for (int i = 0; i < 100; i++) {
+        for (int i = 0; i < 5; i++) {
             ProductEntity product = new ProductEntity();
             product.setName(productName + i);
             product.setDescription(productDescription + i);
@@ -1929,6 +2662,15 @@ public class ProductControllerTest {
             productRepository.save(product);
         }        
 
+        ProductEntity other = new ProductEntity();
+        other.setName("Lego Set");
+        other.setDescription("Bricks, not a drone");
+        other.setPrice(productPrice);
+        other.setStock(productStock);
+        other.setCategoryEntity(category);
+        other.setUserEntity(user);
+        productRepository.save(other);
+
         Authentication authentication = authenticationManager.authenticate(
                                             new UsernamePasswordAuthenticationToken(
                                                 email, password)
@@ -1944,7 +2686,7 @@ public class ProductControllerTest {
 
         mockMvc.perform(
                 get("/api/products/search")
-                        .queryParam("name", "Drone")                                            
+                        .queryParam("name", "dji dro")                                            
                         .accept(MediaType.APPLICATION_JSON)
                         .contentType(MediaType.APPLICATION_JSON)                        
                         .header("Authorization", mockBearerToken)
@@ -1954,15 +2696,13 @@ public class ProductControllerTest {
                 WebResponse<List<ProductResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
             });
             assertEquals(true, response.getStatus());
-            assertEquals(10, response.getData().size());
-            assertEquals(10, response.getPaging().getTotalPage());
-            assertEquals(0, response.getPaging().getCurrentPage());
-            assertEquals(10, response.getPaging().getSize());
+            assertEquals(5, response.getData().size());
+            assertEquals(1, response.getPaging().getTotalPage());
         });
     }
 
     @Test
-    void testSearchProductsByDescription() throws Exception {
+    void testSearchProductsWithCursor() throws Exception {
         UserEntity user = userRepository.findByEmail(email).orElse(null);
 
         CategoryEntity category = new CategoryEntity();
@@ -1970,7 +2710,72 @@ public class ProductControllerTest {
         category.setUserEntity(user);
         categoryRepository.save(category);
 
-        for (int i = 0; i < 100; i++) {
+        for (int i = 0; i < 25; i++) {
+            ProductEntity product = new ProductEntity();
+            product.setName(productName + i);
+            product.setDescription(productDescription + i);
+            product.setPrice(productPrice);
+            product.setStock(productStock);
+            product.setCategoryEntity(category);
+            product.setUserEntity(user);
+            productRepository.save(product);
+        }        
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );        
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        List<Integer> ids = new ArrayList<>();
+        String cursor = "";
+
+        for (int page = 0; page < 3; page++) {
+            MvcResult result = mockMvc.perform(
+                    get("/api/products/search")
+                            .queryParam("name", "Drone")
+                            .queryParam("cursor", cursor)
+                            .accept(MediaType.APPLICATION_JSON)
+                            .contentType(MediaType.APPLICATION_JSON)                        
+                            .header("Authorization", mockBearerToken)
+            ).andExpectAll(
+                    status().isOk()
+            ).andReturn();
+
+            WebResponse<List<ProductResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(true, response.getStatus());
+            assertNull(response.getPaging().getCurrentPage());
+            assertNull(response.getPaging().getTotalPage());
+
+            response.getData().forEach(product -> ids.add(product.getId()));
+            cursor = response.getPaging().getNextCursor();
+        }
+
+        assertEquals(25, ids.size());
+        assertEquals(25, ids.stream().distinct().count());
+        assertEquals(ids.stream().sorted().toList(), ids);
+        assertNull(cursor);
+    }
+
+    @Test
+    void testSearchProductsWithCursorAndCount() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        for (int i = 0; i < 25; i++) {
             ProductEntity product = new ProductEntity();
             product.setName(productName + i);
             product.setDescription(productDescription + i);
@@ -1996,7 +2801,9 @@ public class ProductControllerTest {
 
         mockMvc.perform(
                 get("/api/products/search")
-                        .queryParam("description", "Drone")                                            
+                        .queryParam("name", "Drone")
+                        .queryParam("cursor", "")
+                        .queryParam("count", "true")
                         .accept(MediaType.APPLICATION_JSON)
                         .contentType(MediaType.APPLICATION_JSON)                        
                         .header("Authorization", mockBearerToken)
@@ -2007,14 +2814,13 @@ public class ProductControllerTest {
             });
             assertEquals(true, response.getStatus());
             assertEquals(10, response.getData().size());
-            assertEquals(10, response.getPaging().getTotalPage());
-            assertEquals(0, response.getPaging().getCurrentPage());
-            assertEquals(10, response.getPaging().getSize());
+            assertEquals(3, response.getPaging().getTotalPage());
+            assertNotNull(response.getPaging().getNextCursor());
         });
     }
 
     @Test
-    void testSearchProductsSuccess() throws Exception {
+    void testSearchProductsBadCursor() throws Exception {
         UserEntity user = userRepository.findByEmail(email).orElse(null);
 
         CategoryEntity category = new CategoryEntity();
@@ -2022,7 +2828,7 @@ public class ProductControllerTest {
         category.setUserEntity(user);
         categoryRepository.save(category);
 
-        for (int i = 0; i < 100; i++) {
+        for (int i = 0; i < 25; i++) {
             ProductEntity product = new ProductEntity();
             product.setName(productName + i);
             product.setDescription(productDescription + i);
@@ -2048,38 +2854,81 @@ public class ProductControllerTest {
 
         mockMvc.perform(
                 get("/api/products/search")
-                        .queryParam("name", "Drone")                                            
+                        .queryParam("cursor", "not-a-cursor")
                         .accept(MediaType.APPLICATION_JSON)
                         .contentType(MediaType.APPLICATION_JSON)                        
                         .header("Authorization", mockBearerToken)
         ).andExpectAll(
-                status().isOk()
+                status().isBadRequest()
         ).andDo(result -> {                
                 WebResponse<List<ProductResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
             });
-            assertEquals(true, response.getStatus());
-            assertEquals(10, response.getData().size());
-            assertEquals(10, response.getPaging().getTotalPage());
-            assertEquals(0, response.getPaging().getCurrentPage());
-            assertEquals(10, response.getPaging().getSize());
+            assertEquals(false, response.getStatus());
         });
+    }
+
+    @Test
+    void testSearchProductFacetsByCategory() throws Exception {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity toys = new CategoryEntity();
+        toys.setName(categoryToys);
+        toys.setUserEntity(user);
+        categoryRepository.save(toys);
+
+        CategoryEntity goods = new CategoryEntity();
+        goods.setName(categoryGoods);
+        goods.setUserEntity(user);
+        categoryRepository.save(goods);
+
+        for (int i = 0; i < 5; i++) {
+            ProductEntity product = new ProductEntity();
+            product.setName(productName + i);
+            product.setDescription(productDescription + i);
+            product.setPrice(productPrice);
+            product.setStock(productStock);
+            product.setCategoryEntity(i < 3 ? toys : goods);
+            product.setUserEntity(user);
+            productRepository.save(product);
+        }
+
+        ProductEntity other = new ProductEntity();
+        other.setName("Lego Set");
+        other.setDescription("Bricks, not a drone");
+        other.setPrice(productPrice);
+        other.setStock(productStock);
+        other.setCategoryEntity(goods);
+        other.setUserEntity(user);
+        productRepository.save(other);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );        
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
 
         mockMvc.perform(
-                get("/api/products/search")
-                        .queryParam("description", "Drone")                                            
+                get("/api/products/search/facets")
+                        .queryParam("name", "DJI")
                         .accept(MediaType.APPLICATION_JSON)
                         .contentType(MediaType.APPLICATION_JSON)                        
                         .header("Authorization", mockBearerToken)
         ).andExpectAll(
                 status().isOk()
         ).andDo(result -> {                
-                WebResponse<List<ProductResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+                WebResponse<Map<String, Long>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
             });
             assertEquals(true, response.getStatus());
-            assertEquals(10, response.getData().size());
-            assertEquals(10, response.getPaging().getTotalPage());
-            assertEquals(0, response.getPaging().getCurrentPage());
-            assertEquals(10, response.getPaging().getSize());
+            assertEquals(List.of(categoryToys, categoryGoods), List.copyOf(response.getData().keySet()));
+            assertEquals(3L, response.getData().get(categoryToys));
+            assertEquals(2L, response.getData().get(categoryGoods));
         });
     }
 
@@ -2116,5 +2965,184 @@ public class ProductControllerTest {
             assertEquals(0, response.getPaging().getCurrentPage());
             assertEquals(10, response.getPaging().getSize());
         });
-    } 
+    }
+
+    // the refresh interval is long enough that only the explicit applyPending() calls below touch the index
+    @Nested
+    @TestPropertySource(properties = {
+        "product.search.engine=lucene",
+        "product.search.lucene.path=target/product-index",
+        "product.search.lucene.refresh-interval=3600000"
+    })
+    class LuceneEngine {
+
+        // fields of the enclosing instance are wired from the default context, these come from this one
+        @Autowired
+        private MockMvc mockMvc;
+
+        @Autowired
+        private UserRepository userRepository;
+
+        @Autowired
+        private CategoryRepository categoryRepository;
+
+        @Autowired
+        private ProductRepository productRepository;
+
+        @Autowired
+        private AuthenticationManager authenticationManager;
+
+        @Autowired
+        private JwtUtil jwtUtil;
+
+        @Autowired
+        private SecurityConstants securityConstants;
+
+        @Autowired
+        private ObjectMapper objectMapper;
+
+        @Autowired
+        private LuceneProductSearchEngine searchEngine;
+
+        @Autowired
+        private HotStockPool hotStockPool;
+
+        @BeforeEach
+        void setUp() {
+            searchEngine.rebuild();
+        }
+
+        @Test
+        void testChangesVisibleOnceApplied() throws Exception {
+            CategoryEntity category = saveCategory(categoryToys);
+
+            List<ProductEntity> products = new ArrayList<>();
+
+            for (int i = 0; i < 3; i++) {
+                products.add(saveProduct(category, productName + i));
+            }
+
+            SearchProductRequest request = SearchProductRequest.builder().name("Drone").page(0).size(10).build();
+
+            assertEquals(0, searchEngine.count(request));
+
+            searchEngine.applyPending();
+
+            assertEquals(3, searchEngine.count(request));
+
+            productRepository.delete(products.get(0));
+            searchEngine.applyPending();
+
+            assertEquals(2, searchEngine.count(request));
+        }
+
+        @Test
+        void testCategoryRenameReindexesProducts() throws Exception {
+            CategoryEntity category = saveCategory(categoryToys);
+            saveProduct(category, productName + 1);
+            saveProduct(category, productName + 2);
+
+            searchEngine.applyPending();
+
+            SearchProductRequest request = SearchProductRequest.builder().page(0).size(10).build();
+
+            assertEquals(Map.of(categoryToys, 2L), searchEngine.categoryFacets(request));
+
+            UpdateCategoryRequest updateRequest = new UpdateCategoryRequest();
+            updateRequest.setName(categoryGoods);
+
+            mockMvc.perform(
+                    patch("/api/categories/" + category.getId())
+                            .accept(MediaType.APPLICATION_JSON)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(updateRequest))
+                            .header("Authorization", "Bearer " + login())
+            ).andExpectAll(
+                    status().isOk()
+            );
+
+            searchEngine.applyPending();
+
+            assertEquals(Map.of(categoryGoods, 2L), searchEngine.categoryFacets(request));
+        }
+
+        @Test
+        void testPooledPurchaseVisibleInSearch() throws Exception {
+            CategoryEntity category = saveCategory(categoryToys);
+            ProductEntity product = saveProduct(category, productName);
+
+            searchEngine.applyPending();
+
+            hotStockPool.enable(product.getId());
+
+            try {
+                mockMvc.perform(
+                        post("/api/products/" + product.getId() + "/reservations")
+                                .accept(MediaType.APPLICATION_JSON)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(new ReserveStockRequest(1)))
+                                .header("Authorization", "Bearer " + login())
+                ).andExpectAll(
+                        status().isOk()
+                );
+
+                searchEngine.applyPending();
+
+                // the lease took the units out of the row, search reports the row
+                assertEquals(productRepository.findStockById(product.getId()).orElse(null), searchStock(product));
+                assertNotEquals(productStock, searchStock(product));
+            } finally {
+                hotStockPool.disable(product.getId());
+            }
+
+            searchEngine.applyPending();
+
+            assertEquals(productStock - 1, searchStock(product));
+        }
+
+        private Integer searchStock(ProductEntity product) {
+            SearchProductRequest request = SearchProductRequest.builder().name(product.getName()).page(0).size(10).build();
+
+            return searchEngine.search(request).getContent().get(0).getStock();
+        }
+
+        private CategoryEntity saveCategory(String name) {
+            CategoryEntity category = new CategoryEntity();
+            category.setName(name);
+            category.setUserEntity(userRepository.findByEmail(email).orElse(null));
+            categoryRepository.save(category);
+
+            return category;
+        }
+
+        private ProductEntity saveProduct(CategoryEntity category, String name) {
+            ProductEntity product = new ProductEntity();
+            product.setName(name);
+            product.setDescription(productDescription);
+            product.setPrice(productPrice);
+            product.setStock(productStock);
+            product.setCategoryEntity(category);
+            product.setUserEntity(userRepository.findByEmail(email).orElse(null));
+            productRepository.save(product);
+
+            return product;
+        }
+
+        private String login() {
+            Authentication authentication = authenticationManager.authenticate(
+                                                new UsernamePasswordAuthenticationToken(
+                                                    email, password)
+                                                );
+
+            String mockToken = jwtUtil.generateToken(authentication);
+
+            UserEntity user = userRepository.findByEmail(email).orElse(null);
+            user.setToken(mockToken);
+            user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+            userRepository.save(user);
+
+            return mockToken;
+        }
+
+    }
 }
@@ -30,6 +30,7 @@ import rest.api.ezcommerce.model.UpdateProfileRequest;
 import rest.api.ezcommerce.model.WebResponse;
 import rest.api.ezcommerce.repository.ProfileRepository;
 import rest.api.ezcommerce.repository.RoleRepository;
+import rest.api.ezcommerce.repository.StockReservationRepository;
 import rest.api.ezcommerce.repository.UserRepository;
 import rest.api.ezcommerce.security.JwtUtil;
 import rest.api.ezcommerce.security.SecurityConstants;
@@ -47,6 +48,9 @@ public class ProfileControllerTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
     @Autowired
     private RoleRepository roleRepository;
 
@@ -78,6 +82,7 @@ public class ProfileControllerTest {
     @BeforeEach
     void setUp() {                
 
+        stockReservationRepository.deleteAll();
         profileRepository.deleteAll();
         userRepository.deleteAll();
 
@@ -0,0 +1,517 @@
+package rest.api.ezcommerce.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+import rest.api.ezcommerce.entity.CategoryEntity;
+import rest.api.ezcommerce.entity.ProductEntity;
+import rest.api.ezcommerce.entity.RoleEntity;
+import rest.api.ezcommerce.entity.StockReservationEntity;
+import rest.api.ezcommerce.entity.UserEntity;
+import rest.api.ezcommerce.model.ReserveStockRequest;
+import rest.api.ezcommerce.model.StockReservationResponse;
+import rest.api.ezcommerce.model.UpdateProductRequest;
+import rest.api.ezcommerce.model.WebResponse;
+import rest.api.ezcommerce.repository.AddressRepository;
+import rest.api.ezcommerce.repository.CartItemRepository;
+import rest.api.ezcommerce.repository.CartRepository;
+import rest.api.ezcommerce.repository.CategoryRepository;
+import rest.api.ezcommerce.repository.OrderItemRepository;
+import rest.api.ezcommerce.repository.OrderRepository;
+import rest.api.ezcommerce.repository.ProductRepository;
+import rest.api.ezcommerce.repository.RoleRepository;
+import rest.api.ezcommerce.repository.StockReservationRepository;
+import rest.api.ezcommerce.repository.UserRepository;
+import rest.api.ezcommerce.security.JwtUtil;
+import rest.api.ezcommerce.security.SecurityConstants;
+import rest.api.ezcommerce.service.HotStockPool;
+import rest.api.ezcommerce.service.StockReservationService;
+
+@Slf4j
+@EnableWebMvc
+@SpringBootTest
+@AutoConfigureMockMvc
+public class StockReservationControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private HotStockPool hotStockPool;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private AuthenticationManager authenticationManager;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private SecurityConstants securityConstants;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final String email = "test@gmail.com";
+    private final String password = "rahasia";
+
+    private final String categoryToys = "Toys";
+    private final String productName = "DJI Drone";
+    private final String productDescription = "DJI Drone 2K24";
+    private final Double productPrice = 25.0;
+
+    private static final int BUYERS = 64;
+    private static final int ATTEMPTS_PER_BUYER = 4;
+
+    @BeforeEach
+    void setUp() {
+
+        stockReservationRepository.deleteAll();
+        orderItemRepository.deleteAll();
+        orderRepository.deleteAll();
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        addressRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+
+        RoleEntity role = roleRepository.findByName("ROLE_ADMIN").orElse(null);
+
+        UserEntity user = new UserEntity();
+        user.setEmail(email);
+        user.setPassword(passwordEncoder.encode(password));
+        user.setRoles(Collections.singletonList(role));
+        userRepository.save(user);
+
+    }
+
+    @Test
+    void testReserveStockSuccess() throws Exception {
+        ProductEntity product = saveProduct(10);
+        ReserveStockRequest request = new ReserveStockRequest(3);
+
+        mockMvc.perform(
+                post("/api/products/" + product.getId() + "/reservations")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", bearerToken())
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+                WebResponse<StockReservationResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(true, response.getStatus());
+            assertNotNull(response.getData().getId());
+            assertEquals(product.getId(), response.getData().getProductId());
+            assertEquals(3, response.getData().getQuantity());
+            assertTrue(response.getData().getExpiresAt() > System.currentTimeMillis());
+        });
+
+        assertEquals(7, productRepository.findById(product.getId()).orElseThrow().getStock());
+    }
+
+    @Test
+    void testReserveStockInsufficient() throws Exception {
+        ProductEntity product = saveProduct(2);
+        ReserveStockRequest request = new ReserveStockRequest(3);
+
+        mockMvc.perform(
+                post("/api/products/" + product.getId() + "/reservations")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", bearerToken())
+        ).andExpectAll(
+                status().isConflict()
+        ).andDo(result -> {
+                WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(false, response.getStatus());
+        });
+
+        assertEquals(2, productRepository.findById(product.getId()).orElseThrow().getStock());
+        assertEquals(0, stockReservationRepository.count());
+    }
+
+    @Test
+    void testReserveStockProductNotFound() throws Exception {
+        ProductEntity product = saveProduct(2);
+        ReserveStockRequest request = new ReserveStockRequest(1);
+
+        mockMvc.perform(
+                post("/api/products/" + (product.getId() + 1) + "/reservations")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", bearerToken())
+        ).andExpectAll(
+                status().isNotFound()
+        );
+    }
+
+    @Test
+    void testReleaseReservationRestoresStock() throws Exception {
+        ProductEntity product = saveProduct(10);
+        String mockBearerToken = bearerToken();
+
+        String content = mockMvc.perform(
+                post("/api/products/" + product.getId() + "/reservations")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ReserveStockRequest(4)))
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk()
+        ).andReturn().getResponse().getContentAsString();
+
+        WebResponse<StockReservationResponse> reserved = objectMapper.readValue(content, new TypeReference<>() {
+        });
+
+        mockMvc.perform(
+                delete("/api/reservations/" + reserved.getData().getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        assertEquals(10, productRepository.findById(product.getId()).orElseThrow().getStock());
+        assertEquals(0, stockReservationRepository.count());
+
+        mockMvc.perform(
+                delete("/api/reservations/" + reserved.getData().getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isNotFound()
+        );
+    }
+
+    @Test
+    void testExpiredReservationsAreReleased() {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+        ProductEntity product = saveProduct(5);
+
+        List<StockReservationEntity> reservations = new ArrayList<>();
+
+        for (long expiresAt : new long[] { 1L, 2L, System.currentTimeMillis() + 60_000 }) {
+            StockReservationEntity reservation = new StockReservationEntity();
+            reservation.setProductEntity(product);
+            reservation.setUserEntity(user);
+            reservation.setQuantity(2);
+            reservation.setExpiresAt(expiresAt);
+            reservations.add(reservation);
+        }
+
+        stockReservationRepository.saveAll(reservations);
+
+        stockReservationService.expire();
+
+        assertEquals(9, productRepository.findById(product.getId()).orElseThrow().getStock());
+        assertEquals(1, stockReservationRepository.count());
+    }
+
+    @Test
+    void testConcurrentBuyersNeverOversell() throws Exception {
+        ProductEntity product = saveProduct(100);
+
+        int sold = buyConcurrently(product, bearerToken(), "row");
+
+        assertEquals(100, sold);
+        assertEquals(0, productRepository.findById(product.getId()).orElseThrow().getStock());
+        assertEquals(100, stockReservationRepository.count());
+    }
+
+    @Test
+    void testConcurrentBuyersNeverOversellHotProduct() throws Exception {
+        ProductEntity product = saveProduct(100);
+        String mockBearerToken = bearerToken();
+
+        mockMvc.perform(
+                put("/api/products/" + product.getId() + "/stock/hot")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        try {
+            int sold = buyConcurrently(product, mockBearerToken, "hot pool");
+
+            assertEquals(100, sold);
+            assertEquals(0, hotStockPool.available(product.getId()));
+            assertEquals(100, stockReservationRepository.count());
+        } finally {
+            mockMvc.perform(
+                    delete("/api/products/" + product.getId() + "/stock/hot")
+                            .accept(MediaType.APPLICATION_JSON)
+                            .header("Authorization", mockBearerToken)
+            ).andExpectAll(
+                    status().isOk()
+            );
+        }
+
+        assertEquals(0, productRepository.findById(product.getId()).orElseThrow().getStock());
+    }
+
+    // disabling mid-sale must neither lose leased units nor turn a reservation into a 500
+    @Test
+    void testHotProductToggledWhileBuying() throws Exception {
+        ProductEntity product = saveProduct(100);
+        String mockBearerToken = bearerToken();
+
+        hotStockPool.enable(product.getId());
+
+        AtomicBoolean buying = new AtomicBoolean(true);
+        Thread toggler = new Thread(() -> {
+            while (buying.get()) {
+                hotStockPool.disable(product.getId());
+                hotStockPool.enable(product.getId());
+            }
+        });
+
+        int sold;
+
+        toggler.start();
+
+        try {
+            sold = buyConcurrently(product, mockBearerToken, "toggled hot pool");
+        } finally {
+            buying.set(false);
+            toggler.join();
+            hotStockPool.disable(product.getId());
+        }
+
+        assertEquals(100, sold);
+        assertEquals(100, stockReservationRepository.count());
+        assertEquals(0, productRepository.findById(product.getId()).orElseThrow().getStock());
+    }
+
+    // an absolute stock figure set while units sit outside the row would be inflated once they come back
+    @Test
+    void testStockUpdateRejectedWhileUnitsOutsideRow() throws Exception {
+        ProductEntity product = saveProduct(100);
+        String mockBearerToken = bearerToken();
+
+        hotStockPool.enable(product.getId());
+
+        String content;
+
+        try {
+            content = mockMvc.perform(
+                    post("/api/products/" + product.getId() + "/reservations")
+                            .accept(MediaType.APPLICATION_JSON)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(new ReserveStockRequest(1)))
+                            .header("Authorization", mockBearerToken)
+            ).andExpectAll(
+                    status().isOk()
+            ).andReturn().getResponse().getContentAsString();
+
+            assertTrue(hotStockPool.available(product.getId()) > 0);
+
+            updateStock(product, 30, mockBearerToken).andExpectAll(
+                    status().isConflict()
+            );
+        } finally {
+            hotStockPool.disable(product.getId());
+        }
+
+        // the lease is back on the row, only the reserved unit is still out
+        assertEquals(99, productRepository.findById(product.getId()).orElseThrow().getStock());
+
+        updateStock(product, 30, mockBearerToken).andExpectAll(
+                status().isConflict()
+        );
+
+        WebResponse<StockReservationResponse> reserved = objectMapper.readValue(content, new TypeReference<>() {
+        });
+
+        mockMvc.perform(
+                delete("/api/reservations/" + reserved.getData().getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Authorization", mockBearerToken)
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        updateStock(product, 30, mockBearerToken).andExpectAll(
+                status().isOk()
+        );
+
+        assertEquals(30, productRepository.findById(product.getId()).orElseThrow().getStock());
+    }
+
+    // every buyer keeps trying one unit at a time, more attempts in total than there is stock
+    private int buyConcurrently(ProductEntity product, String mockBearerToken, String mode) throws Exception {
+        String body = objectMapper.writeValueAsString(new ReserveStockRequest(1));
+
+        ExecutorService executor = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> buyers = new ArrayList<>();
+
+        for (int i = 0; i < BUYERS; i++) {
+            buyers.add(executor.submit(() -> {
+                start.await();
+                int bought = 0;
+
+                for (int attempt = 0; attempt < ATTEMPTS_PER_BUYER; attempt++) {
+                    int status = mockMvc.perform(
+                            post("/api/products/" + product.getId() + "/reservations")
+                                    .accept(MediaType.APPLICATION_JSON)
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(body)
+                                    .header("Authorization", mockBearerToken)
+                    ).andReturn().getResponse().getStatus();
+
+                    if (status == 200) {
+                        bought++;
+                    } else {
+                        assertEquals(409, status);
+                    }
+                }
+
+                return bought;
+            }));
+        }
+
+        long started = System.nanoTime();
+        start.countDown();
+
+        int sold = 0;
+
+        for (Future<Integer> buyer : buyers) {
+            sold += buyer.get(60, TimeUnit.SECONDS);
+        }
+
+        long elapsed = System.nanoTime() - started;
+        executor.shutdown();
+
+        log.info("{} buyers, {} reservation attempts through the {}: {} sold in {} ms, {} attempts/s",
+                    BUYERS, BUYERS * ATTEMPTS_PER_BUYER, mode, sold, elapsed / 1_000_000,
+                    BUYERS * ATTEMPTS_PER_BUYER * 1_000_000_000L / elapsed);
+
+        return sold;
+    }
+
+    private ResultActions updateStock(ProductEntity product, Integer stock, String mockBearerToken) throws Exception {
+        UpdateProductRequest request = new UpdateProductRequest();
+        request.setStock(stock);
+
+        return mockMvc.perform(
+                patch("/api/categories/" + product.getCategoryEntity().getId() + "/products/" + product.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", mockBearerToken)
+        );
+    }
+
+    private ProductEntity saveProduct(Integer stock) {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        CategoryEntity category = new CategoryEntity();
+        category.setName(categoryToys);
+        category.setUserEntity(user);
+        categoryRepository.save(category);
+
+        ProductEntity product = new ProductEntity();
+        product.setName(productName);
+        product.setDescription(productDescription);
+        product.setPrice(productPrice);
+        product.setStock(stock);
+        product.setCategoryEntity(category);
+        product.setUserEntity(user);
+        productRepository.save(product);
+
+        return product;
+    }
+
+    private String bearerToken() {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        return "Bearer " + mockToken;
+    }
+
+}
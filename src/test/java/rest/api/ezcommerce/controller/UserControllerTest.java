@@ -13,6 +13,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -24,11 +25,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import rest.api.ezcommerce.entity.RoleEntity;
 import rest.api.ezcommerce.entity.UserEntity;
+import rest.api.ezcommerce.model.LoginUserRequest;
 import rest.api.ezcommerce.model.RegisterUserRequest;
+import rest.api.ezcommerce.model.TokenResponse;
 import rest.api.ezcommerce.model.UpdateUserRequest;
 import rest.api.ezcommerce.model.UserResponse;
 import rest.api.ezcommerce.model.WebResponse;
 import rest.api.ezcommerce.repository.RoleRepository;
+import rest.api.ezcommerce.repository.StockReservationRepository;
 import rest.api.ezcommerce.repository.UserRepository;
 import rest.api.ezcommerce.security.JwtUtil;
 import rest.api.ezcommerce.security.SecurityConstants;
@@ -44,6 +48,9 @@ public class UserControllerTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
     @Autowired
     private RoleRepository roleRepository;
 
@@ -62,12 +69,16 @@ public class UserControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private final String email = "test@gmail.com";
     private final String password = "rahasia";
 
     @BeforeEach
     void setUp() {
                 
+        stockReservationRepository.deleteAll();
         userRepository.deleteAll();
 
     }
@@ -393,6 +404,129 @@ public class UserControllerTest {
         });
     }
 
+    @Test
+    void testUpdateUserPasswordEvictsCachedUser() throws Exception {                        
+        RoleEntity role = roleRepository.findByName("ROLE_USER").orElse(null);
+
+        UserEntity user = new UserEntity();
+        user.setEmail(email);      
+        user.setPassword(passwordEncoder.encode(password));
+        user.setRoles(Collections.singletonList(role));          
+        userRepository.save(user);
+        
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        String mockBearerToken = "Bearer " + mockToken;
+
+        UpdateUserRequest request = new UpdateUserRequest();
+        request.setPassword("123456");
+
+        mockMvc.perform(
+                patch("/api/users")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))                    
+                        .header("Authorization", mockBearerToken)                                             
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        LoginUserRequest loginRequest = new LoginUserRequest();
+        loginRequest.setEmail(email);
+        loginRequest.setPassword("123456");
+
+        mockMvc.perform(
+                post("/api/auth/login")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest))                        
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+                WebResponse<TokenResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(true, response.getStatus());
+        });
+
+        loginRequest.setPassword(password);
+
+        mockMvc.perform(
+                post("/api/auth/login")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest))                        
+        ).andExpectAll(
+                status().isUnauthorized()
+        );
+    }
+
+    // another node changed the password, this node still holds the old principal in its cache
+    @Test
+    void testLoginChecksPasswordAgainstDatabase() throws Exception {
+        RoleEntity role = roleRepository.findByName("ROLE_USER").orElse(null);
+
+        UserEntity user = new UserEntity();
+        user.setEmail(email);
+        user.setPassword(passwordEncoder.encode(password));
+        user.setRoles(Collections.singletonList(role));
+        userRepository.save(user);
+
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        user.setToken(mockToken);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+
+        mockMvc.perform(
+                get("/api/users")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Authorization", "Bearer " + mockToken)
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        jdbcTemplate.update("update users set password = ? where id = ?", passwordEncoder.encode("123456"), user.getId());
+
+        LoginUserRequest loginRequest = new LoginUserRequest();
+        loginRequest.setEmail(email);
+        loginRequest.setPassword(password);
+
+        mockMvc.perform(
+                post("/api/auth/login")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest))
+        ).andExpectAll(
+                status().isUnauthorized()
+        );
+
+        loginRequest.setPassword("123456");
+
+        mockMvc.perform(
+                post("/api/auth/login")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest))
+        ).andExpectAll(
+                status().isOk()
+        );
+    }
+
     @Test
     void testUpdateUserPasswordInvalidToken() throws Exception {                    
         RoleEntity role = roleRepository.findByName("ROLE_ADMIN").orElse(null);
@@ -0,0 +1,268 @@
+package rest.api.ezcommerce.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import rest.api.ezcommerce.entity.AddressEntity;
+import rest.api.ezcommerce.entity.RoleEntity;
+import rest.api.ezcommerce.entity.UserEntity;
+import rest.api.ezcommerce.model.AddressResponse;
+import rest.api.ezcommerce.model.RegisterAddressRequest;
+import rest.api.ezcommerce.model.WebResponse;
+import rest.api.ezcommerce.repository.AddressRepository;
+import rest.api.ezcommerce.repository.CartItemRepository;
+import rest.api.ezcommerce.repository.CartRepository;
+import rest.api.ezcommerce.repository.CategoryRepository;
+import rest.api.ezcommerce.repository.OrderItemRepository;
+import rest.api.ezcommerce.repository.OrderRepository;
+import rest.api.ezcommerce.repository.ProductRepository;
+import rest.api.ezcommerce.repository.RoleRepository;
+import rest.api.ezcommerce.repository.StockReservationRepository;
+import rest.api.ezcommerce.repository.UserRepository;
+
+@EnableWebMvc
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CurrentUserTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private AuthenticationManager authenticationManager;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private SecurityConstants securityConstants;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final String email = "test@gmail.com";
+    private final String otherEmail = "other@gmail.com";
+    private final String password = "rahasia";
+
+    private Boolean stateless;
+
+    @BeforeEach
+    void setUp() {
+        stateless = securityConstants.getJwtStateless();
+
+        stockReservationRepository.deleteAll();
+        orderItemRepository.deleteAll();
+        orderRepository.deleteAll();
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        addressRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+
+        saveUser(email);
+        saveUser(otherEmail);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(securityConstants, "jwtStateless", stateless);
+    }
+
+    @Test
+    void testCurrentUserResolvesOwnRows() throws Exception {
+        saveAddress(email, "Home address");
+        saveAddress(otherEmail, "Other address");
+
+        String mockToken = login(email);
+        storeToken(email, mockToken);
+
+        mockMvc.perform(
+            get("/api/addresses/list")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Authorization", "Bearer " + mockToken)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+                WebResponse<List<AddressResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(true, response.getStatus());
+            assertEquals(1, response.getData().size());
+            assertEquals("Home address", response.getData().get(0).getTitle());
+        });
+    }
+
+    @Test
+    void testStatefulDeletedUserUnauthorized() throws Exception {
+        ReflectionTestUtils.setField(securityConstants, "jwtStateless", false);
+
+        String mockToken = login(email);
+        storeToken(email, mockToken);
+
+        userRepository.delete(userRepository.findByEmail(email).orElse(null));
+
+        registerAddress(mockToken).andExpectAll(
+                status().isUnauthorized()
+        );
+    }
+
+    @Test
+    void testStatelessDeletedUserUnauthorized() throws Exception {
+        ReflectionTestUtils.setField(securityConstants, "jwtStateless", true);
+
+        String mockToken = login(email);
+
+        userRepository.delete(userRepository.findByEmail(email).orElse(null));
+
+        registerAddress(mockToken).andExpectAll(
+                status().isUnauthorized()
+        );
+    }
+
+    @Test
+    void testStatelessUserDeletedElsewhereNotFound() throws Exception {
+        ReflectionTestUtils.setField(securityConstants, "jwtStateless", true);
+
+        String mockToken = login(email);
+        Integer userId = userRepository.findByEmail(email).orElse(null).getId();
+
+        // an authenticated request caches the principal on this node
+        mockMvc.perform(
+            get("/api/addresses/list")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Authorization", "Bearer " + mockToken)
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        // a delete on another node leaves this node's cached principal in place
+        jdbcTemplate.update("delete from users_roles where user_id = ?", userId);
+        jdbcTemplate.update("delete from users where id = ?", userId);
+
+        registerAddress(mockToken).andExpectAll(
+                status().isNotFound()
+        ).andDo(result -> {
+                WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(false, response.getStatus());
+            assertEquals("User not found", response.getErrors());
+        });
+    }
+
+    private void saveUser(String userEmail) {
+        RoleEntity role = roleRepository.findByName("ROLE_USER").orElse(null);
+
+        UserEntity user = new UserEntity();
+        user.setEmail(userEmail);
+        user.setPassword(passwordEncoder.encode(password));
+        user.setRoles(Collections.singletonList(role));
+        userRepository.save(user);
+    }
+
+    private void saveAddress(String userEmail, String title) {
+        AddressEntity address = new AddressEntity();
+        address.setTitle(title);
+        address.setAddress("Jl Pasirluyu");
+        address.setCountry("Indonesia");
+        address.setCity("Bandung");
+        address.setPostalCode("40254");
+        address.setUserEntity(userRepository.findByEmail(userEmail).orElse(null));
+        addressRepository.save(address);
+    }
+
+    private String login(String userEmail) {
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                userEmail, password)
+                                            );
+
+        return jwtUtil.generateToken(authentication);
+    }
+
+    private void storeToken(String userEmail, String token) {
+        UserEntity user = userRepository.findByEmail(userEmail).orElse(null);
+        user.setToken(token);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+    }
+
+    private ResultActions registerAddress(String token) throws Exception {
+        RegisterAddressRequest request = new RegisterAddressRequest();
+        request.setTitle("Home address");
+        request.setAddress("Jl Pasirluyu");
+        request.setCountry("Indonesia");
+        request.setCity("Bandung");
+        request.setPostalCode("40254");
+
+        return mockMvc.perform(
+            post("/api/addresses")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("Authorization", "Bearer " + token)
+        );
+    }
+
+}
@@ -0,0 +1,261 @@
+package rest.api.ezcommerce.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import rest.api.ezcommerce.entity.RoleEntity;
+import rest.api.ezcommerce.entity.UserEntity;
+import rest.api.ezcommerce.model.UserResponse;
+import rest.api.ezcommerce.model.WebResponse;
+import rest.api.ezcommerce.repository.AddressRepository;
+import rest.api.ezcommerce.repository.CartItemRepository;
+import rest.api.ezcommerce.repository.CartRepository;
+import rest.api.ezcommerce.repository.CategoryRepository;
+import rest.api.ezcommerce.repository.OrderItemRepository;
+import rest.api.ezcommerce.repository.OrderRepository;
+import rest.api.ezcommerce.repository.ProductRepository;
+import rest.api.ezcommerce.repository.RoleRepository;
+import rest.api.ezcommerce.repository.StockReservationRepository;
+import rest.api.ezcommerce.repository.UserRepository;
+
+@EnableWebMvc
+@SpringBootTest
+@AutoConfigureMockMvc
+public class JwtFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private AuthenticationManager authenticationManager;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private SecurityConstants securityConstants;
+
+    @Autowired
+    private TokenRevocationStore revocationStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final String email = "test@gmail.com";
+    private final String password = "rahasia";
+
+    private Boolean stateless;
+
+    @BeforeEach
+    void setUp() {
+        stateless = securityConstants.getJwtStateless();
+
+        stockReservationRepository.deleteAll();
+        orderItemRepository.deleteAll();
+        orderRepository.deleteAll();
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        addressRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+
+        RoleEntity role = roleRepository.findByName("ROLE_USER").orElse(null);
+
+        UserEntity user = new UserEntity();
+        user.setEmail(email);
+        user.setPassword(passwordEncoder.encode(password));
+        user.setRoles(Collections.singletonList(role));
+        userRepository.save(user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(securityConstants, "jwtStateless", stateless);
+    }
+
+    @Test
+    void testStatefulAcceptsStoredToken() throws Exception {
+        setStateless(false);
+
+        String mockToken = login();
+        storeToken(mockToken);
+
+        getCurrentUser(mockToken).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+                WebResponse<UserResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(true, response.getStatus());
+            assertEquals(email, response.getData().getEmail());
+        });
+    }
+
+    @Test
+    void testStatefulRejectsTokenNotStored() throws Exception {
+        setStateless(false);
+
+        String mockToken = login();
+
+        getCurrentUser(mockToken).andExpectAll(
+                status().isUnauthorized()
+        );
+    }
+
+    @Test
+    void testStatelessAcceptsTokenNotStored() throws Exception {
+        setStateless(true);
+
+        String mockToken = login();
+
+        // the principal comes from the uid and roles claims, users.token is never read
+        getCurrentUser(mockToken).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+                WebResponse<UserResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals(true, response.getStatus());
+            assertEquals(email, response.getData().getEmail());
+        });
+    }
+
+    @Test
+    void testStatefulRejectsRevokedToken() throws Exception {
+        setStateless(false);
+
+        String mockToken = login();
+        storeToken(mockToken);
+        revoke(mockToken);
+
+        getCurrentUser(mockToken).andExpectAll(
+                status().isUnauthorized()
+        );
+    }
+
+    @Test
+    void testStatelessRejectsRevokedToken() throws Exception {
+        setStateless(true);
+
+        String mockToken = login();
+        revoke(mockToken);
+
+        getCurrentUser(mockToken).andExpectAll(
+                status().isUnauthorized()
+        );
+    }
+
+    @Test
+    void testStatelessWithoutUserIdFallsBackToLookup() throws Exception {
+        setStateless(true);
+
+        // a principal that is not a UserPrincipal leaves the uid claim out, like tokens issued before it existed
+        Authentication authentication = new UsernamePasswordAuthenticationToken(email, null,
+                                            Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+        String mockToken = jwtUtil.generateToken(authentication);
+
+        assertNull(jwtUtil.parseToken(mockToken).getUserId());
+
+        getCurrentUser(mockToken).andExpectAll(
+                status().isUnauthorized()
+        );
+
+        storeToken(mockToken);
+
+        getCurrentUser(mockToken).andExpectAll(
+                status().isOk()
+        );
+    }
+
+    private String login() {
+        Authentication authentication = authenticationManager.authenticate(
+                                            new UsernamePasswordAuthenticationToken(
+                                                email, password)
+                                            );
+
+        return jwtUtil.generateToken(authentication);
+    }
+
+    private void storeToken(String token) {
+        UserEntity user = userRepository.findByEmail(email).orElse(null);
+        user.setToken(token);
+        user.setTokenExpiredAt(System.currentTimeMillis() + securityConstants.getJwtExpiration());
+        userRepository.save(user);
+    }
+
+    private void revoke(String token) {
+        JwtClaims claims = jwtUtil.parseToken(token);
+        revocationStore.revoke(claims.getId(), claims.getExpiration().getTime());
+    }
+
+    private void setStateless(boolean value) {
+        ReflectionTestUtils.setField(securityConstants, "jwtStateless", value);
+    }
+
+    private ResultActions getCurrentUser(String token) throws Exception {
+        return mockMvc.perform(
+            get("/api/users")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("Authorization", "Bearer " + token)
+        );
+    }
+
+}
@@ -0,0 +1,113 @@
+package rest.api.ezcommerce.support;
+
+import java.lang.reflect.InvocationTargetException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.ttddyy.dsproxy.QueryType;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+/*
+ * Runs EXPLAIN for recorded statements, with their recorded parameters, and reports
+ * the tables read by a sequential scan. Test tables are tiny, and on tiny tables the
+ * planner prefers a seq scan even when an index exists, so plans are taken with
+ * enable_seqscan off: a Seq Scan left in the plan means no index can serve the query.
+ * Tables with fewer rows than minRows are not reported, which lets a caller seed a
+ * realistic volume and only flag the scans that would hurt.
+ */
+@Component
+public class QueryPlanChecker {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public QueryPlanChecker(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    public List<String> sequentialScans(SqlStatements statements, long minRows) {
+        return jdbcTemplate.execute((ConnectionCallback<List<String>>) connection -> {
+            Set<String> tables = new LinkedHashSet<>();
+
+            try (Statement setting = connection.createStatement()) {
+                setting.execute("set enable_seqscan = off");
+
+                for (SqlStatements.Statement statement : statements.all()) {
+                    if (statement.type() != QueryType.OTHER && statement.type() != QueryType.INSERT) {
+                        collectSeqScans(objectMapper.readTree(explain(connection, statement)), tables);
+                    }
+                }
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                try (Statement setting = connection.createStatement()) {
+                    setting.execute("reset enable_seqscan");
+                }
+            }
+
+            List<String> reported = new ArrayList<>();
+
+            for (String table : tables) {
+                if (rowCount(connection, table) >= minRows) {
+                    reported.add(table);
+                }
+            }
+
+            return reported;
+        });
+    }
+
+    private String explain(Connection connection, SqlStatements.Statement statement) throws SQLException {
+        try (PreparedStatement explain = connection.prepareStatement("explain (format json) " + statement.sql())) {
+            if (!statement.parameters().isEmpty()) {
+                for (ParameterSetOperation operation : statement.parameters().get(0)) {
+                    operation.getMethod().invoke(explain, operation.getArgs());
+                }
+            }
+
+            try (ResultSet result = explain.executeQuery()) {
+                result.next();
+                return result.getString(1);
+            }
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Could not replay parameters of " + statement.sql(), e);
+        }
+    }
+
+    private void collectSeqScans(JsonNode node, Set<String> tables) {
+        if ("Seq Scan".equals(node.path("Node Type").asText())) {
+            tables.add(node.path("Relation Name").asText());
+        }
+
+        node.forEach(child -> collectSeqScans(child, tables));
+    }
+
+    private long rowCount(Connection connection, String table) throws SQLException {
+        try (Statement count = connection.createStatement();
+                ResultSet result = count.executeQuery("select count(*) from " + count.enquoteIdentifier(table, false))) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+
+}
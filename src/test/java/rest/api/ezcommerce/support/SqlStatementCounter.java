@@ -0,0 +1,69 @@
+package rest.api.ezcommerce.support;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.NoOpQueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+/*
+ * Wraps the application DataSource in a datasource-proxy and records every statement
+ * executed on the calling thread while a capture is running. Hibernate, JdbcTemplate
+ * and the cart store all go through the same DataSource, so nothing escapes the count;
+ * scheduled jobs run on other threads and stay out of it. MockMvc runs the whole
+ * request, filters included, on the test thread.
+ */
+@Component
+public class SqlStatementCounter implements BeanPostProcessor {
+
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    private static final ThreadLocal<List<SqlStatements.Statement>> RECORDING = new ThreadLocal<>();
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource) {
+            return bean;
+        }
+
+        return ProxyDataSourceBuilder.create(dataSource)
+                    .name(beanName)
+                    .listener(new NoOpQueryExecutionListener() {
+                        @Override
+                        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+                            List<SqlStatements.Statement> recording = RECORDING.get();
+
+                            if (recording != null) {
+                                queryInfoList.forEach(query -> recording.add(new SqlStatements.Statement(
+                                            query.getQuery(), query.getParametersList())));
+                            }
+                        }
+                    })
+                    .build();
+    }
+
+    public SqlStatements capture(Action action) throws Exception {
+        List<SqlStatements.Statement> recording = new ArrayList<>();
+        RECORDING.set(recording);
+
+        try {
+            action.run();
+        } finally {
+            RECORDING.remove();
+        }
+
+        return new SqlStatements(recording);
+    }
+
+}
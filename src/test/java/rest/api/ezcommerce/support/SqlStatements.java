@@ -0,0 +1,57 @@
+package rest.api.ezcommerce.support;
+
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import net.ttddyy.dsproxy.QueryType;
+import net.ttddyy.dsproxy.listener.QueryUtils;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+// statements recorded by SqlStatementCounter, in execution order; a JDBC batch counts once
+public class SqlStatements {
+
+    public record Statement(String sql, List<List<ParameterSetOperation>> parameters) {
+
+        public QueryType type() {
+            return QueryUtils.getQueryType(sql);
+        }
+
+    }
+
+    private final List<Statement> statements;
+
+    SqlStatements(List<Statement> statements) {
+        this.statements = List.copyOf(statements);
+    }
+
+    public List<Statement> all() {
+        return statements;
+    }
+
+    public int count() {
+        return statements.size();
+    }
+
+    public int count(QueryType type) {
+        return (int) statements.stream().filter(s -> s.type() == type).count();
+    }
+
+    // statements that read or write the given table, by name after from, join, update or into
+    public SqlStatements touching(String table) {
+        Pattern pattern = Pattern.compile("\\b(from|join|update|into)\\s+" + Pattern.quote(table) + "\\b",
+                    Pattern.CASE_INSENSITIVE);
+
+        return new SqlStatements(statements.stream()
+                    .filter(s -> pattern.matcher(s.sql()).find())
+                    .toList());
+    }
+
+    @Override
+    public String toString() {
+        return statements.stream()
+                    .map(s -> s.type() + " " + s.sql().replaceAll("\\s+", " "))
+                    .collect(Collectors.joining("\n", count() + " statements\n", ""));
+    }
+
+}